@@ -0,0 +1,158 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+import org.fogbeam.example.opennlp.Pipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+/**
+ * @file ComponentBenchmark.java
+ * @brief Latencia y rendimiento por oración de cada componente de OpenNLP.
+ *
+ * Las oraciones de prueba salen de demo_data/en-sent1.demo y del texto de
+ * training_data/Ocmulgee National Monument - Georgia.txt; los textos a clasificar,
+ * de training_data/en-doccat.train. Las entradas de cada etapa (tokens, etiquetas)
+ * se calculan una vez en el arranque, así que cada benchmark mide solo su etapa.
+ * Cada invocación procesa una oración distinta, recorriendo el conjunto en círculo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComponentBenchmark {
+
+	private SentenceDetectorME sentenceDetector;
+	private TokenizerME tokenizer;
+	private POSTaggerME tagger;
+	private ChunkerME chunker;
+	private NameFinderME nameFinder;
+	private DocumentCategorizerME categorizer;
+
+	private String[] paragraphs;
+	private String[] sentences;
+	private String[][] tokens;
+	private String[][] tags;
+	private String[] documents;
+
+	private int next;
+
+	@Setup
+	public void setUp() throws IOException {
+		ModelRegistry registry = ModelRegistry.getInstance();
+		sentenceDetector = new SentenceDetectorME(registry.get(Pipeline.SENTENCE_MODEL, SentenceModel.class));
+		tokenizer = new TokenizerME(registry.get(Pipeline.TOKENIZER_MODEL, TokenizerModel.class));
+		tagger = new POSTaggerME(registry.get(Pipeline.POS_MODEL, POSModel.class));
+		chunker = new ChunkerME(registry.get(Pipeline.CHUNKER_MODEL, ChunkerModel.class));
+		nameFinder = new NameFinderME(registry.get(Pipeline.NAME_FINDER_MODEL, TokenNameFinderModel.class));
+		categorizer = new DocumentCategorizerME(registry.get(Pipeline.DOCCAT_MODEL, DoccatModel.class));
+
+		List<String> paragraphList = new ArrayList<>();
+		List<String> sentenceList = new ArrayList<>();
+		for (String file : new String[] {"demo_data/en-sent1.demo",
+				"training_data/Ocmulgee National Monument - Georgia.txt"}) {
+			String text = read(file);
+			for (String paragraph : text.split("\\n\\s*\\n")) {
+				if (!paragraph.trim().isEmpty()) {
+					paragraphList.add(paragraph);
+				}
+			}
+			for (Span span : sentenceDetector.sentPosDetect(text)) {
+				sentenceList.add(span.getCoveredText(text).toString());
+			}
+		}
+		paragraphs = paragraphList.toArray(new String[0]);
+		sentences = sentenceList.toArray(new String[0]);
+
+		tokens = new String[sentences.length][];
+		tags = new String[sentences.length][];
+		for (int i = 0; i < sentences.length; i++) {
+			tokens[i] = tokenizer.tokenize(sentences[i]);
+			tags[i] = tagger.tag(tokens[i]);
+		}
+
+		// Cada línea de en-doccat.train es "<categoría> <texto>": se descarta la categoría.
+		List<String> documentList = new ArrayList<>();
+		for (String line : read("training_data/en-doccat.train").split("\\n")) {
+			int space = line.indexOf(' ');
+			if (space > 0) {
+				documentList.add(line.substring(space + 1));
+			}
+		}
+		documents = documentList.toArray(new String[0]);
+	}
+
+	@Benchmark
+	public Span[] sentDetect() {
+		return sentenceDetector.sentPosDetect(paragraphs[next(paragraphs.length)]);
+	}
+
+	@Benchmark
+	public String[] tokenize() {
+		return tokenizer.tokenize(sentences[next(sentences.length)]);
+	}
+
+	@Benchmark
+	public String[] tag() {
+		return tagger.tag(tokens[next(tokens.length)]);
+	}
+
+	@Benchmark
+	public String[] chunk() {
+		int i = next(tokens.length);
+		return chunker.chunk(tokens[i], tags[i]);
+	}
+
+	@Benchmark
+	public Span[] find() {
+		Span[] names = nameFinder.find(tokens[next(tokens.length)]);
+		nameFinder.clearAdaptiveData();
+		return names;
+	}
+
+	@Benchmark
+	public String categorize() {
+		return categorizer.getBestCategory(categorizer.categorize(documents[next(documents.length)]));
+	}
+
+	private int next(int length) {
+		int i = next % length;
+		next = i + 1;
+		return i;
+	}
+
+	private static String read(String file) throws IOException {
+		return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+	}
+}
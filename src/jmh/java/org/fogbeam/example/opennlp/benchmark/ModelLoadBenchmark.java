@@ -0,0 +1,99 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Warmup;
+
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.model.BaseModel;
+
+/**
+ * @file ModelLoadBenchmark.java
+ * @brief Mide el tiempo de carga en frío de cada modelo de models/.
+ *
+ * Antes de cada invocación se vacía el ModelRegistry, de modo que cada medida incluye
+ * la lectura del fichero y la deserialización completa del modelo, tal como ocurre
+ * en el arranque de un proceso. El parámetro mode compara la lectura proyectada en
+ * memoria con la lectura por flujo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ModelLoadBenchmark {
+
+	/** Modelo a cargar, como "ruta:tipo". */
+	@Param({
+			"models/en-token.model:tokenizer",
+			"models/en-sent.model:sentence",
+			"models/en-pos-perceptron.bin:pos",
+			"models/en-chunker.model:chunker",
+			"models/en-ner-person.model:namefinder",
+			"models/en-doccat.model:doccat"
+	})
+	public String model;
+
+	/** Forma de leer el fichero (ver ModelRegistry.LoadMode). */
+	@Param({"MAPPED", "STREAM"})
+	public String mode;
+
+	private String path;
+	private Class<? extends BaseModel> type;
+
+	@Setup(Level.Trial)
+	public void resolveModel() {
+		int separator = model.lastIndexOf(':');
+		path = model.substring(0, separator);
+		type = typeOf(model.substring(separator + 1));
+		ModelRegistry.getInstance().setLoadMode(ModelRegistry.LoadMode.valueOf(mode));
+	}
+
+	@Setup(Level.Invocation)
+	public void clearRegistry() {
+		ModelRegistry.getInstance().clear();
+	}
+
+	@Benchmark
+	public BaseModel load() throws IOException {
+		return ModelRegistry.getInstance().get(path, type);
+	}
+
+	private static Class<? extends BaseModel> typeOf(String name) {
+		switch (name) {
+			case "tokenizer":
+				return TokenizerModel.class;
+			case "sentence":
+				return SentenceModel.class;
+			case "pos":
+				return POSModel.class;
+			case "chunker":
+				return ChunkerModel.class;
+			case "namefinder":
+				return TokenNameFinderModel.class;
+			case "doccat":
+				return DoccatModel.class;
+			default:
+				throw new IllegalArgumentException("Unknown model type: " + name);
+		}
+	}
+}
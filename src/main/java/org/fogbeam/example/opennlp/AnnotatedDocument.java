@@ -0,0 +1,71 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @file AnnotatedDocument.java
+ * @brief Resultado del pipeline para un documento de entrada.
+ *
+ * Contiene el texto original, sus oraciones anotadas y, si el pipeline incluye
+ * la etapa de clasificación, la categoría del documento.
+ */
+public class AnnotatedDocument {
+	private final String id;
+	private final String text;
+	private final List<AnnotatedSentence> sentences;
+	private final String category;
+	private final double[] categoryProbs;
+
+	/**
+	 * @brief Crea un documento anotado.
+	 *
+	 * @param id Identificador del documento (por ejemplo, la ruta del archivo).
+	 * @param text Texto completo del documento.
+	 * @param sentences Oraciones anotadas, en orden.
+	 * @param category Categoría del documento, o null si no se clasificó.
+	 * @param categoryProbs Probabilidad de cada categoría, o null si no se clasificó.
+	 */
+	public AnnotatedDocument(String id, String text, List<AnnotatedSentence> sentences, String category,
+			double[] categoryProbs) {
+		this.id = id;
+		this.text = text;
+		this.sentences = Collections.unmodifiableList(sentences);
+		this.category = category;
+		this.categoryProbs = categoryProbs;
+	}
+
+	/** @return Identificador del documento. */
+	public String getId() {
+		return id;
+	}
+
+	/** @return Texto completo del documento. */
+	public String getText() {
+		return text;
+	}
+
+	/** @return Oraciones anotadas, en orden. */
+	public List<AnnotatedSentence> getSentences() {
+		return sentences;
+	}
+
+	/** @return Categoría del documento, o null si no se clasificó. */
+	public String getCategory() {
+		return category;
+	}
+
+	/** @return Probabilidad de cada categoría, o null si no se clasificó. */
+	public double[] getCategoryProbs() {
+		return categoryProbs;
+	}
+
+	/** @return Número total de tokens del documento. */
+	public int getTokenCount() {
+		int count = 0;
+		for (AnnotatedSentence sentence : sentences) {
+			count += sentence.getTokens().length;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,125 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.Arrays;
+
+import opennlp.tools.util.Span;
+
+/**
+ * @file AnnotatedSentence.java
+ * @brief Resultado de todas las etapas del pipeline para una oración.
+ *
+ * Guarda los arrays que devuelve cada etapa tal cual, sin copiarlos ni convertirlos.
+ * Los desplazamientos de la oración y de los tokens son posiciones de carácter dentro
+ * del texto completo del documento. Las entidades se expresan como rangos de índices
+ * de token, igual que las devuelve NameFinderME.
+ *
+ * Los programas que solo ejecutan algunas etapas dejan a null los arrays de las demás;
+ * las implementaciones de ResultSink escriben únicamente lo que haya.
+ */
+public class AnnotatedSentence {
+	private final Span span;
+	private final Span[] tokenSpans;
+	private final String[] tokens;
+	private final String[] posTags;
+	private final double[] posProbs;
+	private final String[] chunkTags;
+	private final double[] chunkProbs;
+	private final Span[] names;
+
+	/**
+	 * @brief Crea una oración anotada.
+	 *
+	 * @param span Posición de la oración en el documento.
+	 * @param tokenSpans Posición de cada token en el documento.
+	 * @param tokens Texto de cada token.
+	 * @param posTags Etiqueta gramatical de cada token.
+	 * @param posProbs Probabilidad de cada etiqueta gramatical.
+	 * @param chunkTags Etiqueta de fragmento de cada token.
+	 * @param names Entidades encontradas, como rangos de índices de token.
+	 */
+	public AnnotatedSentence(Span span, Span[] tokenSpans, String[] tokens, String[] posTags, double[] posProbs,
+			String[] chunkTags, Span[] names) {
+		this(span, tokenSpans, tokens, posTags, posProbs, chunkTags, null, names);
+	}
+
+	/**
+	 * @brief Crea una oración anotada con las probabilidades de los fragmentos.
+	 *
+	 * @param span Posición de la oración en el documento.
+	 * @param tokenSpans Posición de cada token en el documento.
+	 * @param tokens Texto de cada token.
+	 * @param posTags Etiqueta gramatical de cada token.
+	 * @param posProbs Probabilidad de cada etiqueta gramatical.
+	 * @param chunkTags Etiqueta de fragmento de cada token.
+	 * @param chunkProbs Probabilidad de cada etiqueta de fragmento.
+	 * @param names Entidades encontradas, como rangos de índices de token.
+	 */
+	public AnnotatedSentence(Span span, Span[] tokenSpans, String[] tokens, String[] posTags, double[] posProbs,
+			String[] chunkTags, double[] chunkProbs, Span[] names) {
+		this.span = span;
+		this.tokenSpans = tokenSpans;
+		this.tokens = tokens;
+		this.posTags = posTags;
+		this.posProbs = posProbs;
+		this.chunkTags = chunkTags;
+		this.chunkProbs = chunkProbs;
+		this.names = names;
+	}
+
+	/** @return Posición de la oración en el documento. */
+	public Span getSpan() {
+		return span;
+	}
+
+	/** @return Posición de cada token en el documento. */
+	public Span[] getTokenSpans() {
+		return tokenSpans;
+	}
+
+	/** @return Texto de cada token. */
+	public String[] getTokens() {
+		return tokens;
+	}
+
+	/** @return Etiqueta gramatical de cada token. */
+	public String[] getPosTags() {
+		return posTags;
+	}
+
+	/** @return Probabilidad de cada etiqueta gramatical. */
+	public double[] getPosProbs() {
+		return posProbs;
+	}
+
+	/** @return Etiqueta de fragmento de cada token. */
+	public String[] getChunkTags() {
+		return chunkTags;
+	}
+
+	/** @return Probabilidad de cada etiqueta de fragmento. */
+	public double[] getChunkProbs() {
+		return chunkProbs;
+	}
+
+	/** @return Entidades encontradas, como rangos de índices de token. */
+	public Span[] getNames() {
+		return names;
+	}
+
+	/**
+	 * @brief Devuelve las entidades en formato BIO, una etiqueta por token.
+	 *
+	 * @return Array con "B-tipo", "I-tipo" u "O" para cada token.
+	 */
+	public String[] getNameTags() {
+		String[] tags = new String[tokens.length];
+		Arrays.fill(tags, "O");
+		for (Span name : names) {
+			tags[name.getStart()] = "B-" + name.getType();
+			for (int i = name.getStart() + 1; i < name.getEnd(); i++) {
+				tags[i] = "I-" + name.getType();
+			}
+		}
+		return tags;
+	}
+}
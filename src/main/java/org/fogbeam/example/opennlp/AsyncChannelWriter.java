@@ -0,0 +1,364 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file AsyncChannelWriter.java
+ * @brief Writer que escribe un fichero UTF-8 desde un hilo propio, sin bloquear a quien escribe.
+ *
+ * Los caracteres escritos se copian a bloques de caracteres en memoria; cuando un bloque se
+ * llena, pasa a una cola acotada y quien escribe sigue con un bloque libre. Un hilo de
+ * escritura toma los bloques de la cola, los codifica a UTF-8 de una vez en un ByteBuffer
+ * directo grande y lo vuelca al fichero con FileChannel.write cuando se llena. Así no se
+ * crea ninguna cadena por cada escritura, las llamadas al sistema son pocas y grandes, y
+ * la tokenización solo espera al disco si la cola está llena (el disco va más lento que
+ * ella durante un buen rato).
+ *
+ * Los bloques se reutilizan, de modo que la memoria usada es fija. Un error de escritura en
+ * el hilo de fondo se lanza en la siguiente llamada a write(), flush() o close(). flush()
+ * espera a que todo lo escrito hasta ese momento esté en el fichero.
+ */
+public class AsyncChannelWriter extends Writer {
+	/** Caracteres por bloque, por defecto. */
+	public static final int DEFAULT_CHUNK_CHARS = 64 * 1024;
+	/** Bloques que caben en la cola, por defecto. */
+	public static final int DEFAULT_QUEUE_CHUNKS = 16;
+	/** Tamaño del búfer directo de bytes, por defecto. */
+	public static final int DEFAULT_BUFFER_BYTES = 1024 * 1024;
+
+	/**
+	 * @brief Bloque de caracteres pendiente de escribir, o una marca de flush().
+	 */
+	private static final class Chunk {
+		private final char[] chars;
+		private int length;
+		private final CountDownLatch done;
+		/** Último bloque, encolado por close(): termina la codificación y el hilo de escritura. */
+		private boolean last;
+
+		Chunk(char[] chars, CountDownLatch done) {
+			this.chars = chars;
+			this.done = done;
+		}
+	}
+
+	private final FileChannel channel;
+	private final BlockingQueue<Chunk> queue;
+	private final BlockingQueue<Chunk> free;
+	private final ByteBuffer buffer;
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private final Thread thread;
+
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final AtomicLong blockedNanos = new AtomicLong();
+	private volatile IOException failure;
+
+	/** Bloque que se está llenando; solo se usa con el cerrojo del Writer. */
+	private Chunk current;
+	private boolean closed;
+
+	/**
+	 * @brief Crea (o vacía) un fichero con los tamaños por defecto.
+	 *
+	 * @param path Fichero de salida.
+	 * @throws IOException Si el fichero no se puede abrir.
+	 */
+	public AsyncChannelWriter(Path path) throws IOException {
+		this(path, DEFAULT_CHUNK_CHARS, DEFAULT_QUEUE_CHUNKS, DEFAULT_BUFFER_BYTES);
+	}
+
+	/**
+	 * @brief Crea (o vacía) un fichero.
+	 *
+	 * @param path Fichero de salida.
+	 * @param chunkChars Caracteres por bloque.
+	 * @param queueChunks Bloques llenos que pueden esperar en la cola.
+	 * @param bufferBytes Tamaño del búfer directo de bytes; se vuelca al fichero cada vez que se llena.
+	 * @throws IOException Si el fichero no se puede abrir.
+	 */
+	public AsyncChannelWriter(Path path, int chunkChars, int queueChunks, int bufferBytes) throws IOException {
+		if (chunkChars < 2 || queueChunks < 1 || bufferBytes < 16) {
+			throw new IllegalArgumentException("Tamaños no válidos: " + chunkChars + ", " + queueChunks + ", "
+					+ bufferBytes);
+		}
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.queue = new ArrayBlockingQueue<>(queueChunks + 2);
+		// Bloques en circulación: los de la cola, el que se está codificando y el que se está llenando.
+		// Cuando no queda ninguno libre, quien escribe espera: esa es la contrapresión.
+		this.free = new ArrayBlockingQueue<>(queueChunks + 2);
+		for (int i = 0; i < queueChunks + 1; i++) {
+			free.add(new Chunk(new char[chunkChars], null));
+		}
+		this.current = new Chunk(new char[chunkChars], null);
+		this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+
+		this.thread = new Thread(this::run, "async-writer-" + path.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+			if (current.length == current.chars.length) {
+				submitCurrent();
+			}
+			current.chars[current.length++] = (char) c;
+		}
+	}
+
+	@Override
+	public void write(char[] chars, int offset, int length) throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+			while (length > 0) {
+				if (current.length == current.chars.length) {
+					submitCurrent();
+				}
+				int n = Math.min(length, current.chars.length - current.length);
+				System.arraycopy(chars, offset, current.chars, current.length, n);
+				current.length += n;
+				offset += n;
+				length -= n;
+			}
+		}
+	}
+
+	@Override
+	public void write(String text, int offset, int length) throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+			while (length > 0) {
+				if (current.length == current.chars.length) {
+					submitCurrent();
+				}
+				int n = Math.min(length, current.chars.length - current.length);
+				text.getChars(offset, offset + n, current.chars, current.length);
+				current.length += n;
+				offset += n;
+				length -= n;
+			}
+		}
+	}
+
+	/**
+	 * @brief Espera a que todo lo escrito hasta ahora esté en el fichero.
+	 */
+	@Override
+	public void flush() throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+			awaitMarker();
+		}
+	}
+
+	/**
+	 * @brief Escribe lo pendiente, detiene el hilo de escritura y cierra el fichero.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				awaitMarker();
+			} finally {
+				try {
+					// awaitMarker() retiene en el bloque actual un surrogate alto final por si llega
+					// su pareja; al cerrar ya no llegará, así que se codifica como fin de la entrada.
+					current.last = true;
+					enqueue(current);
+					thread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				channel.close();
+			}
+			checkFailure();
+		}
+	}
+
+	/** @return Bytes UTF-8 escritos en el fichero hasta ahora. */
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/** @return Tiempo total que han esperado quienes escriben porque la cola estaba llena, en nanosegundos. */
+	public long getBlockedNanos() {
+		return blockedNanos.get();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Writer cerrado");
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		IOException error = failure;
+		if (error != null) {
+			throw new IOException("Error escribiendo el fichero", error);
+		}
+	}
+
+	/**
+	 * @brief Encola el bloque actual y toma uno libre. Un surrogate alto al final del bloque se
+	 *        pasa al siguiente para que el par no se codifique por separado.
+	 */
+	private void submitCurrent() throws IOException {
+		Chunk full = current;
+		Chunk next = take(free);
+		next.length = 0;
+		if (full.length > 0 && Character.isHighSurrogate(full.chars[full.length - 1])) {
+			next.chars[next.length++] = full.chars[--full.length];
+		}
+		enqueue(full);
+		current = next;
+	}
+
+	/**
+	 * @brief Encola el bloque actual seguido de una marca y espera a que el hilo de escritura la alcance.
+	 */
+	private void awaitMarker() throws IOException {
+		if (current.length > 0) {
+			submitCurrent();
+		}
+		Chunk marker = new Chunk(null, new CountDownLatch(1));
+		enqueue(marker);
+		try {
+			marker.done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("flush interrumpido");
+		}
+		checkFailure();
+	}
+
+	private void enqueue(Chunk chunk) throws IOException {
+		if (!queue.offer(chunk)) {
+			long start = System.nanoTime();
+			try {
+				queue.put(chunk);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Escritura interrumpida");
+			}
+			blockedNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+	private Chunk take(BlockingQueue<Chunk> from) throws IOException {
+		Chunk chunk = from.poll();
+		if (chunk != null) {
+			return chunk;
+		}
+		long start = System.nanoTime();
+		try {
+			chunk = from.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Escritura interrumpida");
+		}
+		blockedNanos.addAndGet(System.nanoTime() - start);
+		return chunk;
+	}
+
+	/**
+	 * @brief Bucle del hilo de escritura: codifica cada bloque y vacía el búfer al llenarse o en cada marca.
+	 *
+	 * Si una escritura falla, el error se guarda y el hilo sigue vaciando la cola sin escribir,
+	 * para que nadie se quede esperando.
+	 */
+	private void run() {
+		try {
+			while (true) {
+				Chunk chunk = queue.take();
+				try {
+					if (chunk.last) {
+						if (failure == null) {
+							encode(chunk, true);
+							drain();
+						}
+						return;
+					} else if (chunk.chars != null) {
+						if (failure == null) {
+							encode(chunk, false);
+						}
+						free.add(chunk);
+					} else {
+						if (failure == null) {
+							drain();
+						}
+						chunk.done.countDown();
+					}
+				} catch (IOException e) {
+					failure = e;
+					if (chunk.last) {
+						return;
+					} else if (chunk.done != null) {
+						chunk.done.countDown();
+					} else {
+						free.add(chunk);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @brief Codifica un bloque en el búfer directo, vaciándolo cada vez que se llena.
+	 *
+	 * @param endOfInput true en el último bloque: un surrogate alto suelto al final se sustituye
+	 *                   (CodingErrorAction.REPLACE) en lugar de quedarse esperando a su pareja, y
+	 *                   se vacía el estado interno del codificador.
+	 */
+	private void encode(Chunk chunk, boolean endOfInput) throws IOException {
+		CharBuffer chars = CharBuffer.wrap(chunk.chars, 0, chunk.length);
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, endOfInput);
+			if (result.isOverflow()) {
+				drain();
+			} else {
+				break;
+			}
+		}
+		while (endOfInput && encoder.flush(buffer).isOverflow()) {
+			drain();
+		}
+	}
+
+	/**
+	 * @brief Escribe en el fichero todo el contenido del búfer directo.
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			bytesWritten.addAndGet(channel.write(buffer));
+		}
+		buffer.clear();
+	}
+}
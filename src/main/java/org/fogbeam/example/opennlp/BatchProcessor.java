@@ -0,0 +1,448 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+
+// Ejemplo de uso: java BatchProcessor [-task tokenize|sentences|pipeline] [-threads N] [-inflight N]
+//                 [-checkpoint archivo] <directorioEntrada> <directorioSalida>
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.BatchProcessor" -Dexec.args="-task sentences corpus/ salida/"
+
+/**
+ * @file BatchProcessor.java
+ * @brief Procesa todos los documentos de un árbol de directorios, separando E/S y cálculo.
+ *
+ * Con millones de documentos pequeños, la mayor parte del tiempo se va en esperar al disco.
+ * El trabajo se reparte en tres etapas:
+ *
+ *   1. Un hilo recorre el árbol de forma perezosa (Files.walkFileTree) y lanza la lectura de
+ *      cada documento en un hilo virtual (o en un pool de E/S si la JVM no los ofrece). Los
+ *      directorios y ficheros que no se pueden leer se anotan en el log y se omiten.
+ *   2. Los documentos leídos pasan por una cola acotada a un pool fijo de hilos normales
+ *      (-threads N, uno por procesador por defecto) que ejecuta los modelos ME.
+ *   3. El resultado se escribe de nuevo en un hilo virtual, en el mismo camino relativo
+ *      bajo el directorio de salida.
+ *
+ * Contrapresión: un semáforo limita los documentos en curso entre las tres etapas
+ * (-inflight N). Si los modelos no dan abasto, el recorrido se detiene hasta que se liberan
+ * plazas, así que la memoria usada no depende del tamaño del árbol.
+ *
+ * Reanudación: cada documento terminado se añade al archivo de control (-checkpoint, por
+ * defecto .batch-checkpoint en el directorio de salida), que se vuelca a disco cada
+ * CHECKPOINT_FLUSH documentos y al terminar. Al volver a lanzar el proceso se omiten los
+ * documentos que ya figuran en él; tras una interrupción, como mucho se repiten los últimos
+ * documentos no volcados, cuya salida simplemente se sobrescribe.
+ */
+public class BatchProcessor {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(BatchProcessor.class.getName());
+
+	/** Documentos terminados entre dos volcados del archivo de control. */
+	private static final int CHECKPOINT_FLUSH = 1000;
+
+	/** Marca de fin de la cola de documentos leídos. */
+	private static final Document END = new Document(null, null);
+
+	/**
+	 * @brief Tarea que se aplica a cada documento.
+	 */
+	public enum Task {
+		/** Un token por línea. */
+		TOKENIZE(".tok"),
+		/** Una oración por línea. */
+		SENTENCES(".sent"),
+		/** Todas las etapas, en el formato TSV de PipelineMain. */
+		PIPELINE(".tsv");
+
+		private final String extension;
+
+		Task(String extension) {
+			this.extension = extension;
+		}
+
+		/**
+		 * @brief Crea la función de la tarea con los modelos del registro compartido.
+		 *
+		 * La función recibe el camino relativo y el texto del documento, es segura entre
+		 * hilos y devuelve el texto de salida.
+		 */
+		Function<Document, String> create() throws IOException {
+			ModelRegistry registry = ModelRegistry.getInstance();
+			switch (this) {
+				case TOKENIZE: {
+					MEPool<TokenizerModel, TokenizerME> tokenizers =
+							MEPool.tokenizers(registry.get(Pipeline.TOKENIZER_MODEL, TokenizerModel.class));
+					return document -> {
+						long start = System.nanoTime();
+						String[] tokens = tokenizers.get().tokenize(document.text);
+						StageMetrics.TOKENIZE.record(start, 0, tokens.length);
+						return lines(tokens);
+					};
+				}
+				case SENTENCES: {
+					MEPool<SentenceModel, SentenceDetectorME> detectors =
+							MEPool.sentenceDetectors(registry.get(Pipeline.SENTENCE_MODEL, SentenceModel.class));
+					return document -> {
+						long start = System.nanoTime();
+						String[] sentences = detectors.get().sentDetect(document.text);
+						StageMetrics.SENT_DETECT.record(start, sentences.length, 0);
+						return lines(sentences);
+					};
+				}
+				default: {
+					Pipeline pipeline = Pipeline.fromRegistry(false);
+					return document -> {
+						StringWriter out = new StringWriter();
+						try {
+							PipelineMain.writeDocument(out, pipeline.process(document.name, document.text));
+						} catch (IOException e) {
+							throw new IllegalStateException(e); // StringWriter no lanza IOException.
+						}
+						return out.toString();
+					};
+				}
+			}
+		}
+
+		private static String lines(String[] values) {
+			StringBuilder out = new StringBuilder();
+			for (String value : values) {
+				out.append(value).append('\n');
+			}
+			return out.toString();
+		}
+	}
+
+	/**
+	 * @brief Documento leído, pendiente de procesar.
+	 */
+	static final class Document {
+		private final String name;
+		private final String text;
+
+		Document(String name, String text) {
+			this.name = name;
+			this.text = text;
+		}
+	}
+
+	private final Path inputDir;
+	private final Path outputDir;
+	private final Path checkpointFile;
+	private final Task task;
+	private final int cpuThreads;
+	private final int inFlight;
+
+	private final LongAdder processed = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder bytesRead = new LongAdder();
+
+	private Writer checkpoint;
+	private int unflushed;
+
+	/**
+	 * @brief Prepara el procesamiento de un directorio.
+	 *
+	 * @param inputDir Directorio de entrada; se procesan todos los archivos bajo él.
+	 * @param outputDir Directorio de salida.
+	 * @param checkpointFile Archivo de control para reanudar.
+	 * @param task Tarea a aplicar a cada documento.
+	 * @param cpuThreads Hilos que ejecutan los modelos.
+	 * @param inFlight Máximo de documentos en curso (leídos y aún no escritos).
+	 */
+	public BatchProcessor(Path inputDir, Path outputDir, Path checkpointFile, Task task, int cpuThreads, int inFlight) {
+		this.inputDir = inputDir;
+		this.outputDir = outputDir;
+		this.checkpointFile = checkpointFile;
+		this.task = task;
+		this.cpuThreads = cpuThreads;
+		this.inFlight = inFlight;
+	}
+
+	/**
+	 * @brief Metodo principal del programa.
+	 *
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -task tokenize|sentences|pipeline (sentences por defecto).
+	 *             - Opcional: -threads N, hilos que ejecutan los modelos.
+	 *             - Opcional: -inflight N, máximo de documentos en curso (1024 por defecto).
+	 *             - Opcional: -checkpoint archivo de control para reanudar.
+	 *             - Directorio de entrada y directorio de salida.
+	 * @throws Exception En caso de errores durante la ejecución.
+	 */
+	public static void main(String[] args) throws Exception {
+		Task task = Task.SENTENCES;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int inFlight = 1024;
+		String checkpoint = null;
+		int i = 0;
+		for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+			switch (args[i]) {
+				case "-task":
+					task = Task.valueOf(args[i + 1].toUpperCase());
+					break;
+				case "-threads":
+					threads = Integer.parseInt(args[i + 1]);
+					break;
+				case "-inflight":
+					inFlight = Integer.parseInt(args[i + 1]);
+					break;
+				case "-checkpoint":
+					checkpoint = args[i + 1];
+					break;
+				default:
+					i = args.length;
+			}
+		}
+
+		if (args.length - i != 2 || threads < 1 || inFlight < 1) {
+			LOGGER.severe("Uso: java BatchProcessor [-task tokenize|sentences|pipeline] [-threads N] [-inflight N] "
+					+ "[-checkpoint archivo] <directorioEntrada> <directorioSalida>");
+			System.exit(1);
+		}
+
+		Path inputDir = Paths.get(args[i]);
+		Path outputDir = Paths.get(args[i + 1]);
+		Path checkpointFile = checkpoint != null ? Paths.get(checkpoint) : outputDir.resolve(".batch-checkpoint");
+		MetricsReporter metrics = MetricsReporter.install();
+		new BatchProcessor(inputDir, outputDir, checkpointFile, task, threads, inFlight).run();
+		metrics.report();
+	}
+
+	/**
+	 * @brief Procesa todos los documentos pendientes del directorio de entrada.
+	 *
+	 * @throws IOException Si no se puede leer el directorio de entrada, se interrumpe el recorrido
+	 *             (InterruptedIOException) o no se puede escribir el archivo de control.
+	 * @throws InterruptedException Si se interrumpe el hilo que llama.
+	 */
+	public void run() throws IOException, InterruptedException {
+		Files.createDirectories(outputDir);
+		Set<String> done = loadCheckpoint();
+		Function<Document, String> function = task.create();
+
+		BlockingQueue<Document> queue = new ArrayBlockingQueue<>(Math.max(cpuThreads * 2, 1));
+		Semaphore permits = new Semaphore(inFlight);
+		ExecutorService io = VirtualThreads.newExecutor(Math.min(inFlight, 64));
+		ExecutorService cpu = Executors.newFixedThreadPool(cpuThreads);
+		ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+
+		LOGGER.info(String.format("Processing %s into %s: task %s, %d CPU threads, %d documents in flight, "
+				+ "I/O on %s, %d documents already done", inputDir, outputDir, task, cpuThreads, inFlight,
+				VirtualThreads.isAvailable() ? "virtual threads" : "a thread pool", done.size()));
+		long start = System.nanoTime();
+		progress.scheduleAtFixedRate(() -> logProgress(start), 10, 10, TimeUnit.SECONDS);
+
+		checkpoint = Files.newBufferedWriter(checkpointFile, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		boolean completed = false;
+		try {
+			for (int i = 0; i < cpuThreads; i++) {
+				cpu.execute(() -> infer(queue, function, io, permits));
+			}
+
+			Files.walkFileTree(inputDir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException {
+					// Files.isRegularFile sigue los enlaces simbólicos, como hacía el filtro de Files.walk.
+					if (Files.isRegularFile(path)) {
+						submit(path, done, queue, io, permits);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+					if (path.equals(inputDir)) {
+						throw e;
+					}
+					LOGGER.log(Level.WARNING, String.format("Skipping %s, cannot be read: %s", path, e));
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+					if (e != null) {
+						LOGGER.log(Level.WARNING, String.format("Skipping the rest of %s, cannot be listed: %s",
+								directory, e));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+
+			// Espera a que terminen todos los documentos en curso y detiene los hilos de cálculo.
+			permits.acquire(inFlight);
+			for (int i = 0; i < cpuThreads; i++) {
+				queue.put(END);
+			}
+			completed = true;
+		} finally {
+			if (completed) {
+				cpu.shutdown();
+				io.shutdown();
+			} else {
+				// Sin END en la cola, los hilos de cálculo seguirían esperando en queue.take().
+				cpu.shutdownNow();
+				io.shutdownNow();
+			}
+			progress.shutdownNow();
+			cpu.awaitTermination(1, TimeUnit.MINUTES);
+			io.awaitTermination(1, TimeUnit.MINUTES);
+			synchronized (this) {
+				checkpoint.close();
+			}
+		}
+		logProgress(start);
+	}
+
+	/**
+	 * @brief Lanza la lectura de un documento del recorrido, salvo si ya está en el archivo de control.
+	 *
+	 * @throws InterruptedIOException Si se interrumpe mientras espera una plaza libre.
+	 */
+	private void submit(Path path, Set<String> done, BlockingQueue<Document> queue, ExecutorService io,
+			Semaphore permits) throws InterruptedIOException {
+		String name = inputDir.relativize(path).toString();
+		if (done.contains(name)) {
+			skipped.increment();
+			return;
+		}
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			InterruptedIOException interrupted = new InterruptedIOException("Interrupted while walking " + inputDir);
+			interrupted.initCause(e);
+			throw interrupted;
+		}
+		io.execute(() -> read(path, name, queue, permits));
+	}
+
+	/**
+	 * @brief Etapa 1: lee un documento y lo encola para los hilos de cálculo.
+	 */
+	private void read(Path path, String name, BlockingQueue<Document> queue, Semaphore permits) {
+		try {
+			byte[] bytes = Files.readAllBytes(path);
+			bytesRead.add(bytes.length);
+			queue.put(new Document(name, new String(bytes, StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			fail(name, e, permits);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(name, e, permits);
+		}
+	}
+
+	/**
+	 * @brief Etapa 2: bucle de un hilo de cálculo, que aplica la tarea a cada documento leído.
+	 */
+	private void infer(BlockingQueue<Document> queue, Function<Document, String> function, ExecutorService io,
+			Semaphore permits) {
+		while (true) {
+			Document document;
+			try {
+				document = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (document == END) {
+				return;
+			}
+
+			try {
+				String output = function.apply(document);
+				io.execute(() -> write(document, output, permits));
+			} catch (RuntimeException e) {
+				fail(document.name, e, permits);
+			}
+		}
+	}
+
+	/**
+	 * @brief Etapa 3: escribe el resultado de un documento y lo anota en el archivo de control.
+	 */
+	private void write(Document document, String output, Semaphore permits) {
+		try {
+			Path target = outputDir.resolve(document.name + task.extension);
+			Files.createDirectories(target.getParent());
+			Files.write(target, output.getBytes(StandardCharsets.UTF_8));
+			markDone(document.name);
+			processed.increment();
+			permits.release();
+		} catch (IOException e) {
+			fail(document.name, e, permits);
+		}
+	}
+
+	/**
+	 * @brief Añade un documento terminado al archivo de control.
+	 */
+	private synchronized void markDone(String name) throws IOException {
+		checkpoint.write(name);
+		checkpoint.write('\n');
+		if (++unflushed >= CHECKPOINT_FLUSH) {
+			checkpoint.flush();
+			unflushed = 0;
+		}
+	}
+
+	private void fail(String name, Exception e, Semaphore permits) {
+		failed.increment();
+		permits.release();
+		LOGGER.log(Level.WARNING, String.format("Error processing %s: %s", name, e));
+	}
+
+	/**
+	 * @brief Lee los documentos ya terminados en ejecuciones anteriores.
+	 */
+	private Set<String> loadCheckpoint() throws IOException {
+		Set<String> done = new HashSet<>();
+		if (Files.exists(checkpointFile)) {
+			try (Stream<String> lines = Files.lines(checkpointFile, StandardCharsets.UTF_8)) {
+				lines.filter(line -> !line.isEmpty()).forEach(done::add);
+			}
+		}
+		return done;
+	}
+
+	private void logProgress(long start) {
+		if (LOGGER.isLoggable(Level.INFO)) {
+			double seconds = Math.max(System.nanoTime() - start, 1L) / 1_000_000_000.0;
+			long count = processed.sum();
+			LOGGER.info(String.format("%d processed, %d skipped, %d failed in %.1f s: %.1f documents/s, %.2f MB/s",
+					count, skipped.sum(), failed.sum(), seconds, count / seconds,
+					bytesRead.sum() / 1_048_576.0 / seconds));
+		}
+	}
+}
@@ -0,0 +1,405 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import opennlp.tools.util.Span;
+
+/**
+ * @file BinaryResultSink.java
+ * @brief Escribe los resultados en un formato binario compacto, leído por BinaryResultSink.Reader.
+ *
+ * El archivo empieza con la marca "NLPR" y un byte de versión, seguidos de registros que
+ * empiezan por un byte de tipo:
+ *
+ *   - TAG: cadena. Añade una etiqueta al diccionario (la primera recibe el número 0).
+ *   - DOCUMENT: identificador y, si hay, categoría del documento.
+ *   - SENTENCE: byte con los campos presentes, número de tokens y, por este orden, posición
+ *     de la oración, tokens, posición de cada token (respecto al final del anterior),
+ *     etiquetas gramaticales, sus probabilidades, fragmentos, sus probabilidades y entidades.
+ *
+ * Los enteros se escriben como varint, las cadenas como longitud más bytes UTF-8 y las
+ * probabilidades en precisión simple. Las etiquetas gramaticales, de fragmento y de tipo de
+ * entidad se escriben como números del diccionario, que se amplía con un registro TAG la
+ * primera vez que aparece cada una. Cada oración se codifica en un búfer de bytes que se
+ * reutiliza y se escribe en el flujo de una sola vez.
+ */
+public class BinaryResultSink implements ResultSink {
+	/** Marca al principio del archivo: "NLPR". */
+	public static final int MAGIC = 0x4E4C5052;
+	/** Versión del formato. */
+	public static final int VERSION = 1;
+
+	private static final int TAG = 1;
+	private static final int DOCUMENT = 2;
+	private static final int SENTENCE = 3;
+
+	private static final int HAS_SPAN = 1;
+	private static final int HAS_TOKEN_SPANS = 1 << 1;
+	private static final int HAS_POS = 1 << 2;
+	private static final int HAS_POS_PROBS = 1 << 3;
+	private static final int HAS_CHUNKS = 1 << 4;
+	private static final int HAS_CHUNK_PROBS = 1 << 5;
+	private static final int HAS_NAMES = 1 << 6;
+
+	private final OutputStream out;
+	private final Map<String, Integer> tags = new HashMap<>();
+	private byte[] buffer = new byte[64 * 1024];
+	private int length;
+
+	/**
+	 * @brief Crea un destino binario y escribe la cabecera.
+	 *
+	 * @param out Flujo de salida; se cierra al cerrar el destino.
+	 */
+	public BinaryResultSink(OutputStream out) {
+		this.out = out;
+		writeInt(MAGIC);
+		writeByte(VERSION);
+	}
+
+	@Override
+	public void startDocument(String id, String category) throws IOException {
+		writeByte(DOCUMENT);
+		writeString(id);
+		writeByte(category != null ? 1 : 0);
+		if (category != null) {
+			writeString(category);
+		}
+		drainIfFull();
+	}
+
+	@Override
+	public void write(AnnotatedSentence sentence) throws IOException {
+		String[] tokens = sentence.getTokens();
+		Span[] tokenSpans = sentence.getTokenSpans();
+		String[] posTags = sentence.getPosTags();
+		double[] posProbs = sentence.getPosProbs();
+		String[] chunkTags = sentence.getChunkTags();
+		double[] chunkProbs = sentence.getChunkProbs();
+		Span[] names = sentence.getNames();
+
+		// Las etiquetas nuevas se añaden al diccionario antes del registro que las usa.
+		defineTags(posTags);
+		defineTags(chunkTags);
+		if (names != null) {
+			for (Span name : names) {
+				defineTag(name.getType());
+			}
+		}
+
+		int flags = (sentence.getSpan() != null ? HAS_SPAN : 0) | (tokenSpans != null ? HAS_TOKEN_SPANS : 0)
+				| (posTags != null ? HAS_POS : 0) | (posProbs != null ? HAS_POS_PROBS : 0)
+				| (chunkTags != null ? HAS_CHUNKS : 0) | (chunkProbs != null ? HAS_CHUNK_PROBS : 0)
+				| (names != null ? HAS_NAMES : 0);
+		writeByte(SENTENCE);
+		writeByte(flags);
+		writeVarint(tokens.length);
+
+		int previousEnd = 0;
+		if (sentence.getSpan() != null) {
+			previousEnd = sentence.getSpan().getStart();
+			writeVarint(previousEnd);
+			writeVarint(sentence.getSpan().length());
+		}
+		for (String token : tokens) {
+			writeString(token);
+		}
+		if (tokenSpans != null) {
+			for (Span span : tokenSpans) {
+				writeSignedVarint(span.getStart() - previousEnd);
+				writeVarint(span.length());
+				previousEnd = span.getEnd();
+			}
+		}
+		writeTags(posTags);
+		writeProbabilities(posProbs);
+		writeTags(chunkTags);
+		writeProbabilities(chunkProbs);
+		if (names != null) {
+			writeVarint(names.length);
+			for (Span name : names) {
+				writeVarint(name.getStart());
+				writeVarint(name.length());
+				writeVarint(tags.get(name.getType()));
+			}
+		}
+		drainIfFull();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void defineTags(String[] values) {
+		if (values != null) {
+			for (String value : values) {
+				defineTag(value);
+			}
+		}
+	}
+
+	private void defineTag(String value) {
+		if (!tags.containsKey(value)) {
+			tags.put(value, tags.size());
+			writeByte(TAG);
+			writeString(value);
+		}
+	}
+
+	private void writeTags(String[] values) {
+		if (values != null) {
+			for (String value : values) {
+				writeVarint(tags.get(value));
+			}
+		}
+	}
+
+	private void writeProbabilities(double[] values) {
+		if (values != null) {
+			for (double value : values) {
+				writeInt(Float.floatToIntBits((float) value));
+			}
+		}
+	}
+
+	/**
+	 * @brief Escribe el búfer en el flujo cuando supera la mitad de su capacidad inicial.
+	 */
+	private void drainIfFull() throws IOException {
+		if (length >= 32 * 1024) {
+			drain();
+		}
+	}
+
+	private void drain() throws IOException {
+		if (length > 0) {
+			out.write(buffer, 0, length);
+			length = 0;
+		}
+	}
+
+	private void ensure(int bytes) {
+		if (length + bytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+		}
+	}
+
+	private void writeByte(int value) {
+		ensure(1);
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeInt(int value) {
+		ensure(4);
+		buffer[length++] = (byte) (value >>> 24);
+		buffer[length++] = (byte) (value >>> 16);
+		buffer[length++] = (byte) (value >>> 8);
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeVarint(int value) {
+		ensure(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeSignedVarint(int value) {
+		writeVarint((value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * @brief Escribe la longitud en bytes y la cadena en UTF-8. Las cadenas ASCII, casi todos
+	 *        los tokens y etiquetas, se copian al búfer sin crear ningún array.
+	 */
+	private void writeString(String value) {
+		int chars = value.length();
+		boolean ascii = true;
+		for (int i = 0; i < chars && ascii; i++) {
+			ascii = value.charAt(i) < 0x80;
+		}
+		if (ascii) {
+			writeVarint(chars);
+			ensure(chars);
+			for (int i = 0; i < chars; i++) {
+				buffer[length++] = (byte) value.charAt(i);
+			}
+		} else {
+			byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(encoded.length);
+			ensure(encoded.length);
+			System.arraycopy(encoded, 0, buffer, length, encoded.length);
+			length += encoded.length;
+		}
+	}
+
+	/**
+	 * @brief Lee un archivo escrito por BinaryResultSink, oración a oración.
+	 */
+	public static class Reader implements Closeable {
+		private final DataInputStream in;
+		private final List<String> tags = new ArrayList<>();
+		private String documentId;
+		private String category;
+
+		/**
+		 * @brief Abre un flujo y comprueba la cabecera.
+		 *
+		 * @param in Flujo de entrada; se cierra al cerrar el lector.
+		 * @throws IOException Si el flujo no empieza con la cabecera del formato.
+		 */
+		public Reader(InputStream in) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+			int magic = this.in.readInt();
+			int version = this.in.readUnsignedByte();
+			if (magic != MAGIC || version != VERSION) {
+				throw new IOException("Not a binary result file (version " + VERSION + ")");
+			}
+		}
+
+		/**
+		 * @brief Lee la siguiente oración.
+		 *
+		 * @return La oración, o null al llegar al final del archivo.
+		 * @throws IOException En caso de errores de lectura o de formato.
+		 */
+		public AnnotatedSentence read() throws IOException {
+			while (true) {
+				int type = in.read();
+				switch (type) {
+					case -1:
+						return null;
+					case TAG:
+						tags.add(readString());
+						break;
+					case DOCUMENT:
+						documentId = readString();
+						category = in.readUnsignedByte() != 0 ? readString() : null;
+						break;
+					case SENTENCE:
+						return readSentence();
+					default:
+						throw new IOException("Unknown record type " + type);
+				}
+			}
+		}
+
+		/** @return Identificador del documento de la última oración leída, o null si no hay. */
+		public String getDocumentId() {
+			return documentId;
+		}
+
+		/** @return Categoría del documento de la última oración leída, o null si no hay. */
+		public String getCategory() {
+			return category;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		private AnnotatedSentence readSentence() throws IOException {
+			int flags = in.readUnsignedByte();
+			int count = readVarint();
+
+			Span span = null;
+			int previousEnd = 0;
+			if ((flags & HAS_SPAN) != 0) {
+				int start = readVarint();
+				span = new Span(start, start + readVarint());
+				previousEnd = start;
+			}
+			String[] tokens = new String[count];
+			for (int i = 0; i < count; i++) {
+				tokens[i] = readString();
+			}
+			Span[] tokenSpans = null;
+			if ((flags & HAS_TOKEN_SPANS) != 0) {
+				tokenSpans = new Span[count];
+				for (int i = 0; i < count; i++) {
+					int zigzag = readVarint();
+					int start = previousEnd + ((zigzag >>> 1) ^ -(zigzag & 1));
+					tokenSpans[i] = new Span(start, start + readVarint());
+					previousEnd = tokenSpans[i].getEnd();
+				}
+			}
+			String[] posTags = (flags & HAS_POS) != 0 ? readTags(count) : null;
+			double[] posProbs = (flags & HAS_POS_PROBS) != 0 ? readProbabilities(count) : null;
+			String[] chunkTags = (flags & HAS_CHUNKS) != 0 ? readTags(count) : null;
+			double[] chunkProbs = (flags & HAS_CHUNK_PROBS) != 0 ? readProbabilities(count) : null;
+			Span[] names = null;
+			if ((flags & HAS_NAMES) != 0) {
+				names = new Span[readVarint()];
+				for (int i = 0; i < names.length; i++) {
+					int start = readVarint();
+					int end = start + readVarint();
+					names[i] = new Span(start, end, tags.get(readVarint()));
+				}
+			}
+			return new AnnotatedSentence(span, tokenSpans, tokens, posTags, posProbs, chunkTags, chunkProbs, names);
+		}
+
+		private String[] readTags(int count) throws IOException {
+			String[] values = new String[count];
+			for (int i = 0; i < count; i++) {
+				values[i] = tags.get(readVarint());
+			}
+			return values;
+		}
+
+		private double[] readProbabilities(int count) throws IOException {
+			double[] values = new double[count];
+			for (int i = 0; i < count; i++) {
+				values[i] = in.readFloat();
+			}
+			return values;
+		}
+
+		private int readVarint() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = in.read();
+				if (b < 0) {
+					throw new EOFException("Truncated binary result file");
+				}
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed varint");
+		}
+
+		private String readString() throws IOException {
+			byte[] bytes = new byte[readVarint()];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
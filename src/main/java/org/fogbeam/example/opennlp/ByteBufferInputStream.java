@@ -0,0 +1,55 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * @file ByteBufferInputStream.java
+ * @brief Flujo de entrada que lee de un ByteBuffer, normalmente un fichero proyectado en memoria.
+ *
+ * Permite pasar un MappedByteBuffer a los constructores de modelos de OpenNLP, que solo
+ * aceptan un InputStream. Cada lectura es una copia de memoria, sin llamadas al sistema.
+ * No es seguro entre hilos.
+ */
+class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+
+	/**
+	 * @brief Crea un flujo sobre el contenido restante del búfer.
+	 *
+	 * @param buffer Búfer de origen. Se avanza su posición a medida que se lee.
+	 */
+	ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) {
+		int count = (int) Math.max(0L, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + count);
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
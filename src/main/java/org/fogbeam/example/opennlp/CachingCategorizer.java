@@ -0,0 +1,194 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.tokenize.WhitespaceTokenizer;
+
+/**
+ * @file CachingCategorizer.java
+ * @brief Clasificador de documentos con una caché LRU de resultados delante del modelo.
+ *
+ * Clasificar un texto obliga a generar sus características y evaluar el modelo entero,
+ * aunque el mismo texto se haya clasificado hace un momento, y en la práctica muchas
+ * consultas cortas se repiten. Esta clase guarda las probabilidades de cada texto ya
+ * clasificado en una ConcurrentLruCache, de modo que una consulta repetida no pasa por
+ * DocumentCategorizerME.
+ *
+ * La clave de la caché es la versión del modelo más el texto normalizado: se quitan los
+ * espacios de los extremos y cada secuencia de espacios se reduce a uno. Los tokenizadores
+ * dividen siempre por espacios, así que esta normalización no cambia el resultado; las
+ * mayúsculas y la puntuación sí se conservan porque forman parte de las características.
+ * Cambiar de modelo cambia la versión, y las entradas antiguas dejan de encontrarse y
+ * acaban desalojadas.
+ */
+public class CachingCategorizer {
+	/** Número de textos guardados por defecto. */
+	public static final int DEFAULT_CAPACITY = 10_000;
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private final MEPool<DoccatModel, DocumentCategorizerME> categorizers;
+	private final Function<String, String[]> tokenizer;
+	private final String modelVersion;
+	private final ConcurrentLruCache<String, Categorization> cache;
+	private final String[] categories;
+
+	/**
+	 * @brief Resultado de clasificar un texto; inmutable y compartido por todos los aciertos de la caché.
+	 */
+	public static final class Categorization {
+		private final String[] categories;
+		private final double[] probabilities;
+		private final int best;
+
+		Categorization(String[] categories, double[] probabilities) {
+			this.categories = categories;
+			this.probabilities = probabilities;
+			int best = 0;
+			for (int i = 1; i < probabilities.length; i++) {
+				if (probabilities[i] > probabilities[best]) {
+					best = i;
+				}
+			}
+			this.best = best;
+		}
+
+		/** @return Categoría más probable. */
+		public String getBestCategory() {
+			return categories[best];
+		}
+
+		/** @return Número de categorías del modelo. */
+		public int getCategoryCount() {
+			return categories.length;
+		}
+
+		/** @return Nombre de la categoría i. */
+		public String getCategory(int i) {
+			return categories[i];
+		}
+
+		/** @return Probabilidad de la categoría i. */
+		public double getProbability(int i) {
+			return probabilities[i];
+		}
+
+		/** @return Copia de las probabilidades, en el orden de las categorías del modelo. */
+		public double[] getProbabilities() {
+			return probabilities.clone();
+		}
+	}
+
+	/**
+	 * @brief Crea un clasificador que tokeniza por espacios, como DocumentCategorizerME.categorize(String).
+	 *
+	 * @param model Modelo de clasificación.
+	 * @param modelVersion Identificador de la versión del modelo, que forma parte de la clave.
+	 * @param capacity Número máximo de textos guardados.
+	 */
+	public CachingCategorizer(DoccatModel model, String modelVersion, int capacity) {
+		this(model, WhitespaceTokenizer.INSTANCE::tokenize, modelVersion, capacity);
+	}
+
+	/**
+	 * @brief Crea un clasificador con un tokenizador propio.
+	 *
+	 * @param model Modelo de clasificación.
+	 * @param tokenizer Función que divide el texto en tokens; debe poder llamarse desde varios hilos.
+	 * @param modelVersion Identificador de la versión del modelo, que forma parte de la clave.
+	 * @param capacity Número máximo de textos guardados.
+	 */
+	public CachingCategorizer(DoccatModel model, Function<String, String[]> tokenizer, String modelVersion,
+			int capacity) {
+		this.categorizers = MEPool.categorizers(model);
+		this.tokenizer = tokenizer;
+		this.modelVersion = modelVersion;
+		this.cache = new ConcurrentLruCache<>(capacity, CachingCategorizer::estimateBytes);
+
+		DocumentCategorizerME categorizer = categorizers.get();
+		this.categories = new String[categorizer.getNumberOfCategories()];
+		for (int i = 0; i < categories.length; i++) {
+			categories[i] = categorizer.getCategory(i);
+		}
+	}
+
+	/**
+	 * @brief Crea un clasificador con el modelo por defecto, obtenido del registro compartido.
+	 *
+	 * La versión del modelo se forma con la ruta, el tamaño y la fecha de modificación del fichero.
+	 *
+	 * @param capacity Número máximo de textos guardados.
+	 * @return Clasificador listo para usar.
+	 * @throws IOException Si el modelo no se puede cargar.
+	 */
+	public static CachingCategorizer fromRegistry(int capacity) throws IOException {
+		DoccatModel model = ModelRegistry.getInstance().get(Pipeline.DOCCAT_MODEL, DoccatModel.class);
+		return new CachingCategorizer(model, fileVersion(Pipeline.DOCCAT_MODEL), capacity);
+	}
+
+	/**
+	 * @brief Identificador de versión de un fichero de modelo: ruta, tamaño y fecha de modificación.
+	 *
+	 * @param path Ruta del fichero.
+	 * @return Identificador que cambia cuando se reescribe el fichero.
+	 */
+	public static String fileVersion(String path) {
+		File file = new File(path);
+		return path + '@' + file.length() + '@' + file.lastModified();
+	}
+
+	/**
+	 * @brief Clasifica un texto, usando el resultado guardado si el texto ya se clasificó.
+	 *
+	 * @param text Texto a clasificar.
+	 * @return Probabilidades de cada categoría y la categoría más probable.
+	 */
+	public Categorization categorize(String text) {
+		String normalized = normalize(text);
+		return cache.get(modelVersion + '\n' + normalized, key -> {
+			String[] tokens = tokenizer.apply(normalized);
+			// Solo los fallos de la caché llegan al modelo: los aciertos no cuentan como llamadas.
+			long start = System.nanoTime();
+			double[] probs = categorizers.get().categorize(tokens);
+			StageMetrics.CATEGORIZE.record(start, 0, tokens.length);
+			return new Categorization(categories, probs);
+		});
+	}
+
+	/**
+	 * @brief Atajo para obtener solo la categoría más probable de un texto.
+	 *
+	 * @param text Texto a clasificar.
+	 * @return Categoría más probable.
+	 */
+	public String getBestCategory(String text) {
+		return categorize(text).getBestCategory();
+	}
+
+	/** @return Caché de resultados, para consultar sus métricas. */
+	public ConcurrentLruCache<String, Categorization> getCache() {
+		return cache;
+	}
+
+	/** @return Versión del modelo usada en las claves. */
+	public String getModelVersion() {
+		return modelVersion;
+	}
+
+	static String normalize(String text) {
+		return WHITESPACE.matcher(text.trim()).replaceAll(" ");
+	}
+
+	/**
+	 * @brief Memoria aproximada de una entrada: clave (String y su array de bytes), valor
+	 *        (objeto y array de probabilidades) y nodo del LinkedHashMap.
+	 */
+	private static long estimateBytes(String key, Categorization value) {
+		return 40 + 2L * key.length() + 32 + 16 + 8L * value.probabilities.length + 64;
+	}
+}
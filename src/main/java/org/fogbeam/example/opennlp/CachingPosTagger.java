@@ -0,0 +1,260 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import opennlp.model.AbstractModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+
+/**
+ * @file CachingPosTagger.java
+ * @brief Etiquetador gramatical que memoriza las etiquetas y probabilidades de cada oración.
+ *
+ * POSTaggerME.tag hace una búsqueda en haz completa por oración, aunque la oración se haya
+ * etiquetado ya en otro documento (cabeceras, avisos legales, frases hechas...). Esta clase
+ * guarda el resultado de cada oración, indexado por su array de tokens, y lo devuelve sin
+ * volver a pasar por el modelo.
+ *
+ * La clave se calcula recorriendo los caracteres de los tokens, sin construir ninguna cadena
+ * intermedia: son dos hashes de 64 bits independientes (128 bits en total), uno para elegir
+ * la posición en la caché y otro para confirmar que la entrada encontrada es la buscada. Los
+ * tokens originales no se guardan.
+ *
+ * Hay dos formas de guardar los resultados (ver Mode):
+ *   - ON_HEAP: una ConcurrentLruCache limitada en número de oraciones.
+ *   - OFF_HEAP: una tabla en memoria directa (ver OffHeapTagTable) limitada en bytes, que el
+ *     recolector de basura no recorre; las etiquetas se guardan como índices de 16 bits.
+ */
+public class CachingPosTagger {
+	/** Número de oraciones guardadas por defecto en el modo ON_HEAP. */
+	public static final int DEFAULT_ENTRIES = 50_000;
+	/** Memoria reservada por defecto en el modo OFF_HEAP. */
+	public static final long DEFAULT_OFF_HEAP_BYTES = 64L * 1024 * 1024;
+	/** Longitud máxima, en tokens, de las oraciones guardadas en el modo OFF_HEAP. */
+	public static final int DEFAULT_MAX_TOKENS = 64;
+
+	/**
+	 * @brief Dónde se guardan los resultados.
+	 */
+	public enum Mode {
+		/** En el heap, con desalojo LRU por número de oraciones. */
+		ON_HEAP,
+		/** En memoria directa, con tamaño fijo en bytes. */
+		OFF_HEAP
+	}
+
+	private final MEPool<POSModel, POSTaggerME> taggers;
+	private final Mode mode;
+	private final ConcurrentLruCache<TokenKey, Tagging> heap;
+	private final OffHeapTagTable offHeap;
+	private final String[] tagNames;
+	private final Map<String, Integer> tagIndexes = new HashMap<>();
+
+	/**
+	 * @brief Etiquetas y probabilidades de una oración.
+	 */
+	public static final class Tagging {
+		private final String[] tags;
+		private final double[] probs;
+
+		Tagging(String[] tags, double[] probs) {
+			this.tags = tags;
+			this.probs = probs;
+		}
+
+		/** @return Etiqueta de cada token (copia). */
+		public String[] getTags() {
+			return tags.clone();
+		}
+
+		/** @return Probabilidad de cada etiqueta (copia). */
+		public double[] getProbs() {
+			return probs.clone();
+		}
+	}
+
+	/**
+	 * @brief Clave de una oración: los dos hashes de 64 bits de sus tokens.
+	 */
+	private static final class TokenKey {
+		private final long hash;
+		private final long check;
+
+		TokenKey(long hash, long check) {
+			this.hash = hash;
+			this.check = check;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof TokenKey && ((TokenKey) other).hash == hash && ((TokenKey) other).check == check;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(hash);
+		}
+	}
+
+	/**
+	 * @brief Crea un etiquetador con los límites por defecto del modo elegido.
+	 *
+	 * @param model Modelo de etiquetado gramatical.
+	 * @param mode Dónde guardar los resultados.
+	 */
+	public CachingPosTagger(POSModel model, Mode mode) {
+		this(model, mode, mode == Mode.ON_HEAP ? DEFAULT_ENTRIES : DEFAULT_OFF_HEAP_BYTES, DEFAULT_MAX_TOKENS);
+	}
+
+	/**
+	 * @brief Crea un etiquetador.
+	 *
+	 * @param model Modelo de etiquetado gramatical.
+	 * @param mode Dónde guardar los resultados.
+	 * @param limit Límite de la caché: oraciones en ON_HEAP, bytes en OFF_HEAP.
+	 * @param maxTokens Longitud máxima de las oraciones guardadas en OFF_HEAP; las más largas
+	 *                  se etiquetan siempre con el modelo. No se usa en ON_HEAP.
+	 */
+	public CachingPosTagger(POSModel model, Mode mode, long limit, int maxTokens) {
+		this.taggers = MEPool.taggers(model);
+		this.mode = mode;
+
+		AbstractModel posModel = model.getPosModel();
+		this.tagNames = new String[posModel.getNumOutcomes()];
+		for (int i = 0; i < tagNames.length; i++) {
+			tagNames[i] = posModel.getOutcome(i);
+			tagIndexes.put(tagNames[i], i);
+		}
+
+		if (mode == Mode.ON_HEAP) {
+			this.heap = new ConcurrentLruCache<>((int) Math.min(limit, Integer.MAX_VALUE),
+					CachingPosTagger::estimateBytes);
+			this.offHeap = null;
+		} else {
+			this.heap = null;
+			this.offHeap = new OffHeapTagTable(limit, maxTokens);
+		}
+	}
+
+	/**
+	 * @brief Etiqueta una oración, usando el resultado guardado si ya se etiquetó.
+	 *
+	 * @param tokens Tokens de la oración.
+	 * @return Etiquetas y probabilidades de cada token.
+	 */
+	public Tagging tag(String[] tokens) {
+		if (tokens.length == 0) {
+			return new Tagging(new String[0], new double[0]);
+		}
+		long hash = hash(tokens, 0xcbf29ce484222325L, 0x100000001b3L);
+		long check = hash(tokens, 0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL);
+
+		if (mode == Mode.ON_HEAP) {
+			TokenKey key = new TokenKey(hash, check);
+			return heap.get(key, k -> tagWithModel(tokens));
+		}
+
+		Tagging cached = offHeap.get(hash, check, tokens.length, tagNames);
+		if (cached != null) {
+			return cached;
+		}
+		Tagging tagging = tagWithModel(tokens);
+		short[] indexes = tagIndexes(tagging.tags);
+		if (indexes != null) {
+			offHeap.put(hash, check, indexes, tagging.probs);
+		}
+		return tagging;
+	}
+
+	private Tagging tagWithModel(String[] tokens) {
+		long start = System.nanoTime();
+		POSTaggerME tagger = taggers.get();
+		String[] tags = tagger.tag(tokens);
+		Tagging tagging = new Tagging(tags, tagger.probs());
+		StageMetrics.TAG.record(start, 1, tokens.length);
+		return tagging;
+	}
+
+	/**
+	 * @brief Índices de las etiquetas en el modelo, o null si alguna no está entre sus resultados.
+	 */
+	private short[] tagIndexes(String[] tags) {
+		short[] indexes = new short[tags.length];
+		for (int i = 0; i < tags.length; i++) {
+			Integer index = tagIndexes.get(tags[i]);
+			if (index == null || index > Short.MAX_VALUE) {
+				return null;
+			}
+			indexes[i] = index.shortValue();
+		}
+		return indexes;
+	}
+
+	/**
+	 * @brief Hash de 64 bits de un array de tokens, carácter a carácter (estilo FNV-1a).
+	 *
+	 * La longitud de cada token se mezcla al terminarlo, de modo que ["ab", "c"] y ["a", "bc"]
+	 * dan hashes distintos. El resultado pasa por el mezclador final de MurmurHash3.
+	 */
+	static long hash(String[] tokens, long seed, long multiplier) {
+		long h = seed;
+		for (String token : tokens) {
+			for (int i = 0; i < token.length(); i++) {
+				h = (h ^ token.charAt(i)) * multiplier;
+			}
+			h = (h ^ (token.length() | 0x10000L)) * multiplier;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		return h ^ (h >>> 33);
+	}
+
+	/**
+	 * @brief Memoria aproximada de una entrada en el heap: clave, arrays de etiquetas (las cadenas
+	 *        son las del modelo, compartidas) y probabilidades, y nodo del LinkedHashMap.
+	 */
+	private static long estimateBytes(TokenKey key, Tagging value) {
+		return 32 + 16 + 4L * value.tags.length + 16 + 8L * value.probs.length + 16 + 64;
+	}
+
+	/** @return Modo de la caché. */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/** @return Oraciones encontradas en la caché. */
+	public long getHits() {
+		return mode == Mode.ON_HEAP ? heap.getHits() : offHeap.getHits();
+	}
+
+	/** @return Oraciones que hubo que etiquetar con el modelo. */
+	public long getMisses() {
+		return mode == Mode.ON_HEAP ? heap.getMisses() : offHeap.getMisses();
+	}
+
+	/** @return Fracción de oraciones encontradas en la caché, entre 0 y 1. */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/** @return Entradas desalojadas o sobrescritas por falta de espacio. */
+	public long getEvictions() {
+		return mode == Mode.ON_HEAP ? heap.getEvictions() : offHeap.getEvictions();
+	}
+
+	/** @return Memoria de la caché en bytes: estimada en el heap, reservada fuera de él. */
+	public long getMemoryBytes() {
+		return mode == Mode.ON_HEAP ? heap.getEstimatedBytes() : offHeap.getCapacityBytes();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s hits=%d misses=%d hitRate=%.1f%% evictions=%d memory=%.1f KB", mode, getHits(),
+				getMisses(), getHitRate() * 100, getEvictions(), getMemoryBytes() / 1024.0);
+	}
+}
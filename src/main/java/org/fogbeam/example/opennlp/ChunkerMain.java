@@ -1,8 +1,6 @@
 package org.fogbeam.example.opennlp;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 
 import opennlp.tools.chunker.ChunkerME;
 import opennlp.tools.chunker.ChunkerModel;
@@ -10,13 +8,18 @@ import opennlp.tools.chunker.ChunkerModel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+// Ejemplo de uso: java ChunkerMain [-format conll|jsonl|binary|corpus] [-out archivo]
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.ChunkerMain" -Dexec.args="-format jsonl"
+
 /**
  * @file ChunkerMain.java
  * @brief Programa principal para realizar el análisis de fragmentos gramaticales (chunks) en una oración.
  *
  * Este programa utiliza OpenNLP para cargar un modelo de fragmentación,
  * procesar una oración tokenizada con etiquetas POS y determinar las
- * estructuras gramaticales, como frases nominales y verbales.
+ * estructuras gramaticales, como frases nominales y verbales. El resultado se escribe
+ * con un ResultSink en el formato elegido (CoNLL por defecto), en la salida estándar o
+ * en un archivo.
  */
 public class ChunkerMain {
 	// Logger para el registro de mensajes
@@ -28,17 +31,26 @@ public class ChunkerMain {
 	 * Este metodo carga un modelo de fragmentación, procesa una oración tokenizada y etiquetada
 	 * gramaticalmente (POS tags) y genera etiquetas de fragmentos (chunk tags) para cada token.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados en este programa).
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -format conll|jsonl|binary|corpus, formato de salida (conll por defecto).
+	 *             - Opcional: -out archivo, archivo de salida (salida estándar por defecto).
 	 * @throws Exception En caso de que ocurra un error inesperado.
 	 */
 	public static void main( String[] args ) throws Exception {
-		InputStream modelIn = null;  /**< Flujo de entrada para cargar el modelo de fragmentación. */
-		ChunkerModel model = null;  /**< Modelo de fragmentación cargado desde el archivo. */
+		ResultSink.Format format = ResultSink.Format.CONLL;
+		String outputFileName = null;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if ("-format".equals(args[i])) {
+				format = ResultSink.Format.fromName(args[i + 1]);
+			} else if ("-out".equals(args[i])) {
+				outputFileName = args[i + 1];
+			}
+		}
+		MetricsReporter metrics = MetricsReporter.install();
 
 		try {
-			// Carga el modelo preentrenado de fragmentación desde un archivo.
-			modelIn = new FileInputStream("models/en-chunker.model");
-			model = new ChunkerModel(modelIn);
+			// Obtiene el modelo preentrenado de fragmentación del registro compartido.
+			ChunkerModel model = ModelRegistry.getInstance().get(Pipeline.CHUNKER_MODEL, ChunkerModel.class);
 
 			// Inicializa el motor de fragmentación con el modelo cargado.
 			ChunkerME chunker = new ChunkerME(model);
@@ -62,8 +74,10 @@ public class ChunkerMain {
 			};
 
 			// Realiza el análisis de fragmentos.
+			long start = System.nanoTime();
 			String[] tag = chunker.chunk(sent, pos);  /**< Etiquetas de fragmentos generadas para los tokens. */
 			double[] probs = chunker.probs();        /**< Probabilidades asociadas a las etiquetas. */
+			StageMetrics.CHUNK.record(start, 1, sent.length);
 
 			/**
 			 * Los fragmentos generados contienen etiquetas que representan el tipo de estructura gramatical.
@@ -73,27 +87,17 @@ public class ChunkerMain {
 			 * - I-VP: Continuación de una frase verbal.
 			 */
 
-			// Imprime los resultados del análisis para cada token.
-			for (int i = 0; i < sent.length; i++) {
-				LOGGER.log(Level.INFO, "Token [{0}] has chunk tag [{1}] with probability = {2}", new Object[]{sent[i], tag[i], probs[i]});
+			// Escribe los resultados del análisis en el formato elegido.
+			try (ResultSink sink = ResultSink.open(format, outputFileName)) {
+				sink.write(new AnnotatedSentence(null, null, sent, pos, null, tag, probs, null));
 			}
 		} catch( IOException e ) {
 			// En desarrollo: registrar detalles del error para depuración
-			LOGGER.log(Level.SEVERE, "Error loading the model: {0}", e.getMessage());
-		} finally {
-			// Cierra el flujo de entrada del modelo si está abierto.
-			if (modelIn != null) {
-				try
-				{
-					modelIn.close();
-				}
-				catch(IOException e) {
-					LOGGER.log(Level.WARNING, "Error closing the model input stream: {0}", e.getMessage());
-				}
-			}
+			LOGGER.log(Level.SEVERE, "Error loading the model or writing the results: {0}", e.getMessage());
 		}
 
-		// Indica que el programa ha finalizado.
+		// Indica que el programa ha finalizado, con las métricas de la fragmentación.
+		metrics.report();
 		LOGGER.log(Level.INFO, "done");
 	}
 }
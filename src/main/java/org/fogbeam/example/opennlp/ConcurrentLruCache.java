@@ -0,0 +1,226 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * @file ConcurrentLruCache.java
+ * @brief Caché acotada LRU, segura entre hilos, con métricas de aciertos, desalojos y memoria.
+ *
+ * Las entradas se reparten por hash entre varios segmentos, cada uno con su propio
+ * LinkedHashMap en orden de acceso y su propio cerrojo, así que los hilos solo compiten
+ * cuando consultan claves del mismo segmento. Cada segmento desaloja su entrada menos
+ * usada al superar su parte de la capacidad, de modo que el LRU es aproximado a nivel
+ * global pero exacto dentro de cada segmento.
+ *
+ * El valor de una clave ausente se calcula fuera del cerrojo: dos hilos pueden calcular a
+ * la vez la misma clave (y uno de los resultados se descarta), pero una inferencia lenta
+ * nunca bloquea las consultas del resto del segmento.
+ *
+ * La memoria ocupada se estima con una función de peso por entrada que da quien crea la
+ * caché; no es una medida exacta del heap, sino una cota para dimensionar la capacidad.
+ *
+ * @param <K> Tipo de las claves.
+ * @param <V> Tipo de los valores.
+ */
+public final class ConcurrentLruCache<K, V> {
+	private final Segment<K, V>[] segments;
+	private final int capacity;
+	private final ToLongBiFunction<? super K, ? super V> weigher;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder weight = new LongAdder();
+
+	/**
+	 * @brief Segmento de la caché: un LinkedHashMap en orden de acceso protegido por su monitor.
+	 */
+	private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private final transient ConcurrentLruCache<K, V> owner;
+		private final int capacity;
+
+		Segment(ConcurrentLruCache<K, V> owner, int capacity) {
+			super(16, 0.75f, true);
+			this.owner = owner;
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if (size() <= capacity) {
+				return false;
+			}
+			owner.evictions.increment();
+			owner.weight.add(-owner.weigher.applyAsLong(eldest.getKey(), eldest.getValue()));
+			return true;
+		}
+	}
+
+	/**
+	 * @brief Crea una caché con un segmento por cada dos procesadores (redondeado a potencia de dos).
+	 *
+	 * @param capacity Número máximo de entradas.
+	 * @param weigher Estimación, en bytes, de lo que ocupa cada entrada.
+	 */
+	public ConcurrentLruCache(int capacity, ToLongBiFunction<? super K, ? super V> weigher) {
+		this(capacity, Runtime.getRuntime().availableProcessors() * 2, weigher);
+	}
+
+	/**
+	 * @brief Crea una caché.
+	 *
+	 * @param capacity Número máximo de entradas (al menos 1).
+	 * @param concurrency Número aproximado de hilos que la usarán a la vez; se redondea a la
+	 *                    potencia de dos siguiente y nunca supera la capacidad.
+	 * @param weigher Estimación, en bytes, de lo que ocupa cada entrada.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentLruCache(int capacity, int concurrency, ToLongBiFunction<? super K, ? super V> weigher) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("La capacidad debe ser mayor que cero: " + capacity);
+		}
+		this.capacity = capacity;
+		this.weigher = Objects.requireNonNull(weigher, "weigher");
+
+		int wanted = Math.max(1, Math.min(concurrency, capacity));
+		int count = 1;
+		while (count < wanted) {
+			count <<= 1;
+		}
+		if (count > capacity) {
+			count >>>= 1;
+		}
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			// Reparte el resto de la división entre los primeros segmentos.
+			segments[i] = new Segment<>(this, capacity / count + (i < capacity % count ? 1 : 0));
+		}
+	}
+
+	/**
+	 * @brief Devuelve el valor de una clave, calculándolo y guardándolo si no está en la caché.
+	 *
+	 * @param key Clave buscada.
+	 * @param loader Función que calcula el valor si falta; no debe devolver null.
+	 * @return Valor guardado o recién calculado.
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		V value = getIfPresent(key);
+		if (value != null) {
+			return value;
+		}
+		value = Objects.requireNonNull(loader.apply(key), "loader devolvió null");
+		put(key, value);
+		return value;
+	}
+
+	/**
+	 * @brief Devuelve el valor de una clave y lo marca como usado, sin calcularlo si falta.
+	 *
+	 * @param key Clave buscada.
+	 * @return Valor guardado, o null si no está en la caché.
+	 */
+	public V getIfPresent(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		(value == null ? misses : hits).increment();
+		return value;
+	}
+
+	/**
+	 * @brief Guarda un valor, desalojando la entrada menos usada del segmento si está lleno.
+	 *
+	 * @param key Clave.
+	 * @param value Valor (no nulo).
+	 */
+	public void put(K key, V value) {
+		Objects.requireNonNull(value, "value");
+		Segment<K, V> segment = segmentFor(key);
+		long added = weigher.applyAsLong(key, value);
+		V previous;
+		synchronized (segment) {
+			previous = segment.put(key, value);
+			weight.add(previous == null ? added : added - weigher.applyAsLong(key, previous));
+		}
+	}
+
+	/**
+	 * @brief Vacía la caché; las métricas de aciertos, fallos y desalojos se conservan.
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				for (Map.Entry<K, V> entry : segment.entrySet()) {
+					weight.add(-weigher.applyAsLong(entry.getKey(), entry.getValue()));
+				}
+				segment.clear();
+			}
+		}
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		return segments[h & (segments.length - 1)];
+	}
+
+	/** @return Número máximo de entradas. */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/** @return Número de entradas guardadas. */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/** @return Consultas que encontraron la clave. */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/** @return Consultas que no encontraron la clave. */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/** @return Fracción de consultas que encontraron la clave, entre 0 y 1. */
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/** @return Entradas desalojadas por falta de capacidad. */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/** @return Memoria estimada de las entradas guardadas, en bytes. */
+	public long getEstimatedBytes() {
+		return weight.sum();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("size=%d/%d hits=%d misses=%d hitRate=%.1f%% evictions=%d memory=%.1f KB",
+				size(), capacity, getHits(), getMisses(), getHitRate() * 100, getEvictions(),
+				getEstimatedBytes() / 1024.0);
+	}
+}
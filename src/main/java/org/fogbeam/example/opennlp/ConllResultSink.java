@@ -0,0 +1,127 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import opennlp.tools.util.Span;
+
+/**
+ * @file ConllResultSink.java
+ * @brief Escribe los resultados en formato tabular de tipo CoNLL, un token por línea.
+ *
+ * Cada documento empieza con líneas de comentario (#) con su identificador y su categoría.
+ * Cada token ocupa una línea con las columnas: token, inicio, fin, etiqueta gramatical,
+ * fragmento y entidad (en formato BIO) y, si se piden, la probabilidad de la etiqueta
+ * gramatical y la del fragmento (con seis decimales). Las columnas de etapas que no se
+ * ejecutaron llevan "_". Las oraciones se separan con una línea en blanco.
+ *
+ * Es el formato que escribe PipelineMain (sin las columnas de probabilidad).
+ */
+public class ConllResultSink implements ResultSink {
+	/** Valor de una columna vacía. */
+	private static final String EMPTY = "_";
+	/** Decimales de las probabilidades. */
+	static final int PROBABILITY_DECIMALS = 6;
+
+	private final Writer writer;
+	private final boolean probabilities;
+	private final StringBuilder line = new StringBuilder(4096);
+
+	/**
+	 * @brief Crea un destino en UTF-8 sobre un flujo, con las columnas de probabilidad.
+	 *
+	 * @param out Flujo de salida; se cierra al cerrar el destino.
+	 */
+	public ConllResultSink(OutputStream out) {
+		this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024), true);
+	}
+
+	/**
+	 * @brief Crea un destino sobre un Writer.
+	 *
+	 * @param writer Destino del texto; se cierra al cerrar el destino.
+	 * @param probabilities true para añadir las columnas de probabilidad.
+	 */
+	public ConllResultSink(Writer writer, boolean probabilities) {
+		this.writer = writer;
+		this.probabilities = probabilities;
+	}
+
+	@Override
+	public void startDocument(String id, String category) throws IOException {
+		line.setLength(0);
+		line.append("# id = ").append(id).append('\n');
+		if (category != null) {
+			line.append("# category = ").append(category).append('\n');
+		}
+		writer.append(line);
+	}
+
+	@Override
+	public void write(AnnotatedSentence sentence) throws IOException {
+		String[] tokens = sentence.getTokens();
+		Span[] tokenSpans = sentence.getTokenSpans();
+		String[] posTags = sentence.getPosTags();
+		String[] chunkTags = sentence.getChunkTags();
+		Span[] names = sentence.getNames();
+		int name = 0;
+
+		line.setLength(0);
+		for (int i = 0; i < tokens.length; i++) {
+			line.append(tokens[i]).append('\t');
+			if (tokenSpans != null) {
+				line.append(tokenSpans[i].getStart()).append('\t').append(tokenSpans[i].getEnd()).append('\t');
+			} else {
+				line.append(EMPTY).append('\t').append(EMPTY).append('\t');
+			}
+			line.append(posTags != null ? posTags[i] : EMPTY).append('\t');
+			line.append(chunkTags != null ? chunkTags[i] : EMPTY).append('\t');
+
+			// Etiqueta BIO de la entidad, sin construir el array de getNameTags().
+			if (names == null) {
+				line.append(EMPTY);
+			} else {
+				while (name < names.length && names[name].getEnd() <= i) {
+					name++;
+				}
+				if (name < names.length && names[name].getStart() <= i) {
+					line.append(names[name].getStart() == i ? "B-" : "I-").append(names[name].getType());
+				} else {
+					line.append('O');
+				}
+			}
+
+			if (probabilities) {
+				line.append('\t');
+				appendProbability(sentence.getPosProbs(), i);
+				line.append('\t');
+				appendProbability(sentence.getChunkProbs(), i);
+			}
+			line.append('\n');
+		}
+		line.append('\n');
+		writer.append(line);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	private void appendProbability(double[] probs, int index) {
+		if (probs != null) {
+			Json.decimal(line, probs[index], PROBABILITY_DECIMALS);
+		} else {
+			line.append(EMPTY);
+		}
+	}
+}
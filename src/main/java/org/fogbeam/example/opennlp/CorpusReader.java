@@ -0,0 +1,371 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import opennlp.tools.util.Span;
+
+/**
+ * @file CorpusReader.java
+ * @brief Acceso aleatorio a un corpus escrito por CorpusWriter, proyectado en memoria.
+ *
+ * Al abrir el archivo solo se leen el pie (diccionarios y posición de cada bloque) y las
+ * cabeceras de los bloques; cada bloque se proyecta en memoria con FileChannel.map() por
+ * separado, de modo que el corpus puede superar los 2 GB. Leer una oración consiste en
+ * buscar su bloque y leer sus posiciones en los arrays del bloque: no se recorre ni se
+ * convierte nada más. Los métodos que devuelven un solo dato (getTokenCount(), getToken()...)
+ * no crean la oración completa.
+ *
+ * Los bloques se leen con accesos absolutos, así que un mismo lector puede usarse desde
+ * varios hilos. Tras close() no debe usarse.
+ */
+public final class CorpusReader implements Closeable {
+	private final FileChannel channel;
+	private final Block[] blocks;
+	/** Primera oración de cada bloque, para la búsqueda binaria. */
+	private final long[] firstSentence;
+	private final long sentenceCount;
+	private final String[] posTags;
+	private final String[] chunkTags;
+	private final String[] nameTypes;
+	private final String[] documentIds;
+	private final String[] documentCategories;
+
+	/**
+	 * @brief Bloque proyectado en memoria, con la posición de cada uno de sus arrays.
+	 */
+	private static final class Block {
+		private final ByteBuffer data;
+		private final int sentences;
+		private final int tokenIndex;
+		private final int nameIndex;
+		private final int documents;
+		private final int sentenceStarts;
+		private final int sentenceEnds;
+		private final int flags;
+		private final int tokenStarts;
+		private final int tokenEnds;
+		private final int textOffsets;
+		private final int pos;
+		private final int chunks;
+		private final int nameStarts;
+		private final int nameEnds;
+		private final int nameTypes;
+		private final int text;
+
+		Block(ByteBuffer data) {
+			this.data = data;
+			this.sentences = data.getInt(0);
+			int tokens = data.getInt(4);
+			int names = data.getInt(8);
+			this.tokenIndex = 16;
+			this.nameIndex = tokenIndex + 4 * (sentences + 1);
+			this.documents = nameIndex + 4 * (sentences + 1);
+			this.sentenceStarts = documents + 4 * sentences;
+			this.sentenceEnds = sentenceStarts + 4 * sentences;
+			this.flags = sentenceEnds + 4 * sentences;
+			this.tokenStarts = flags + CorpusWriter.padded(sentences);
+			this.tokenEnds = tokenStarts + 4 * tokens;
+			this.textOffsets = tokenEnds + 4 * tokens;
+			this.pos = textOffsets + 4 * (tokens + 1);
+			this.chunks = pos + CorpusWriter.padded(tokens);
+			this.nameStarts = chunks + CorpusWriter.padded(tokens);
+			this.nameEnds = nameStarts + 4 * names;
+			this.nameTypes = nameEnds + 4 * names;
+			this.text = nameTypes + CorpusWriter.padded(names);
+		}
+
+		int intAt(int array, int index) {
+			return data.getInt(array + 4 * index);
+		}
+
+		int byteAt(int array, int index) {
+			return data.get(array + index) & 0xFF;
+		}
+	}
+
+	/**
+	 * @brief Abre un corpus y proyecta sus bloques en memoria.
+	 *
+	 * @param path Archivo escrito por CorpusWriter.
+	 * @throws IOException Si el archivo no se puede leer o no tiene el formato esperado.
+	 */
+	public CorpusReader(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < 20) {
+				throw new IOException(path + " is not a corpus file");
+			}
+			ByteBuffer header = read(0, 8);
+			ByteBuffer trailer = read(size - 12, 12);
+			if (header.getInt(0) != CorpusWriter.MAGIC || trailer.getInt(8) != CorpusWriter.MAGIC) {
+				throw new IOException(path + " is not a corpus file");
+			}
+			if (header.getInt(4) != CorpusWriter.VERSION) {
+				throw new IOException(path + " has unsupported corpus version " + header.getInt(4));
+			}
+
+			long footerOffset = trailer.getLong(0);
+			ByteBuffer footer = read(footerOffset, (int) (size - 12 - footerOffset));
+			int blockCount = footer.getInt();
+			long[] blockOffsets = new long[blockCount + 1];
+			int[] blockSentences = new int[blockCount];
+			for (int i = 0; i < blockCount; i++) {
+				blockOffsets[i] = footer.getLong();
+				blockSentences[i] = footer.getInt();
+			}
+			blockOffsets[blockCount] = footerOffset;
+			this.posTags = readStrings(footer);
+			this.chunkTags = readStrings(footer);
+			this.nameTypes = readStrings(footer);
+			int documentCount = footer.getInt();
+			this.documentIds = new String[documentCount];
+			this.documentCategories = new String[documentCount];
+			for (int i = 0; i < documentCount; i++) {
+				documentIds[i] = readString(footer);
+				documentCategories[i] = readString(footer);
+			}
+
+			this.blocks = new Block[blockCount];
+			this.firstSentence = new long[blockCount];
+			long sentences = 0;
+			for (int i = 0; i < blockCount; i++) {
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, blockOffsets[i],
+						blockOffsets[i + 1] - blockOffsets[i]);
+				blocks[i] = new Block(mapped.order(ByteOrder.LITTLE_ENDIAN));
+				if (blocks[i].sentences != blockSentences[i]) {
+					throw new IOException(path + " is corrupt: block " + i + " has " + blocks[i].sentences
+							+ " sentences, expected " + blockSentences[i]);
+				}
+				firstSentence[i] = sentences;
+				sentences += blockSentences[i];
+			}
+			this.sentenceCount = sentences;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/** @return Número de oraciones del corpus. */
+	public long size() {
+		return sentenceCount;
+	}
+
+	/** @return Etiquetas gramaticales del diccionario del corpus. */
+	public List<String> getPosTagDictionary() {
+		return Collections.unmodifiableList(Arrays.asList(posTags));
+	}
+
+	/** @return Etiquetas de fragmento del diccionario del corpus. */
+	public List<String> getChunkTagDictionary() {
+		return Collections.unmodifiableList(Arrays.asList(chunkTags));
+	}
+
+	/**
+	 * @param sentence Índice de la oración.
+	 * @return Número de tokens de la oración.
+	 */
+	public int getTokenCount(long sentence) {
+		int b = blockOf(sentence);
+		int local = (int) (sentence - firstSentence[b]);
+		return blocks[b].intAt(blocks[b].tokenIndex, local + 1) - blocks[b].intAt(blocks[b].tokenIndex, local);
+	}
+
+	/**
+	 * @param sentence Índice de la oración.
+	 * @param token Índice del token dentro de la oración.
+	 * @return Texto del token.
+	 */
+	public String getToken(long sentence, int token) {
+		int b = blockOf(sentence);
+		return tokenText(blocks[b], tokenAt(b, sentence, token));
+	}
+
+	/**
+	 * @param sentence Índice de la oración.
+	 * @param token Índice del token dentro de la oración.
+	 * @return Etiqueta gramatical del token, o null si no se calculó.
+	 */
+	public String getPosTag(long sentence, int token) {
+		int b = blockOf(sentence);
+		return tag(posTags, blocks[b].byteAt(blocks[b].pos, tokenAt(b, sentence, token)));
+	}
+
+	/**
+	 * @param sentence Índice de la oración.
+	 * @param token Índice del token dentro de la oración.
+	 * @return Etiqueta de fragmento del token, o null si no se calculó.
+	 */
+	public String getChunkTag(long sentence, int token) {
+		int b = blockOf(sentence);
+		return tag(chunkTags, blocks[b].byteAt(blocks[b].chunks, tokenAt(b, sentence, token)));
+	}
+
+	/**
+	 * @param sentence Índice de la oración.
+	 * @return Identificador del documento de la oración, o null si no pertenece a ninguno.
+	 */
+	public String getDocumentId(long sentence) {
+		int document = document(sentence);
+		return document != CorpusWriter.MISSING ? documentIds[document] : null;
+	}
+
+	/**
+	 * @param sentence Índice de la oración.
+	 * @return Categoría del documento de la oración, o null si no se clasificó.
+	 */
+	public String getDocumentCategory(long sentence) {
+		int document = document(sentence);
+		return document != CorpusWriter.MISSING ? documentCategories[document] : null;
+	}
+
+	/**
+	 * @brief Lee una oración completa.
+	 *
+	 * @param sentence Índice de la oración.
+	 * @return La oración anotada (sin probabilidades); los datos que no se calcularon son null.
+	 */
+	public AnnotatedSentence get(long sentence) {
+		int b = blockOf(sentence);
+		Block block = blocks[b];
+		int local = (int) (sentence - firstSentence[b]);
+		int first = block.intAt(block.tokenIndex, local);
+		int count = block.intAt(block.tokenIndex, local + 1) - first;
+
+		int start = block.intAt(block.sentenceStarts, local);
+		Span span = start != CorpusWriter.MISSING ? new Span(start, block.intAt(block.sentenceEnds, local)) : null;
+
+		String[] tokens = new String[count];
+		Span[] tokenSpans = new Span[count];
+		String[] pos = new String[count];
+		String[] chunks = new String[count];
+		boolean hasSpans = false;
+		boolean hasPos = false;
+		boolean hasChunks = false;
+		for (int i = 0; i < count; i++) {
+			int token = first + i;
+			tokens[i] = tokenText(block, token);
+			int tokenStart = block.intAt(block.tokenStarts, token);
+			if (tokenStart != CorpusWriter.MISSING) {
+				tokenSpans[i] = new Span(tokenStart, block.intAt(block.tokenEnds, token));
+				hasSpans = true;
+			}
+			pos[i] = tag(posTags, block.byteAt(block.pos, token));
+			hasPos |= pos[i] != null;
+			chunks[i] = tag(chunkTags, block.byteAt(block.chunks, token));
+			hasChunks |= chunks[i] != null;
+		}
+
+		Span[] names = null;
+		if ((block.byteAt(block.flags, local) & CorpusWriter.FLAG_NAMES) != 0) {
+			int firstName = block.intAt(block.nameIndex, local);
+			names = new Span[block.intAt(block.nameIndex, local + 1) - firstName];
+			for (int i = 0; i < names.length; i++) {
+				int name = firstName + i;
+				names[i] = new Span(block.intAt(block.nameStarts, name), block.intAt(block.nameEnds, name),
+						nameTypes[block.byteAt(block.nameTypes, name)]);
+			}
+		}
+
+		return new AnnotatedSentence(span, hasSpans ? tokenSpans : null, tokens, hasPos ? pos : null, null,
+				hasChunks ? chunks : null, null, names);
+	}
+
+	/**
+	 * @brief Lee un intervalo de oraciones consecutivas.
+	 *
+	 * @param from Primera oración.
+	 * @param to Oración siguiente a la última.
+	 * @return Las oraciones, en orden.
+	 */
+	public List<AnnotatedSentence> get(long from, long to) {
+		List<AnnotatedSentence> sentences = new ArrayList<>((int) Math.max(0, to - from));
+		for (long i = from; i < to; i++) {
+			sentences.add(get(i));
+		}
+		return sentences;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/** @return Índice del bloque que contiene la oración. */
+	private int blockOf(long sentence) {
+		if (sentence < 0 || sentence >= sentenceCount) {
+			throw new IndexOutOfBoundsException("Sentence " + sentence + " out of " + sentenceCount);
+		}
+		int index = Arrays.binarySearch(firstSentence, sentence);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	/** @return Posición del token en los arrays de su bloque. */
+	private int tokenAt(int b, long sentence, int token) {
+		Block block = blocks[b];
+		int local = (int) (sentence - firstSentence[b]);
+		int first = block.intAt(block.tokenIndex, local);
+		int count = block.intAt(block.tokenIndex, local + 1) - first;
+		if (token < 0 || token >= count) {
+			throw new IndexOutOfBoundsException("Token " + token + " out of " + count);
+		}
+		return first + token;
+	}
+
+	private int document(long sentence) {
+		int b = blockOf(sentence);
+		return blocks[b].intAt(blocks[b].documents, (int) (sentence - firstSentence[b]));
+	}
+
+	private static String tokenText(Block block, int token) {
+		int start = block.intAt(block.textOffsets, token);
+		byte[] bytes = new byte[block.intAt(block.textOffsets, token + 1) - start];
+		block.data.get(block.text + start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String tag(String[] dictionary, int code) {
+		return code != CorpusWriter.MISSING_TAG ? dictionary[code] : null;
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.max(length, 0)).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of corpus file");
+			}
+		}
+		return buffer.flip();
+	}
+
+	private static String[] readStrings(ByteBuffer footer) {
+		String[] values = new String[footer.getInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = readString(footer);
+		}
+		return values;
+	}
+
+	private static String readString(ByteBuffer footer) {
+		int length = footer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		footer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
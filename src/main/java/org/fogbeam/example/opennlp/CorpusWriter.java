@@ -0,0 +1,390 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import opennlp.tools.util.Span;
+
+/**
+ * @file CorpusWriter.java
+ * @brief Escribe un corpus anotado en un formato binario por columnas, leído por CorpusReader.
+ *
+ * Las oraciones se agrupan en bloques de blockSentences oraciones. Dentro de cada bloque,
+ * cada dato es un array contiguo: posiciones de oraciones y tokens como int, texto de los
+ * tokens como bytes UTF-8 con su array de desplazamientos, etiquetas gramaticales y de
+ * fragmento como un byte por token (número del diccionario) y entidades como arrays de
+ * índices de token y tipo. Así CorpusReader puede proyectar el archivo en memoria y leer
+ * cualquier oración directamente, sin convertir texto ni recorrer el resto del archivo.
+ *
+ * Formato (little-endian; todos los arrays empiezan en múltiplos de 4 bytes):
+ *
+ *   - Cabecera: MAGIC y VERSION (int).
+ *   - Bloques: oraciones S, tokens T, entidades N y bytes de texto B (int) y después
+ *     int[S+1] primer token de cada oración, int[S+1] primera entidad de cada oración,
+ *     int[S] documento, int[S] inicio y int[S] fin de la oración, byte[S] indicadores de la
+ *     oración (FLAG_NAMES si se buscaron entidades), int[T] inicio y int[T] fin
+ *     de cada token, int[T+1] desplazamiento del texto de cada token, byte[T] etiqueta
+ *     gramatical, byte[T] fragmento, int[N] primer token, int[N] fin y byte[N] tipo de cada
+ *     entidad, y byte[B] texto de los tokens.
+ *   - Pie: posición (long) y número de oraciones (int) de cada bloque, diccionarios de
+ *     etiquetas gramaticales, de fragmento y de tipos de entidad, e identificador y categoría
+ *     de cada documento.
+ *   - Final: posición del pie (long) y MAGIC (int).
+ *
+ * Los datos que no se calcularon se guardan como MISSING (posiciones) o MISSING_TAG (etiquetas)
+ * y CorpusReader los devuelve como null. Las probabilidades no se guardan.
+ */
+public class CorpusWriter implements ResultSink {
+	/** Marca de los archivos de corpus: "NLPC". */
+	public static final int MAGIC = 0x43504C4E;
+	/** Versión del formato. */
+	public static final int VERSION = 1;
+	/** Oraciones por bloque, por defecto. */
+	public static final int DEFAULT_BLOCK_SENTENCES = 4096;
+	/** Posición o documento desconocido. */
+	public static final int MISSING = -1;
+	/** Etiqueta desconocida; el diccionario admite como mucho 255 etiquetas de cada clase. */
+	public static final int MISSING_TAG = 0xFF;
+	/** Indicador de oración: se buscaron entidades (aunque no se encontrara ninguna). */
+	public static final int FLAG_NAMES = 1;
+
+	private final OutputStream out;
+	private final int blockSentences;
+	private long position;
+	private ByteBuffer block = ByteBuffer.allocate(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+	private final Dictionary posTags = new Dictionary("POS tags");
+	private final Dictionary chunkTags = new Dictionary("chunk tags");
+	private final Dictionary nameTypes = new Dictionary("entity types");
+	private final List<String> documentIds = new ArrayList<>();
+	private final List<String> documentCategories = new ArrayList<>();
+	private final List<long[]> blocks = new ArrayList<>();
+
+	// Columnas del bloque en curso.
+	private final IntColumn tokenIndex = new IntColumn();
+	private final IntColumn nameIndex = new IntColumn();
+	private final IntColumn documents = new IntColumn();
+	private final IntColumn sentenceStarts = new IntColumn();
+	private final IntColumn sentenceEnds = new IntColumn();
+	private final ByteColumn flags = new ByteColumn();
+	private final IntColumn tokenStarts = new IntColumn();
+	private final IntColumn tokenEnds = new IntColumn();
+	private final IntColumn textOffsets = new IntColumn();
+	private final ByteColumn posColumn = new ByteColumn();
+	private final ByteColumn chunkColumn = new ByteColumn();
+	private final IntColumn nameStarts = new IntColumn();
+	private final IntColumn nameEnds = new IntColumn();
+	private final ByteColumn nameTypeColumn = new ByteColumn();
+	private final ByteColumn text = new ByteColumn();
+
+	/**
+	 * @brief Diccionario de etiquetas: cada etiqueta distinta recibe un byte, por orden de aparición.
+	 */
+	private static final class Dictionary {
+		private final String name;
+		private final Map<String, Integer> codes = new HashMap<>();
+		private final List<String> values = new ArrayList<>();
+
+		Dictionary(String name) {
+			this.name = name;
+		}
+
+		int code(String value) throws IOException {
+			Integer code = codes.get(value);
+			if (code == null) {
+				if (values.size() == MISSING_TAG) {
+					throw new IOException("Too many " + name + " for the corpus format (max " + MISSING_TAG + ")");
+				}
+				code = values.size();
+				codes.put(value, code);
+				values.add(value);
+			}
+			return code;
+		}
+	}
+
+	/**
+	 * @brief Array de int que crece y se reutiliza de un bloque al siguiente.
+	 */
+	private static final class IntColumn {
+		private int[] values = new int[1024];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+
+	/**
+	 * @brief Array de bytes que crece y se reutiliza de un bloque al siguiente.
+	 */
+	private static final class ByteColumn {
+		private byte[] values = new byte[4096];
+		private int size;
+
+		void add(int value) {
+			ensure(1);
+			values[size++] = (byte) value;
+		}
+
+		void ensure(int bytes) {
+			if (size + bytes > values.length) {
+				values = Arrays.copyOf(values, Math.max(values.length * 2, size + bytes));
+			}
+		}
+	}
+
+	/**
+	 * @brief Crea un corpus con el tamaño de bloque por defecto y escribe la cabecera.
+	 *
+	 * @param out Flujo de salida; se cierra al cerrar el corpus.
+	 * @throws IOException En caso de errores de escritura.
+	 */
+	public CorpusWriter(OutputStream out) throws IOException {
+		this(out, DEFAULT_BLOCK_SENTENCES);
+	}
+
+	/**
+	 * @brief Crea un corpus y escribe la cabecera.
+	 *
+	 * @param out Flujo de salida; se cierra al cerrar el corpus.
+	 * @param blockSentences Oraciones por bloque.
+	 * @throws IOException En caso de errores de escritura.
+	 */
+	public CorpusWriter(OutputStream out, int blockSentences) throws IOException {
+		if (blockSentences < 1) {
+			throw new IllegalArgumentException("blockSentences must be positive: " + blockSentences);
+		}
+		this.out = out;
+		this.blockSentences = blockSentences;
+		block.clear();
+		block.putInt(MAGIC).putInt(VERSION);
+		writeBlockBuffer();
+		clearColumns();
+	}
+
+	@Override
+	public void startDocument(String id, String category) {
+		documentIds.add(id);
+		documentCategories.add(category);
+	}
+
+	@Override
+	public void write(AnnotatedSentence sentence) throws IOException {
+		String[] tokens = sentence.getTokens();
+		Span[] tokenSpans = sentence.getTokenSpans();
+		String[] pos = sentence.getPosTags();
+		String[] chunks = sentence.getChunkTags();
+		Span[] names = sentence.getNames();
+
+		documents.add(documentIds.size() - 1);
+		sentenceStarts.add(sentence.getSpan() != null ? sentence.getSpan().getStart() : MISSING);
+		sentenceEnds.add(sentence.getSpan() != null ? sentence.getSpan().getEnd() : MISSING);
+		for (int i = 0; i < tokens.length; i++) {
+			tokenStarts.add(tokenSpans != null ? tokenSpans[i].getStart() : MISSING);
+			tokenEnds.add(tokenSpans != null ? tokenSpans[i].getEnd() : MISSING);
+			appendText(tokens[i]);
+			textOffsets.add(text.size);
+			posColumn.add(pos != null ? posTags.code(pos[i]) : MISSING_TAG);
+			chunkColumn.add(chunks != null ? chunkTags.code(chunks[i]) : MISSING_TAG);
+		}
+		if (names != null) {
+			for (Span name : names) {
+				nameStarts.add(name.getStart());
+				nameEnds.add(name.getEnd());
+				nameTypeColumn.add(nameTypes.code(name.getType()));
+			}
+		}
+		tokenIndex.add(tokenStarts.size);
+		nameIndex.add(nameStarts.size);
+		flags.add(names != null ? FLAG_NAMES : 0);
+
+		if (documents.size == blockSentences) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * @brief Escribe el último bloque y el pie, y cierra el flujo.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (documents.size > 0) {
+				writeBlock();
+			}
+			writeFooter();
+		} finally {
+			out.close();
+		}
+	}
+
+	/** @return Bytes escritos hasta ahora. */
+	public long getBytesWritten() {
+		return position;
+	}
+
+	private void appendText(String token) {
+		int chars = token.length();
+		boolean ascii = true;
+		for (int i = 0; i < chars && ascii; i++) {
+			ascii = token.charAt(i) < 0x80;
+		}
+		if (ascii) {
+			text.ensure(chars);
+			for (int i = 0; i < chars; i++) {
+				text.values[text.size++] = (byte) token.charAt(i);
+			}
+		} else {
+			byte[] encoded = token.getBytes(StandardCharsets.UTF_8);
+			text.ensure(encoded.length);
+			System.arraycopy(encoded, 0, text.values, text.size, encoded.length);
+			text.size += encoded.length;
+		}
+	}
+
+	private void clearColumns() {
+		for (IntColumn column : new IntColumn[] { tokenIndex, nameIndex, documents, sentenceStarts, sentenceEnds,
+				tokenStarts, tokenEnds, textOffsets, nameStarts, nameEnds }) {
+			column.size = 0;
+		}
+		for (ByteColumn column : new ByteColumn[] { flags, posColumn, chunkColumn, nameTypeColumn, text }) {
+			column.size = 0;
+		}
+		tokenIndex.add(0);
+		nameIndex.add(0);
+		textOffsets.add(0);
+	}
+
+	private void writeBlock() throws IOException {
+		int sentences = documents.size;
+		int tokens = tokenStarts.size;
+		int names = nameStarts.size;
+		int bytes = 16 + 4 * (2 * (sentences + 1) + 3 * sentences + 3 * tokens + 1 + 2 * names)
+				+ padded(sentences) + padded(tokens) * 2 + padded(names) + padded(text.size);
+		if (block.capacity() < bytes) {
+			block = ByteBuffer.allocate(Math.max(bytes, block.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		block.clear();
+		block.putInt(sentences).putInt(tokens).putInt(names).putInt(text.size);
+		put(tokenIndex);
+		put(nameIndex);
+		put(documents);
+		put(sentenceStarts);
+		put(sentenceEnds);
+		put(flags);
+		put(tokenStarts);
+		put(tokenEnds);
+		put(textOffsets);
+		put(posColumn);
+		put(chunkColumn);
+		put(nameStarts);
+		put(nameEnds);
+		put(nameTypeColumn);
+		put(text);
+
+		blocks.add(new long[] { position, sentences });
+		writeBlockBuffer();
+		clearColumns();
+	}
+
+	private void writeFooter() throws IOException {
+		long footer = position;
+		DataBuffer data = new DataBuffer();
+		data.putInt(blocks.size());
+		for (long[] entry : blocks) {
+			data.putLong(entry[0]);
+			data.putInt((int) entry[1]);
+		}
+		for (Dictionary dictionary : new Dictionary[] { posTags, chunkTags, nameTypes }) {
+			data.putInt(dictionary.values.size());
+			for (String value : dictionary.values) {
+				data.putString(value);
+			}
+		}
+		data.putInt(documentIds.size());
+		for (int i = 0; i < documentIds.size(); i++) {
+			data.putString(documentIds.get(i));
+			data.putString(documentCategories.get(i));
+		}
+		data.putLong(footer);
+		data.putInt(MAGIC);
+
+		out.write(data.bytes, 0, data.size);
+		position += data.size;
+	}
+
+	private void put(IntColumn column) {
+		block.asIntBuffer().put(column.values, 0, column.size);
+		block.position(block.position() + 4 * column.size);
+	}
+
+	private void put(ByteColumn column) {
+		block.put(column.values, 0, column.size);
+		block.position(block.position() + padded(column.size) - column.size);
+	}
+
+	private void writeBlockBuffer() throws IOException {
+		out.write(block.array(), 0, block.position());
+		position += block.position();
+	}
+
+	/** @return bytes redondeado al siguiente múltiplo de 4. */
+	static int padded(int bytes) {
+		return (bytes + 3) & ~3;
+	}
+
+	/**
+	 * @brief Búfer para el pie: enteros little-endian y cadenas UTF-8 con su longitud (-1 para null).
+	 */
+	private static final class DataBuffer {
+		private byte[] bytes = new byte[4096];
+		private int size;
+
+		void putInt(int value) {
+			ensure(4);
+			ByteBuffer.wrap(bytes, size, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(value);
+			size += 4;
+		}
+
+		void putLong(long value) {
+			ensure(8);
+			ByteBuffer.wrap(bytes, size, 8).order(ByteOrder.LITTLE_ENDIAN).putLong(value);
+			size += 8;
+		}
+
+		void putString(String value) {
+			if (value == null) {
+				putInt(-1);
+				return;
+			}
+			byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			putInt(encoded.length);
+			ensure(encoded.length);
+			System.arraycopy(encoded, 0, bytes, size, encoded.length);
+			size += encoded.length;
+		}
+
+		private void ensure(int length) {
+			if (size + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+			}
+		}
+	}
+}
@@ -1,11 +1,5 @@
 package org.fogbeam.example.opennlp;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
-
-import opennlp.tools.doccat.DoccatModel;
-import opennlp.tools.doccat.DocumentCategorizerME;
-
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,7 +8,9 @@ import java.util.logging.Logger;
  * @brief Programa principal para clasificar texto en categorías usando un modelo preentrenado de OpenNLP.
  *
  * Este programa carga un modelo de categorización de documentos, clasifica un texto de ejemplo
- * en una categoría específica y muestra el resultado.
+ * (o los textos pasados como argumentos) en una categoría específica y muestra el resultado.
+ * Los resultados pasan por una caché (ver CachingCategorizer), así que los textos repetidos
+ * no se vuelven a clasificar; al terminar se muestran las métricas de la caché.
  */
 public class DocumentClassifierMain
 {
@@ -27,47 +23,40 @@ public class DocumentClassifierMain
 	 * Este metodo carga un modelo de categorización de documentos, clasifica un texto de entrada
 	 * y determina la categoría más adecuada.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados en este programa).
+	 * @param args Argumentos de línea de comandos: textos a clasificar (opcional).
 	 * @throws Exception En caso de errores durante la ejecución.
 	 */
 	public static void main(String[] args) throws Exception
 	{
-		InputStream is = null; /**< Flujo de entrada para cargar el modelo de categorización. */
+		MetricsReporter metrics = MetricsReporter.install();
 		try
 		{
-			// Carga el modelo preentrenado de categorización de documentos desde un archivo.
-			is = new FileInputStream("models/en-doccat.model");
-			DoccatModel m = new DoccatModel(is);
-
-			// Texto de entrada para clasificar.
-			String inputText = "What happens if we have declining bottom-line revenue?";
+			// Obtiene el clasificador, con el modelo del registro compartido y una caché de resultados.
+			CachingCategorizer categorizer = CachingCategorizer.fromRegistry(CachingCategorizer.DEFAULT_CAPACITY);
 
-			// Inicializa el clasificador de documentos con el modelo cargado.
-			DocumentCategorizerME myCategorizer = new DocumentCategorizerME(m);
+			// Textos de entrada para clasificar.
+			String[] inputTexts = args.length > 0
+					? args
+					: new String[] { "What happens if we have declining bottom-line revenue?" };
 
-			// Clasifica el texto de entrada y obtiene las probabilidades de cada categoría.
-			double[] outcomes = myCategorizer.categorize(inputText);
+			for (String inputText : inputTexts)
+			{
+				// Clasifica el texto de entrada y determina la categoría con mayor probabilidad.
+				String category = categorizer.getBestCategory(inputText);
 
-			// Determina la categoría con mayor probabilidad.
-			String category = myCategorizer.getBestCategory(outcomes);
+				// Reemplaza el uso de System.out con el logger.
+				LOGGER.log(Level.INFO, "Input classified as: {0}", category);
+			}
 
-			// Reemplaza el uso de System.out con el logger.
-			LOGGER.log(Level.INFO, "Input classified as: {0}", category);
+			LOGGER.log(Level.INFO, "Cache: {0}", categorizer.getCache());
 		}
 		catch (Exception e)
 		{
 			// En desarrollo: registrar detalles del error para depuración
 			LOGGER.log(Level.SEVERE, "Error loading the model: {0}", e.getMessage());
 		}
-		finally
-		{
-			// Cierra el flujo de entrada del modelo si está abierto.
-			if (is != null)
-			{
-				is.close();
-			}
-		}
-		// Indica que el programa ha finalizado.
+		// Indica que el programa ha finalizado, con las métricas de la clasificación.
+		metrics.report();
 		LOGGER.log(Level.INFO, "done");
 	}
 }
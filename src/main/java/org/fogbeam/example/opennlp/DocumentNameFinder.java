@@ -0,0 +1,138 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+/**
+ * @file DocumentNameFinder.java
+ * @brief Detección de entidades sobre texto sin procesar, documento a documento.
+ *
+ * Divide cada documento en oraciones, tokeniza cada oración y pasa todas las oraciones
+ * del documento, en orden, por el mismo NameFinderME, de forma que las características
+ * adaptativas se acumulan dentro del documento. Los datos adaptativos se borran
+ * exactamente al terminar cada documento. Las entidades se devuelven con posiciones
+ * de carácter en el texto original.
+ *
+ * Las instancias ME se obtienen de un MEPool, así que un mismo objeto puede usarse
+ * desde varios hilos.
+ */
+public class DocumentNameFinder {
+	/** Separador de documentos: una o más líneas en blanco, como en la herramienta de OpenNLP. */
+	private static final Pattern DOCUMENT_BREAK = Pattern.compile("\\r?\\n[ \\t]*(?:\\r?\\n[ \\t]*)+");
+
+	private final MEPool<SentenceModel, SentenceDetectorME> sentenceDetectors;
+	private final MEPool<TokenizerModel, TokenizerME> tokenizers;
+	private final MEPool<TokenNameFinderModel, NameFinderME> nameFinders;
+
+	/**
+	 * @brief Crea un detector de entidades por documento.
+	 *
+	 * @param sentenceModel Modelo de detección de oraciones.
+	 * @param tokenizerModel Modelo de tokenización.
+	 * @param nameFinderModel Modelo de detección de entidades.
+	 */
+	public DocumentNameFinder(SentenceModel sentenceModel, TokenizerModel tokenizerModel,
+			TokenNameFinderModel nameFinderModel) {
+		this.sentenceDetectors = MEPool.sentenceDetectors(sentenceModel);
+		this.tokenizers = MEPool.tokenizers(tokenizerModel);
+		this.nameFinders = MEPool.nameFinders(nameFinderModel);
+	}
+
+	/**
+	 * @brief Crea un detector con los modelos por defecto del pipeline.
+	 *
+	 * @return Detector listo para usar.
+	 * @throws IOException Si algún modelo no se puede cargar.
+	 */
+	public static DocumentNameFinder fromRegistry() throws IOException {
+		ModelRegistry registry = ModelRegistry.getInstance();
+		return new DocumentNameFinder(
+				registry.get(Pipeline.SENTENCE_MODEL, SentenceModel.class),
+				registry.get(Pipeline.TOKENIZER_MODEL, TokenizerModel.class),
+				registry.get(Pipeline.NAME_FINDER_MODEL, TokenNameFinderModel.class));
+	}
+
+	/** @return Pool de detectores de entidades, por ejemplo para recargar su modelo (ver ModelWatcher). */
+	public MEPool<TokenNameFinderModel, NameFinderME> getNameFinders() {
+		return nameFinders;
+	}
+
+	/**
+	 * @brief Busca entidades en un texto que puede contener varios documentos.
+	 *
+	 * Los documentos se separan por líneas en blanco.
+	 *
+	 * @param text Texto completo.
+	 * @return Entidades encontradas, con posiciones de carácter en el texto.
+	 */
+	public List<Span> findAll(String text) {
+		List<Span> names = new ArrayList<>();
+		Matcher matcher = DOCUMENT_BREAK.matcher(text);
+		int start = 0;
+		while (matcher.find()) {
+			find(text, start, matcher.start(), names);
+			start = matcher.end();
+		}
+		find(text, start, text.length(), names);
+		return names;
+	}
+
+	/**
+	 * @brief Busca entidades en un único documento.
+	 *
+	 * @param document Texto del documento.
+	 * @return Entidades encontradas, con posiciones de carácter en el documento.
+	 */
+	public List<Span> find(String document) {
+		List<Span> names = new ArrayList<>();
+		find(document, 0, document.length(), names);
+		return names;
+	}
+
+	/**
+	 * @brief Procesa el documento text[start, end) y añade sus entidades a names.
+	 */
+	private void find(String text, int start, int end, List<Span> names) {
+		if (start >= end) {
+			return;
+		}
+
+		String document = text.substring(start, end);
+		long detectStart = System.nanoTime();
+		Span[] sentences = sentenceDetectors.get().sentPosDetect(document);
+		StageMetrics.SENT_DETECT.record(detectStart, sentences.length, 0);
+		TokenizerME tokenizer = tokenizers.get();
+
+		nameFinders.apply(nameFinder -> {
+			for (Span sentence : sentences) {
+				String sentenceText = sentence.getCoveredText(document).toString();
+				long stageStart = System.nanoTime();
+				Span[] tokenSpans = tokenizer.tokenizePos(sentenceText);
+				String[] tokens = Span.spansToStrings(tokenSpans, sentenceText);
+				StageMetrics.TOKENIZE.record(stageStart, 1, tokens.length);
+
+				// Las entidades vienen como índices de token: se pasan a posiciones de carácter.
+				int offset = start + sentence.getStart();
+				stageStart = System.nanoTime();
+				Span[] found = nameFinder.find(tokens);
+				StageMetrics.FIND.record(stageStart, 1, tokens.length);
+				for (Span name : found) {
+					names.add(new Span(offset + tokenSpans[name.getStart()].getStart(),
+							offset + tokenSpans[name.getEnd() - 1].getEnd(), name.getType()));
+				}
+			}
+			return null;
+		});
+	}
+}
@@ -0,0 +1,117 @@
+package org.fogbeam.example.opennlp;
+
+/**
+ * @file Json.java
+ * @brief Utilidades mínimas para escribir JSON sin dependencias externas.
+ *
+ * El proyecto solo necesita generar JSON (respuestas del servidor, resultados por línea),
+ * nunca leerlo, así que basta con escapar cadenas y escribir arrays sencillos.
+ */
+public final class Json {
+	private Json() {
+	}
+
+	/**
+	 * @brief Añade una cadena JSON entre comillas, escapando los caracteres necesarios.
+	 *
+	 * @param out Destino.
+	 * @param value Cadena a escribir; null se escribe como null.
+	 * @return El mismo destino, para encadenar llamadas.
+	 */
+	public static StringBuilder string(StringBuilder out, CharSequence value) {
+		if (value == null) {
+			return out.append("null");
+		}
+
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					out.append("\\\"");
+					break;
+				case '\\':
+					out.append("\\\\");
+					break;
+				case '\n':
+					out.append("\\n");
+					break;
+				case '\r':
+					out.append("\\r");
+					break;
+				case '\t':
+					out.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						out.append(String.format("\\u%04x", (int) c));
+					} else {
+						out.append(c);
+					}
+			}
+		}
+		return out.append('"');
+	}
+
+	/**
+	 * @brief Añade un array JSON de cadenas.
+	 *
+	 * @param out Destino.
+	 * @param values Cadenas a escribir.
+	 * @return El mismo destino, para encadenar llamadas.
+	 */
+	public static StringBuilder array(StringBuilder out, String[] values) {
+		out.append('[');
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				out.append(',');
+			}
+			string(out, values[i]);
+		}
+		return out.append(']');
+	}
+
+	/**
+	 * @brief Añade un número decimal; NaN e infinito, que JSON no admite, se escriben como null.
+	 *
+	 * @param out Destino.
+	 * @param value Número a escribir.
+	 * @return El mismo destino, para encadenar llamadas.
+	 */
+	public static StringBuilder number(StringBuilder out, double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return out.append("null");
+		}
+		return out.append(value);
+	}
+
+	/**
+	 * @brief Añade un número con un número fijo de decimales, sin pasar por Double.toString()
+	 *        ni String.format(), que son mucho más lentos. Se usa para las probabilidades.
+	 *
+	 * @param out Destino.
+	 * @param value Número a escribir; NaN, infinito y valores muy grandes se escriben como number().
+	 * @param decimals Número de decimales (entre 1 y 9).
+	 * @return El mismo destino, para encadenar llamadas.
+	 */
+	public static StringBuilder decimal(StringBuilder out, double value, int decimals) {
+		if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1e9) {
+			return number(out, value);
+		}
+
+		long scale = 1;
+		for (int i = 0; i < decimals; i++) {
+			scale *= 10;
+		}
+		long scaled = Math.round(Math.abs(value) * scale);
+		if (value < 0 && scaled != 0) {
+			out.append('-');
+		}
+		out.append(scaled / scale).append('.');
+		long fraction = scaled % scale;
+		for (long digit = scale / 10; digit > 1 && fraction < digit; digit /= 10) {
+			out.append('0');
+		}
+		return out.append(fraction);
+	}
+}
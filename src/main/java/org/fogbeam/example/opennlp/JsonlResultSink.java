@@ -0,0 +1,133 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import opennlp.tools.util.Span;
+
+/**
+ * @file JsonlResultSink.java
+ * @brief Escribe los resultados en JSON Lines: un objeto JSON por oración.
+ *
+ * Cada línea tiene los campos "doc" y "category" del documento en curso (si se empezó
+ * alguno), "start" y "end" de la oración, "tokens", "spans" (pares inicio-fin de cada token),
+ * "pos", "posProbs", "chunks", "chunkProbs" y "names" (objetos con los índices de token
+ * "start" y "end" y el "type" de la entidad). Las probabilidades llevan seis decimales.
+ * Los campos de etapas que no se ejecutaron no aparecen.
+ */
+public class JsonlResultSink implements ResultSink {
+	private final Writer writer;
+	private final StringBuilder json = new StringBuilder(4096);
+	private String documentId;
+	private String category;
+
+	/**
+	 * @brief Crea un destino en UTF-8 sobre un flujo.
+	 *
+	 * @param out Flujo de salida; se cierra al cerrar el destino.
+	 */
+	public JsonlResultSink(OutputStream out) {
+		this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024));
+	}
+
+	/**
+	 * @brief Crea un destino sobre un Writer.
+	 *
+	 * @param writer Destino del texto; se cierra al cerrar el destino.
+	 */
+	public JsonlResultSink(Writer writer) {
+		this.writer = writer;
+	}
+
+	@Override
+	public void startDocument(String id, String category) {
+		this.documentId = id;
+		this.category = category;
+	}
+
+	@Override
+	public void write(AnnotatedSentence sentence) throws IOException {
+		json.setLength(0);
+		json.append('{');
+		if (documentId != null) {
+			json.append("\"doc\":");
+			Json.string(json, documentId).append(',');
+			if (category != null) {
+				json.append("\"category\":");
+				Json.string(json, category).append(',');
+			}
+		}
+		if (sentence.getSpan() != null) {
+			json.append("\"start\":").append(sentence.getSpan().getStart())
+					.append(",\"end\":").append(sentence.getSpan().getEnd()).append(',');
+		}
+
+		json.append("\"tokens\":");
+		Json.array(json, sentence.getTokens());
+		Span[] tokenSpans = sentence.getTokenSpans();
+		if (tokenSpans != null) {
+			json.append(",\"spans\":[");
+			for (int i = 0; i < tokenSpans.length; i++) {
+				if (i > 0) {
+					json.append(',');
+				}
+				json.append('[').append(tokenSpans[i].getStart()).append(',').append(tokenSpans[i].getEnd()).append(']');
+			}
+			json.append(']');
+		}
+		appendArray("pos", sentence.getPosTags());
+		appendNumbers("posProbs", sentence.getPosProbs());
+		appendArray("chunks", sentence.getChunkTags());
+		appendNumbers("chunkProbs", sentence.getChunkProbs());
+
+		Span[] names = sentence.getNames();
+		if (names != null) {
+			json.append(",\"names\":[");
+			for (int i = 0; i < names.length; i++) {
+				if (i > 0) {
+					json.append(',');
+				}
+				json.append("{\"start\":").append(names[i].getStart()).append(",\"end\":").append(names[i].getEnd())
+						.append(",\"type\":");
+				Json.string(json, names[i].getType()).append('}');
+			}
+			json.append(']');
+		}
+		json.append("}\n");
+		writer.append(json);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	private void appendArray(String field, String[] values) {
+		if (values != null) {
+			json.append(",\"").append(field).append("\":");
+			Json.array(json, values);
+		}
+	}
+
+	private void appendNumbers(String field, double[] values) {
+		if (values != null) {
+			json.append(",\"").append(field).append("\":[");
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					json.append(',');
+				}
+				Json.decimal(json, values[i], ConllResultSink.PROBABILITY_DECIMALS);
+			}
+			json.append(']');
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @file LatencyHistogram.java
+ * @brief Histograma de latencias con percentiles, seguro entre hilos y sin bloqueos.
+ *
+ * Las latencias (en nanosegundos) se agrupan en intervalos logarítmicos: cada potencia de
+ * dos se divide en 8 partes iguales, así que un percentil se conoce con un error máximo
+ * del 12,5 % y el histograma ocupa siempre lo mismo (512 contadores), registre las
+ * latencias que registre. Registrar una latencia es un par de operaciones atómicas.
+ */
+public final class LatencyHistogram {
+	/** Bits de subdivisión de cada potencia de dos (2^3 = 8 intervalos). */
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+	/**
+	 * @brief Registra una latencia.
+	 *
+	 * @param nanos Latencia en nanosegundos; los valores negativos cuentan como cero.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0L);
+		buckets.incrementAndGet(bucket(value));
+		count.increment();
+		totalNanos.add(value);
+		maxNanos.accumulate(value);
+	}
+
+	/** @return Número de latencias registradas. */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/** @return Suma de todas las latencias registradas, en nanosegundos. */
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/** @return Latencia media, en milisegundos. */
+	public double getMeanMillis() {
+		long n = count.sum();
+		return n == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / n;
+	}
+
+	/** @return Latencia máxima registrada, en milisegundos. */
+	public double getMaxMillis() {
+		return maxNanos.get() / 1_000_000.0;
+	}
+
+	/**
+	 * @brief Devuelve un percentil de las latencias registradas.
+	 *
+	 * El valor devuelto es el límite superior del intervalo en el que cae el percentil,
+	 * sin pasar nunca de la latencia máxima registrada.
+	 *
+	 * @param percentile Percentil entre 0 y 100 (por ejemplo, 99 para p99).
+	 * @return Latencia del percentil en milisegundos, o 0 si no hay latencias.
+	 */
+	public double getPercentileMillis(double percentile) {
+		long[] snapshot = new long[buckets.length()];
+		long total = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(upperBound(i), maxNanos.get()) / 1_000_000.0;
+			}
+		}
+		return getMaxMillis();
+	}
+
+	/**
+	 * @brief Índice del intervalo de un valor: los 8 primeros valores tienen intervalo propio;
+	 *        a partir de ahí, potencia de dos (exponente) y 3 bits siguientes (subintervalo).
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @brief Mayor valor que cae en un intervalo.
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long lower = (1L << exponent) + (sub << (exponent - SUB_BITS));
+		return lower + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
@@ -0,0 +1,234 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.parser.Parser;
+import opennlp.tools.parser.ParserFactory;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+
+/**
+ * @file MEPool.java
+ * @brief Instancias por hilo de las clases ME de OpenNLP sobre un modelo compartido.
+ *
+ * Las clases ME (TokenizerME, POSTaggerME, NameFinderME...) guardan estado entre
+ * llamadas y no pueden usarse desde varios hilos a la vez, pero su construcción a
+ * partir de un modelo ya cargado es barata. Este pool crea, de forma perezosa, una
+ * instancia por hilo y la reutiliza en las siguientes llamadas de ese mismo hilo, así
+ * que no hay bloqueos ni contención entre hilos al procesar.
+ *
+ * Las instancias con estado adaptativo (NameFinderME) se reinician automáticamente al
+ * terminar cada documento procesado con apply().
+ *
+ * El modelo puede sustituirse en caliente con swap() (ver ModelWatcher): cada hilo crea una
+ * instancia nueva sobre el modelo nuevo en su siguiente llamada, y las llamadas a apply() que
+ * ya estaban en curso terminan con la versión anterior. swap() espera a que terminen antes
+ * de volver, de modo que al volver ya nadie usa el modelo antiguo.
+ *
+ * @param <M> Tipo del modelo compartido.
+ * @param <T> Tipo de la instancia ME que se entrega a cada hilo.
+ */
+public final class MEPool<M, T> {
+	private final Function<? super M, ? extends T> factory;
+	private final Consumer<? super T> reset;
+	private final AtomicReference<Version<M>> current;
+	private final ThreadLocal<Slot<T>> instances = new ThreadLocal<>();
+
+	/**
+	 * @brief Versión del modelo: el modelo, su número de generación y las llamadas en curso.
+	 */
+	private static final class Version<M> {
+		private final M model;
+		private final long generation;
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		Version(M model, long generation) {
+			this.model = model;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * @brief Instancia de un hilo y la generación del modelo sobre la que se creó.
+	 */
+	private static final class Slot<T> {
+		private final T instance;
+		private final long generation;
+
+		Slot(T instance, long generation) {
+			this.instance = instance;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * @brief Crea un pool de instancias sobre un modelo.
+	 *
+	 * @param model Modelo compartido por todas las instancias.
+	 * @param factory Función que crea una instancia a partir del modelo.
+	 * @param reset Acción que deja una instancia lista para el siguiente documento.
+	 */
+	public MEPool(M model, Function<? super M, ? extends T> factory, Consumer<? super T> reset) {
+		this.factory = factory;
+		this.reset = reset;
+		this.current = new AtomicReference<>(new Version<>(model, 0));
+	}
+
+	/** @return Pool de tokenizadores sobre el modelo indicado. */
+	public static MEPool<TokenizerModel, TokenizerME> tokenizers(TokenizerModel model) {
+		return new MEPool<>(model, TokenizerME::new, instance -> { });
+	}
+
+	/** @return Pool de detectores de oraciones sobre el modelo indicado. */
+	public static MEPool<SentenceModel, SentenceDetectorME> sentenceDetectors(SentenceModel model) {
+		return new MEPool<>(model, SentenceDetectorME::new, instance -> { });
+	}
+
+	/** @return Pool de etiquetadores gramaticales sobre el modelo indicado. */
+	public static MEPool<POSModel, POSTaggerME> taggers(POSModel model) {
+		return new MEPool<>(model, POSTaggerME::new, instance -> { });
+	}
+
+	/** @return Pool de fragmentadores sobre el modelo indicado. */
+	public static MEPool<ChunkerModel, ChunkerME> chunkers(ChunkerModel model) {
+		return new MEPool<>(model, ChunkerME::new, instance -> { });
+	}
+
+	/** @return Pool de detectores de entidades sobre el modelo indicado. */
+	public static MEPool<TokenNameFinderModel, NameFinderME> nameFinders(TokenNameFinderModel model) {
+		return new MEPool<>(model, NameFinderME::new, NameFinderME::clearAdaptiveData);
+	}
+
+	/** @return Pool de clasificadores de documentos sobre el modelo indicado. */
+	public static MEPool<DoccatModel, DocumentCategorizerME> categorizers(DoccatModel model) {
+		return new MEPool<>(model, DocumentCategorizerME::new, instance -> { });
+	}
+
+	/** @return Pool de analizadores sintácticos sobre el modelo indicado. */
+	public static MEPool<ParserModel, Parser> parsers(ParserModel model) {
+		return new MEPool<>(model, ParserFactory::create, instance -> { });
+	}
+
+	/** @return Modelo compartido por las instancias del pool (el más reciente tras un swap()). */
+	public M getModel() {
+		return current.get().model;
+	}
+
+	/** @return Número de veces que se ha sustituido el modelo. */
+	public long getGeneration() {
+		return current.get().generation;
+	}
+
+	/**
+	 * @brief Sustituye el modelo y espera a que terminen las llamadas a apply() sobre el anterior.
+	 *
+	 * El cambio es atómico: toda llamada posterior usa el modelo nuevo. Las llamadas a get()
+	 * no se cuentan como en curso; quien necesite que el cambio espere por él debe usar apply().
+	 *
+	 * @param model Modelo nuevo, ya cargado.
+	 * @param timeout Tiempo máximo de espera.
+	 * @param unit Unidad de timeout.
+	 * @return true si ya no queda ninguna llamada sobre el modelo anterior.
+	 * @throws InterruptedException Si se interrumpe la espera.
+	 */
+	public boolean swap(M model, long timeout, TimeUnit unit) throws InterruptedException {
+		Version<M> previous;
+		Version<M> next;
+		do {
+			previous = current.get();
+			next = new Version<>(model, previous.generation + 1);
+		} while (!current.compareAndSet(previous, next));
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (previous.inFlight.get() > 0) {
+			if (System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+	/**
+	 * @brief Devuelve la instancia del hilo actual, creándola si es la primera vez.
+	 *
+	 * La instancia no se reinicia: quien la use para varios documentos debe llamar
+	 * a reset() entre uno y otro, o usar apply().
+	 *
+	 * @return Instancia propia del hilo que llama.
+	 */
+	public T get() {
+		return instance(current.get());
+	}
+
+	/**
+	 * @brief Procesa un documento con la instancia del hilo actual y la reinicia al terminar.
+	 *
+	 * @param document Función que procesa el documento con la instancia.
+	 * @return El resultado de la función.
+	 */
+	public <R> R apply(Function<? super T, ? extends R> document) {
+		Version<M> version = acquire();
+		try {
+			T instance = instance(version);
+			try {
+				return document.apply(instance);
+			} finally {
+				reset.accept(instance);
+			}
+		} finally {
+			version.inFlight.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @brief Reinicia la instancia del hilo actual para empezar un documento nuevo.
+	 */
+	public void reset() {
+		reset.accept(get());
+	}
+
+	/**
+	 * @brief Registra una llamada en curso sobre la versión actual del modelo.
+	 *
+	 * Si el modelo cambia entre la lectura y el registro, se deshace y se vuelve a intentar:
+	 * así swap() nunca da por terminada una versión que todavía va a usarse.
+	 */
+	private Version<M> acquire() {
+		while (true) {
+			Version<M> version = current.get();
+			version.inFlight.incrementAndGet();
+			if (current.get() == version) {
+				return version;
+			}
+			version.inFlight.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @brief Instancia del hilo actual para una versión del modelo, creada de nuevo si es de otra versión.
+	 */
+	private T instance(Version<M> version) {
+		Slot<T> slot = instances.get();
+		if (slot == null || slot.generation != version.generation) {
+			slot = new Slot<>(factory.apply(version.model), version.generation);
+			instances.set(slot);
+		}
+		return slot.instance;
+	}
+}
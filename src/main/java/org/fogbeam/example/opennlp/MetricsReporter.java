@@ -0,0 +1,278 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * @file MetricsReporter.java
+ * @brief Publica las métricas de las etapas (ver StageMetrics) y los tiempos de carga de los modelos.
+ *
+ * Las métricas se pueden consultar de dos formas:
+ *
+ *   - Por JMX: cada etapa es org.fogbeam.example.opennlp:type=Stage,name=&lt;etapa&gt; y los
+ *     modelos cargados, org.fogbeam.example.opennlp:type=Models (jconsole, VisualVM...).
+ *   - En instantáneas de texto o JSON, cada cierto tiempo y al terminar cada programa.
+ *
+ * install() lo configura con propiedades del sistema, de modo que todos los programas *Main
+ * se controlan igual:
+ *
+ *   -Dnlp.metrics.interval=N   segundos entre instantáneas (0, por defecto: solo la final).
+ *   -Dnlp.metrics.format=F     text (por defecto) o json (una línea por instantánea).
+ *   -Dnlp.metrics.file=F       añade las instantáneas a ese archivo en lugar de al log.
+ *   -Dnlp.metrics.jmx=false    no registra los MBeans.
+ */
+public final class MetricsReporter implements Closeable {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(MetricsReporter.class.getName());
+
+	/** Dominio JMX de los MBeans. */
+	public static final String DOMAIN = "org.fogbeam.example.opennlp";
+
+	/**
+	 * @brief Formatos de las instantáneas.
+	 */
+	public enum Format {
+		/** Una línea por etapa con actividad y otra por modelo cargado. */
+		TEXT,
+		/** Un objeto JSON en una sola línea, con todas las etapas. */
+		JSON
+	}
+
+	/**
+	 * @brief Interfaz JMX con los tiempos de carga de los modelos (ver ModelRegistry).
+	 */
+	public interface ModelsMXBean {
+		/** @return Número de modelos cargados. */
+		int getModelCount();
+
+		/** @return Suma de los tiempos de carga de todos los modelos, en milisegundos. */
+		double getTotalLoadTimeMillis();
+
+		/** @return Tiempo de carga de cada modelo, en milisegundos, por ruta del fichero. */
+		Map<String, Double> getLoadTimeMillis();
+	}
+
+	private static final class Models implements ModelsMXBean {
+		@Override
+		public int getModelCount() {
+			return ModelRegistry.getInstance().getAllStats().size();
+		}
+
+		@Override
+		public double getTotalLoadTimeMillis() {
+			double total = 0;
+			for (ModelRegistry.ModelStats stats : ModelRegistry.getInstance().getAllStats()) {
+				total += stats.getLoadTimeMillis();
+			}
+			return total;
+		}
+
+		@Override
+		public Map<String, Double> getLoadTimeMillis() {
+			Map<String, Double> times = new LinkedHashMap<>();
+			for (ModelRegistry.ModelStats stats : ModelRegistry.getInstance().getAllStats()) {
+				times.put(stats.getPath(), stats.getLoadTimeMillis());
+			}
+			return times;
+		}
+	}
+
+	private static boolean registered;
+	private static MetricsReporter installed;
+
+	private final Format format;
+	private final Path file;
+	private final ScheduledExecutorService scheduler;
+
+	private MetricsReporter(Format format, Path file, long periodSeconds) {
+		this.format = format;
+		this.file = file;
+		if (periodSeconds > 0) {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "metrics-reporter");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleAtFixedRate(this::report, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+		} else {
+			this.scheduler = null;
+		}
+	}
+
+	/**
+	 * @brief Registra los MBeans y empieza las instantáneas periódicas según las propiedades del sistema.
+	 *
+	 * Se puede llamar varias veces: solo la primera tiene efecto.
+	 *
+	 * @return El publicador del proceso.
+	 */
+	public static synchronized MetricsReporter install() {
+		if (installed == null) {
+			if (Boolean.parseBoolean(System.getProperty("nlp.metrics.jmx", "true"))) {
+				registerMBeans();
+			}
+			String fileName = System.getProperty("nlp.metrics.file");
+			installed = new MetricsReporter(
+					Format.valueOf(System.getProperty("nlp.metrics.format", "text").toUpperCase(Locale.ROOT)),
+					fileName == null ? null : Paths.get(fileName),
+					Long.parseLong(System.getProperty("nlp.metrics.interval", "0")));
+		}
+		return installed;
+	}
+
+	/**
+	 * @brief Registra en el servidor JMX de la plataforma un MBean por etapa y otro para los modelos.
+	 *
+	 * Si ya están registrados no hace nada; si el registro falla, lo anota en el log y sigue.
+	 */
+	public static synchronized void registerMBeans() {
+		if (registered) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			for (StageMetrics stage : StageMetrics.values()) {
+				ObjectName name = new ObjectName(DOMAIN + ":type=Stage,name=" + stage.getName());
+				if (!server.isRegistered(name)) {
+					server.registerMBean(stage, name);
+				}
+			}
+			ObjectName models = new ObjectName(DOMAIN + ":type=Models");
+			if (!server.isRegistered(models)) {
+				server.registerMBean(new Models(), models);
+			}
+			registered = true;
+		} catch (JMException e) {
+			LOGGER.log(Level.WARNING, "Could not register the metrics MBeans", e);
+		}
+	}
+
+	/**
+	 * @brief Escribe una instantánea en el destino configurado (el archivo o el log).
+	 */
+	public void report() {
+		String snapshot = snapshot(format);
+		if (file == null) {
+			LOGGER.info(snapshot);
+			return;
+		}
+		try {
+			Files.write(file, (snapshot + '\n').getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Could not write metrics to " + file, e);
+		}
+	}
+
+	/**
+	 * @brief Detiene las instantáneas periódicas. Los MBeans siguen registrados.
+	 */
+	@Override
+	public void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * @brief Devuelve una instantánea de las métricas.
+	 *
+	 * @param format Formato de la instantánea.
+	 * @return Instantánea en texto o en JSON.
+	 */
+	public static String snapshot(Format format) {
+		if (format == Format.JSON) {
+			StringBuilder json = new StringBuilder(2048).append("{\"timestamp\":").append(System.currentTimeMillis())
+					.append(",\"stages\":");
+			appendStages(json).append(",\"models\":");
+			return appendModels(json).append('}').toString();
+		}
+
+		StringBuilder text = new StringBuilder("Stage metrics (latency in ms, throughput per second inside the stage):");
+		for (StageMetrics stage : StageMetrics.values()) {
+			if (stage.getCalls() > 0) {
+				text.append(String.format(Locale.ROOT,
+						"%n  %-10s calls=%d sentences=%d tokens=%d tokens/s=%.1f sentences/s=%.1f"
+								+ " mean=%.3f p50=%.3f p95=%.3f p99=%.3f max=%.3f",
+						stage.getName(), stage.getCalls(), stage.getSentences(), stage.getTokens(),
+						stage.getTokensPerSecond(), stage.getSentencesPerSecond(), stage.getMeanMillis(),
+						stage.getP50Millis(), stage.getP95Millis(), stage.getP99Millis(), stage.getMaxMillis()));
+			}
+		}
+		for (ModelRegistry.ModelStats stats : ModelRegistry.getInstance().getAllStats()) {
+			text.append(String.format(Locale.ROOT, "%n  model %s %s loaded in %.1f ms",
+					stats.getType().getSimpleName(), stats.getPath(), stats.getLoadTimeMillis()));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * @brief Añade un objeto JSON con las métricas de todas las etapas, por nombre de etapa.
+	 *
+	 * @param json Destino.
+	 * @return El mismo destino, para encadenar llamadas.
+	 */
+	public static StringBuilder appendStages(StringBuilder json) {
+		json.append('{');
+		boolean first = true;
+		for (StageMetrics stage : StageMetrics.values()) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			Json.string(json, stage.getName()).append(":{\"calls\":").append(stage.getCalls())
+					.append(",\"sentences\":").append(stage.getSentences())
+					.append(",\"tokens\":").append(stage.getTokens())
+					.append(",\"tokensPerSecond\":");
+			Json.number(json, stage.getTokensPerSecond()).append(",\"sentencesPerSecond\":");
+			Json.number(json, stage.getSentencesPerSecond())
+					.append(",\"meanMs\":").append(stage.getMeanMillis())
+					.append(",\"p50Ms\":").append(stage.getP50Millis())
+					.append(",\"p95Ms\":").append(stage.getP95Millis())
+					.append(",\"p99Ms\":").append(stage.getP99Millis())
+					.append(",\"maxMs\":").append(stage.getMaxMillis()).append('}');
+		}
+		return json.append('}');
+	}
+
+	/**
+	 * @brief Añade un array JSON con la ruta, el tipo, el tiempo de carga y el tamaño de cada modelo cargado.
+	 *
+	 * @param json Destino.
+	 * @return El mismo destino, para encadenar llamadas.
+	 */
+	public static StringBuilder appendModels(StringBuilder json) {
+		json.append('[');
+		boolean first = true;
+		for (ModelRegistry.ModelStats stats : ModelRegistry.getInstance().getAllStats()) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			json.append("{\"path\":");
+			Json.string(json, stats.getPath()).append(",\"type\":");
+			Json.string(json, stats.getType().getSimpleName())
+					.append(",\"loadMs\":").append(stats.getLoadTimeMillis())
+					.append(",\"fileBytes\":").append(stats.getFileBytes()).append('}');
+		}
+		return json.append(']');
+	}
+}
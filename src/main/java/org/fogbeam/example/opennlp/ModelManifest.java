@@ -0,0 +1,628 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import opennlp.tools.util.model.BaseModel;
+
+// Ejemplo de uso: java ModelManifest [-threads N] [-update]
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.ModelManifest"
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.NlpServer" -Dnlp.model.pos=models/en-pos.model
+
+/**
+ * @file ModelManifest.java
+ * @brief Manifiesto de los modelos del proyecto: ruta, tipo, idioma y SHA-256 de cada uno.
+ *
+ * Cada programa obtiene la ruta de sus modelos por nombre (sentence, tokenizer, pos, chunker,
+ * namefinder, doccat, parser...) en lugar de llevarla escrita en el código. Las rutas salen de
+ * models/manifest.properties, con una entrada por modelo:
+ *
+ *   pos.path=models/en-pos-perceptron.bin
+ *   pos.type=POSModel
+ *   pos.language=en
+ *   pos.sha256=...
+ *
+ * Los modelos que solo existen después de entrenarlos (pos-trained, el etiquetador que genera
+ * PartOfSpeechTaggerTrainer) llevan <nombre>.optional=true: si el fichero no existe, la
+ * validación lo anota como aviso en lugar de fallar. Los entrenadores escriben siempre en su
+ * propia entrada y nunca sobre un modelo preentrenado; para servir un modelo entrenado hay
+ * que cambiar explícitamente la ruta de la entrada que usan los programas (pos.path).
+ *
+ * El fichero puede cambiarse con la propiedad del sistema nlp.models.manifest, y la ruta de
+ * un modelo concreto con nlp.model.<nombre>; el SHA-256 del manifiesto corresponde a la ruta
+ * del manifiesto, así que no se comprueba para un modelo cuya ruta se ha cambiado. Si el
+ * fichero no existe se usan las rutas por defecto del proyecto, sin comprobación de SHA-256.
+ *
+ * validate() comprueba en paralelo todos los modelos antes de atender peticiones: que el
+ * fichero exista, que su SHA-256 coincida, que se cargue como el tipo indicado y que su
+ * idioma sea el esperado. Los modelos quedan cargados en el registro compartido (ver
+ * ModelRegistry), y el informe incluye lo que ha tardado cada comprobación.
+ */
+public final class ModelManifest {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(ModelManifest.class.getName());
+
+	/** Fichero del manifiesto por defecto. */
+	public static final String DEFAULT_FILE = "models/manifest.properties";
+	/** Propiedad del sistema con la ruta del fichero del manifiesto. */
+	public static final String FILE_PROPERTY = "nlp.models.manifest";
+	/** Prefijo de las propiedades del sistema que cambian la ruta de un modelo. */
+	public static final String PATH_PROPERTY_PREFIX = "nlp.model.";
+
+	/** Modelos del proyecto si no hay fichero de manifiesto: nombre, ruta y tipo. */
+	private static final String[][] DEFAULTS = {
+			{ "sentence", "models/en-sent.model", "SentenceModel" },
+			{ "tokenizer", "models/en-token.model", "TokenizerModel" },
+			{ "pos", "models/en-pos-perceptron.bin", "POSModel" },
+			{ "chunker", "models/en-chunker.model", "ChunkerModel" },
+			{ "namefinder", "models/en-ner-person.model", "TokenNameFinderModel" },
+			{ "doccat", "models/en-doccat.model", "DoccatModel" },
+			{ "parser", "models/en-parser-chunking.bin", "ParserModel" },
+			{ "pos-trained", "models/en-pos.model", "POSModel", "optional" } };
+
+	private final String file;
+	private final Map<String, Entry> entries;
+
+	/**
+	 * @brief Modelo descrito en el manifiesto.
+	 */
+	public static final class Entry {
+		private final String name;
+		private final String path;
+		private final Class<? extends BaseModel> type;
+		private final String language;
+		private final String sha256;
+		private final String manifestPath;
+		private final boolean optional;
+
+		Entry(String name, String path, Class<? extends BaseModel> type, String language, String sha256,
+				String manifestPath, boolean optional) {
+			this.name = name;
+			this.path = path;
+			this.type = type;
+			this.language = language;
+			this.sha256 = sha256;
+			this.manifestPath = manifestPath;
+			this.optional = optional;
+		}
+
+		/** @return Nombre del modelo en el manifiesto. */
+		public String getName() {
+			return name;
+		}
+
+		/** @return Ruta del fichero, incluida la de nlp.model.<nombre> si se indicó. */
+		public String getPath() {
+			return path;
+		}
+
+		/** @return Tipo del modelo. */
+		public Class<? extends BaseModel> getType() {
+			return type;
+		}
+
+		/** @return Idioma esperado, o null si no se comprueba. */
+		public String getLanguage() {
+			return language;
+		}
+
+		/** @return SHA-256 esperado en hexadecimal, o null si no se comprueba. */
+		public String getSha256() {
+			return sha256;
+		}
+
+		/** @return Ruta del fichero según el manifiesto, sin tener en cuenta nlp.model.<nombre>. */
+		public String getManifestPath() {
+			return manifestPath;
+		}
+
+		/** @return true si la ruta viene de nlp.model.<nombre> y no del manifiesto. */
+		public boolean isOverridden() {
+			return !path.equals(manifestPath);
+		}
+
+		/** @return true si el fichero puede no existir todavía (un modelo que se genera al entrenar). */
+		public boolean isOptional() {
+			return optional;
+		}
+	}
+
+	/**
+	 * @brief Resultado de comprobar un modelo.
+	 */
+	public static final class Check {
+		private final Entry entry;
+		private final String problem;
+		private final long fileBytes;
+		private final long hashNanos;
+		private final long loadNanos;
+
+		Check(Entry entry, String problem, long fileBytes, long hashNanos, long loadNanos) {
+			this.entry = entry;
+			this.problem = problem;
+			this.fileBytes = fileBytes;
+			this.hashNanos = hashNanos;
+			this.loadNanos = loadNanos;
+		}
+
+		/** @return Modelo comprobado. */
+		public Entry getEntry() {
+			return entry;
+		}
+
+		/** @return true si el modelo ha pasado todas las comprobaciones. */
+		public boolean isValid() {
+			return problem == null;
+		}
+
+		/** @return Descripción del problema encontrado, o null si no hay ninguno. */
+		public String getProblem() {
+			return problem;
+		}
+
+		/** @return Tiempo de cálculo del SHA-256, en milisegundos. */
+		public double getHashMillis() {
+			return hashNanos / 1_000_000.0;
+		}
+
+		/** @return Tiempo de carga del modelo, en milisegundos. */
+		public double getLoadMillis() {
+			return loadNanos / 1_000_000.0;
+		}
+	}
+
+	/**
+	 * @brief Informe de validación de todos los modelos del manifiesto.
+	 */
+	public static final class Report {
+		private final List<Check> checks;
+		private final List<String> warnings;
+		private final long elapsedNanos;
+
+		Report(List<Check> checks, List<String> warnings, long elapsedNanos) {
+			this.checks = Collections.unmodifiableList(checks);
+			this.warnings = Collections.unmodifiableList(warnings);
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/** @return Resultado de cada modelo, en el orden del manifiesto. */
+		public List<Check> getChecks() {
+			return checks;
+		}
+
+		/** @return Avisos que no impiden arrancar (por ejemplo, ficheros que no están en el manifiesto). */
+		public List<String> getWarnings() {
+			return warnings;
+		}
+
+		/** @return true si todos los modelos han pasado las comprobaciones. */
+		public boolean isValid() {
+			for (Check check : checks) {
+				if (!check.isValid()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/** @return Tiempo total de la validación, en milisegundos. */
+		public double getElapsedMillis() {
+			return elapsedNanos / 1_000_000.0;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder report = new StringBuilder("Model validation report:\n");
+			double sumMillis = 0;
+			for (Check check : checks) {
+				Entry entry = check.getEntry();
+				report.append(String.format("  %-20s %-6s %-32s %10d B  hash %7.1f ms  load %8.1f ms%s%n",
+						entry.getName(), check.isValid() ? "OK" : "FAILED", entry.getPath(), check.fileBytes,
+						check.getHashMillis(), check.getLoadMillis(),
+						check.isValid() ? "" : "  " + check.getProblem()));
+				sumMillis += check.getHashMillis() + check.getLoadMillis();
+			}
+			for (String warning : warnings) {
+				report.append("  warning: ").append(warning).append('\n');
+			}
+			report.append(String.format("  total %.1f ms (sum of checks %.1f ms)", getElapsedMillis(), sumMillis));
+			return report.toString();
+		}
+	}
+
+	private ModelManifest(String file, Map<String, Entry> entries) {
+		this.file = file;
+		this.entries = entries;
+	}
+
+	/**
+	 * @brief Manifiesto del proceso, leído la primera vez que se pide.
+	 */
+	private static final class Holder {
+		private static final ModelManifest DEFAULT = loadDefault();
+	}
+
+	/**
+	 * @brief Devuelve el manifiesto del proceso (nlp.models.manifest o models/manifest.properties).
+	 *
+	 * @return Manifiesto compartido.
+	 */
+	public static ModelManifest getDefault() {
+		return Holder.DEFAULT;
+	}
+
+	/**
+	 * @brief Atajo para la ruta de un modelo del manifiesto del proceso.
+	 *
+	 * @param name Nombre del modelo (por ejemplo "pos").
+	 * @return Ruta del fichero del modelo.
+	 * @throws IllegalArgumentException Si el manifiesto no tiene ese modelo.
+	 */
+	public static String path(String name) {
+		return getDefault().getPath(name);
+	}
+
+	private static ModelManifest loadDefault() {
+		String file = System.getProperty(FILE_PROPERTY, DEFAULT_FILE);
+		try {
+			return load(file);
+		} catch (IOException | IllegalArgumentException e) {
+			LOGGER.log(Level.WARNING, "Cannot read model manifest {0} ({1}), using default model paths",
+					new Object[] { file, e.getMessage() });
+			Map<String, Entry> entries = new LinkedHashMap<>();
+			for (String[] model : DEFAULTS) {
+				String path = System.getProperty(PATH_PROPERTY_PREFIX + model[0], model[1]);
+				entries.put(model[0], new Entry(model[0], path, ModelRegistry.typeNamed(model[2]), null, null, model[1],
+						model.length > 3));
+			}
+			return new ModelManifest(file, entries);
+		}
+	}
+
+	/**
+	 * @brief Lee un manifiesto; las propiedades nlp.model.<nombre> tienen prioridad sobre sus rutas.
+	 *
+	 * @param file Fichero del manifiesto.
+	 * @return Manifiesto leído.
+	 * @throws IOException Si el fichero no se puede leer.
+	 * @throws IllegalArgumentException Si una entrada no tiene ruta o tipo, o el tipo no existe.
+	 */
+	public static ModelManifest load(String file) throws IOException {
+		Properties properties = new Properties();
+		try (Reader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+			properties.load(in);
+		}
+
+		// Los nombres se ordenan por su primera aparición en el fichero, no por el orden de Properties.
+		List<String> names = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+			int equals = line.indexOf('=');
+			String key = equals < 0 ? "" : line.substring(0, equals).trim();
+			if (!key.startsWith("#") && key.endsWith(".path")) {
+				String name = key.substring(0, key.length() - ".path".length());
+				if (!names.contains(name)) {
+					names.add(name);
+				}
+			}
+		}
+
+		Map<String, Entry> entries = new LinkedHashMap<>();
+		for (String name : names) {
+			String path = properties.getProperty(name + ".path");
+			String type = properties.getProperty(name + ".type");
+			if (path == null || type == null) {
+				throw new IllegalArgumentException("La entrada " + name + " necesita path y type");
+			}
+			// El SHA-256 es el del fichero del manifiesto: no vale para otra ruta.
+			String actualPath = System.getProperty(PATH_PROPERTY_PREFIX + name, path);
+			entries.put(name, new Entry(name, actualPath, ModelRegistry.typeNamed(type),
+					properties.getProperty(name + ".language"),
+					actualPath.equals(path) ? properties.getProperty(name + ".sha256") : null, path,
+					Boolean.parseBoolean(properties.getProperty(name + ".optional"))));
+		}
+		return new ModelManifest(file, entries);
+	}
+
+	/**
+	 * @brief Devuelve la ruta de un modelo.
+	 *
+	 * @param name Nombre del modelo.
+	 * @return Ruta del fichero del modelo.
+	 * @throws IllegalArgumentException Si el manifiesto no tiene ese modelo.
+	 */
+	public String getPath(String name) {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			throw new IllegalArgumentException("Modelo desconocido en " + file + ": " + name);
+		}
+		return entry.getPath();
+	}
+
+	/** @return Modelos del manifiesto, en el orden del fichero. */
+	public Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	/** @return Fichero del que se leyó el manifiesto. */
+	public String getFile() {
+		return file;
+	}
+
+	/**
+	 * @brief Comprueba todos los modelos en paralelo y los deja cargados en el registro compartido.
+	 *
+	 * @param threads Número máximo de modelos comprobados a la vez.
+	 * @return Informe con el resultado y los tiempos de cada modelo.
+	 */
+	public Report validate(int threads) {
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, entries.size())));
+		List<Check> checks = new ArrayList<>();
+		List<String> warnings = new ArrayList<>();
+		try {
+			List<Future<Check>> futures = new ArrayList<>();
+			for (Entry entry : entries.values()) {
+				if (entry.isOptional() && !new File(entry.getPath()).isFile()) {
+					warnings.add(entry.getName() + ": " + entry.getPath() + " does not exist yet (optional model)");
+					continue;
+				}
+				futures.add(executor.submit(() -> check(entry)));
+			}
+			for (Future<Check> future : futures) {
+				checks.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Validación interrumpida", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error inesperado validando los modelos", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		warnings.addAll(unlistedFiles());
+		return new Report(checks, warnings, System.nanoTime() - start);
+	}
+
+	/**
+	 * @brief Comprueba los modelos y falla si alguno no es válido.
+	 *
+	 * @param threads Número máximo de modelos comprobados a la vez.
+	 * @return Informe de la validación, si todos los modelos son válidos.
+	 * @throws IOException Con la lista de problemas, si algún modelo no es válido.
+	 */
+	public Report validateOrThrow(int threads) throws IOException {
+		Report report = validate(threads);
+		if (!report.isValid()) {
+			StringBuilder problems = new StringBuilder("Modelos no válidos en " + file + ":");
+			for (Check check : report.getChecks()) {
+				if (!check.isValid()) {
+					problems.append("\n  ").append(check.getEntry().getName()).append(": ").append(check.getProblem());
+				}
+			}
+			throw new IOException(problems.toString());
+		}
+		return report;
+	}
+
+	private static Check check(Entry entry) {
+		File modelFile = new File(entry.getPath());
+		if (!modelFile.isFile()) {
+			return new Check(entry, "no existe el fichero", 0, 0, 0);
+		}
+
+		long hashNanos = 0;
+		if (entry.getSha256() != null) {
+			long start = System.nanoTime();
+			try {
+				String actual = sha256(modelFile);
+				hashNanos = System.nanoTime() - start;
+				if (!actual.equalsIgnoreCase(entry.getSha256())) {
+					return new Check(entry, "SHA-256 distinto: " + actual, modelFile.length(), hashNanos, 0);
+				}
+			} catch (IOException e) {
+				return new Check(entry, "no se puede leer: " + e.getMessage(), modelFile.length(), 0, 0);
+			}
+		}
+
+		long start = System.nanoTime();
+		BaseModel model;
+		try {
+			model = ModelRegistry.getInstance().get(entry.getPath(), entry.getType());
+		} catch (IOException | RuntimeException e) {
+			return new Check(entry, "no es un " + entry.getType().getSimpleName() + " válido: " + e.getMessage(),
+					modelFile.length(), hashNanos, System.nanoTime() - start);
+		}
+		long loadNanos = System.nanoTime() - start;
+
+		if (entry.getLanguage() != null && !entry.getLanguage().equals(model.getLanguage())) {
+			return new Check(entry, "idioma " + model.getLanguage() + ", se esperaba " + entry.getLanguage(),
+					modelFile.length(), hashNanos, loadNanos);
+		}
+		return new Check(entry, null, modelFile.length(), hashNanos, loadNanos);
+	}
+
+	/**
+	 * @brief Ficheros de los directorios de modelos que no aparecen en el manifiesto.
+	 */
+	private List<String> unlistedFiles() {
+		Set<Path> listed = new HashSet<>();
+		Set<Path> directories = new HashSet<>();
+		for (Entry entry : entries.values()) {
+			// Se revisan los directorios del manifiesto, no los de las rutas cambiadas con nlp.model.<nombre>.
+			Path path = Paths.get(entry.getManifestPath()).toAbsolutePath().normalize();
+			listed.add(path);
+			if (path.getParent() != null) {
+				directories.add(path.getParent());
+			}
+		}
+		listed.add(Paths.get(file).toAbsolutePath().normalize());
+
+		List<String> warnings = new ArrayList<>();
+		for (Path directory : directories) {
+			File[] files = directory.toFile().listFiles();
+			if (files == null) {
+				continue;
+			}
+			for (File candidate : files) {
+				// Los ficheros ocultos y .properties son de configuración (manifiestos, resúmenes de TrainAll).
+				if (candidate.isFile() && !candidate.getName().startsWith(".")
+						&& !candidate.getName().endsWith(".properties")
+						&& !listed.contains(candidate.toPath().toAbsolutePath().normalize())) {
+					warnings.add(candidate.getPath() + " is not listed in " + file);
+				}
+			}
+		}
+		Collections.sort(warnings);
+		return warnings;
+	}
+
+	/**
+	 * @brief Actualiza en el fichero del manifiesto el SHA-256 de los modelos indicados.
+	 *
+	 * Solo se reescriben las líneas <nombre>.sha256 de los modelos cuya ruta está en la lista
+	 * y no se ha cambiado con nlp.model.<nombre>; el resto del fichero, comentarios incluidos,
+	 * no cambia.
+	 *
+	 * @param modelPaths Rutas de los modelos a actualizar; las que no están en el manifiesto se ignoran.
+	 * @throws IOException Si el fichero o algún modelo no se puede leer o escribir.
+	 */
+	public synchronized void updateChecksums(Collection<String> modelPaths) throws IOException {
+		Path manifestFile = Paths.get(file);
+		if (!Files.exists(manifestFile)) {
+			return;
+		}
+		List<String> lines = new ArrayList<>(Files.readAllLines(manifestFile, StandardCharsets.UTF_8));
+		boolean changed = false;
+		for (Entry entry : entries.values()) {
+			if (entry.isOverridden() || !modelPaths.contains(entry.getPath()) || !new File(entry.getPath()).isFile()) {
+				continue;
+			}
+			String line = entry.getName() + ".sha256=" + sha256(new File(entry.getPath()));
+			int pathLine = -1;
+			int shaLine = -1;
+			for (int i = 0; i < lines.size(); i++) {
+				if (lines.get(i).startsWith(entry.getName() + ".sha256")) {
+					shaLine = i;
+				} else if (lines.get(i).startsWith(entry.getName() + ".path")) {
+					pathLine = i;
+				}
+			}
+			if (shaLine >= 0) {
+				changed |= !lines.get(shaLine).equals(line);
+				lines.set(shaLine, line);
+			} else {
+				lines.add(pathLine >= 0 ? pathLine + 1 : lines.size(), line);
+				changed = true;
+			}
+		}
+		if (changed) {
+			Files.write(manifestFile, lines, StandardCharsets.UTF_8);
+			LOGGER.info(String.format("Updated model checksums in %s", file));
+		}
+	}
+
+	/**
+	 * @brief Actualiza en el manifiesto del proceso el SHA-256 de un modelo recién guardado.
+	 *
+	 * Cada entrenador la llama al escribir su modelo, de modo que un modelo reentrenado (y
+	 * quizá ya recargado por ModelWatcher) pasa la validación del siguiente arranque sin
+	 * ejecutar ModelManifest -update. Con TrainAll los entrenadores corren en paralelo, así que
+	 * updateChecksums() está sincronizado.
+	 *
+	 * @param modelPath Ruta del modelo; si no está en el manifiesto o su ruta se cambió con
+	 *                  nlp.model.<nombre>, no se hace nada.
+	 * @throws IOException Si el manifiesto o el modelo no se pueden leer o escribir.
+	 */
+	public static void updateChecksum(String modelPath) throws IOException {
+		getDefault().updateChecksums(Collections.singletonList(modelPath));
+	}
+
+	/**
+	 * @brief Calcula el SHA-256 de un fichero, en hexadecimal.
+	 */
+	static String sha256(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * @brief Metodo principal del programa: valida los modelos y muestra el informe.
+	 *
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -threads N, modelos comprobados a la vez (uno por procesador por defecto).
+	 *             - Opcional: -update para escribir en el manifiesto el SHA-256 actual de cada modelo.
+	 * @throws Exception En caso de errores durante la ejecución.
+	 */
+	public static void main(String[] args) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean update = false;
+		for (int i = 0; i < args.length; i++) {
+			if ("-threads".equals(args[i]) && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if ("-update".equals(args[i])) {
+				update = true;
+			} else {
+				LOGGER.severe("Uso: java ModelManifest [-threads N] [-update]");
+				System.exit(1);
+			}
+		}
+
+		ModelManifest manifest = getDefault();
+		if (update) {
+			List<String> paths = new ArrayList<>();
+			for (Entry entry : manifest.getEntries()) {
+				paths.add(entry.getPath());
+			}
+			manifest.updateChecksums(paths);
+			manifest = load(manifest.getFile());
+		}
+
+		Report report = manifest.validate(threads);
+		LOGGER.info(report.toString());
+		if (!report.isValid()) {
+			System.exit(1);
+		}
+	}
+}
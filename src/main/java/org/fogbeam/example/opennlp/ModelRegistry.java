@@ -0,0 +1,434 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.model.BaseModel;
+
+/**
+ * @file ModelRegistry.java
+ * @brief Registro compartido de modelos de OpenNLP cargados una única vez por proceso.
+ *
+ * Los modelos de OpenNLP son inmutables una vez deserializados, por lo que pueden
+ * compartirse entre hilos. Este registro carga cada modelo la primera vez que se pide
+ * (identificado por su ruta y su tipo) y devuelve la misma instancia en las llamadas
+ * siguientes. Si varios hilos piden el mismo modelo a la vez, solo uno lo deserializa
+ * y el resto espera al resultado. Para cada modelo se guardan métricas de carga.
+ *
+ * Por defecto los ficheros se proyectan en memoria con FileChannel.map y el lector zip
+ * de OpenNLP lee directamente del búfer proyectado, lo que evita una llamada al sistema
+ * por cada lectura pequeña. El modo de carga puede cambiarse con setLoadMode() o con la
+ * propiedad del sistema nlp.models.loadMode (MAPPED o STREAM).
+ */
+public final class ModelRegistry {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(ModelRegistry.class.getName());
+
+	/**
+	 * @brief Forma de leer los ficheros de modelo.
+	 */
+	public enum LoadMode {
+		/** Proyección del fichero en memoria (FileChannel.map). */
+		MAPPED,
+		/** Lectura con un flujo con búfer (BufferedInputStream). */
+		STREAM
+	}
+
+	/** Instancia compartida por todo el proceso. */
+	private static final ModelRegistry INSTANCE = new ModelRegistry();
+
+	/** Funciones de deserialización para cada tipo de modelo soportado. */
+	private static final Map<Class<? extends BaseModel>, ModelLoader<? extends BaseModel>> LOADERS = new HashMap<>();
+
+	static {
+		LOADERS.put(TokenizerModel.class, TokenizerModel::new);
+		LOADERS.put(SentenceModel.class, SentenceModel::new);
+		LOADERS.put(POSModel.class, POSModel::new);
+		LOADERS.put(ChunkerModel.class, ChunkerModel::new);
+		LOADERS.put(TokenNameFinderModel.class, TokenNameFinderModel::new);
+		LOADERS.put(DoccatModel.class, DoccatModel::new);
+		LOADERS.put(ParserModel.class, ParserModel::new);
+	}
+
+	/** Modelos cargados (o en proceso de carga), indexados por ruta y tipo. */
+	private final ConcurrentMap<ModelKey, FutureTask<LoadedModel>> models = new ConcurrentHashMap<>();
+
+	/** Modo usado para las cargas siguientes. */
+	private volatile LoadMode loadMode = defaultLoadMode();
+
+	private ModelRegistry() {
+	}
+
+	/**
+	 * @brief Lee el modo de carga de la propiedad nlp.models.loadMode, sin distinguir mayúsculas.
+	 *
+	 * Un valor no válido no debe impedir crear el registro (sería un ExceptionInInitializerError
+	 * en el primer uso): se avisa y se usa MAPPED.
+	 */
+	private static LoadMode defaultLoadMode() {
+		String value = System.getProperty("nlp.models.loadMode", LoadMode.MAPPED.name());
+		try {
+			return LoadMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			LOGGER.warning(String.format("Invalid nlp.models.loadMode '%s' (expected MAPPED or STREAM), using %s",
+					value, LoadMode.MAPPED));
+			return LoadMode.MAPPED;
+		}
+	}
+
+	/**
+	 * @brief Devuelve el registro compartido del proceso.
+	 *
+	 * @return Instancia única del registro.
+	 */
+	public static ModelRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @brief Devuelve el tipo de modelo soportado con el nombre simple indicado.
+	 *
+	 * @param simpleName Nombre de la clase sin paquete (por ejemplo "POSModel").
+	 * @return Clase del modelo.
+	 * @throws IllegalArgumentException Si el registro no sabe cargar ese tipo.
+	 */
+	public static Class<? extends BaseModel> typeNamed(String simpleName) {
+		for (Class<? extends BaseModel> type : LOADERS.keySet()) {
+			if (type.getSimpleName().equals(simpleName)) {
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported model type: " + simpleName);
+	}
+
+	/**
+	 * @brief Cambia la forma de leer los ficheros en las cargas siguientes.
+	 *
+	 * @param loadMode Nuevo modo de carga.
+	 */
+	public void setLoadMode(LoadMode loadMode) {
+		this.loadMode = Objects.requireNonNull(loadMode, "loadMode");
+	}
+
+	/** @return Modo de carga actual. */
+	public LoadMode getLoadMode() {
+		return loadMode;
+	}
+
+	/**
+	 * @brief Devuelve el modelo indicado, cargándolo del disco solo la primera vez.
+	 *
+	 * @param path Ruta del fichero del modelo (por ejemplo "models/en-chunker.model").
+	 * @param type Clase del modelo esperado (por ejemplo ChunkerModel.class).
+	 * @return El modelo compartido.
+	 * @throws IOException Si el fichero no existe o no contiene un modelo válido del tipo pedido.
+	 */
+	public <T extends BaseModel> T get(String path, Class<T> type) throws IOException {
+		ModelKey key = new ModelKey(path, type);
+		FutureTask<LoadedModel> task = models.get(key);
+		if (task == null) {
+			LoadMode mode = loadMode;
+			FutureTask<LoadedModel> newTask = new FutureTask<>(() -> load(key, mode));
+			task = models.putIfAbsent(key, newTask);
+			if (task == null) {
+				task = newTask;
+				newTask.run();
+			}
+		}
+
+		try {
+			return type.cast(task.get().model);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading model " + path, e);
+		} catch (ExecutionException e) {
+			// No se guardan los fallos: el siguiente intento vuelve a leer el fichero.
+			models.remove(key, task);
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Error loading model " + path, cause);
+		}
+	}
+
+	/**
+	 * @brief Vuelve a leer un modelo del disco y lo guarda en lugar del anterior.
+	 *
+	 * El modelo nuevo se deserializa en el hilo que llama, sin tocar el registro: mientras
+	 * tanto get() sigue devolviendo el anterior. Solo cuando la carga termina bien se
+	 * sustituye la entrada; si falla, el registro se queda como estaba.
+	 *
+	 * La recarga lee siempre en modo STREAM: el fichero puede estar reescribiéndose, y
+	 * truncar un fichero proyectado en memoria mientras se lee hace fallar a la JVM.
+	 *
+	 * @param path Ruta del fichero del modelo.
+	 * @param type Clase del modelo.
+	 * @return El modelo recién cargado.
+	 * @throws IOException Si el fichero no contiene un modelo válido del tipo pedido.
+	 */
+	public <T extends BaseModel> T reload(String path, Class<T> type) throws IOException {
+		ModelKey key = new ModelKey(path, type);
+		FutureTask<LoadedModel> task = new FutureTask<>(() -> load(key, LoadMode.STREAM));
+		task.run();
+		try {
+			T model = type.cast(task.get().model);
+			models.put(key, task);
+			return model;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading model " + path, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Error loading model " + path, cause);
+		}
+	}
+
+	/**
+	 * @brief Devuelve las métricas de un modelo ya cargado.
+	 *
+	 * @param path Ruta del fichero del modelo.
+	 * @param type Clase del modelo.
+	 * @return Métricas del modelo, o null si todavía no se ha cargado.
+	 */
+	public ModelStats getStats(String path, Class<? extends BaseModel> type) {
+		LoadedModel loaded = completed(models.get(new ModelKey(path, type)));
+		return loaded == null ? null : loaded.stats;
+	}
+
+	/**
+	 * @brief Devuelve las métricas de todos los modelos cargados hasta el momento.
+	 *
+	 * @return Colección con las métricas de cada modelo.
+	 */
+	public Collection<ModelStats> getAllStats() {
+		List<ModelStats> stats = new ArrayList<>();
+		for (FutureTask<LoadedModel> task : models.values()) {
+			LoadedModel loaded = completed(task);
+			if (loaded != null) {
+				stats.add(loaded.stats);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * @brief Vacía el registro. Las instancias ya entregadas siguen siendo válidas.
+	 */
+	public void clear() {
+		models.clear();
+	}
+
+	/**
+	 * @brief Devuelve el resultado de una carga terminada con éxito, sin bloquear.
+	 */
+	private static LoadedModel completed(FutureTask<LoadedModel> task) {
+		if (task == null || !task.isDone()) {
+			return null;
+		}
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @brief Deserializa un modelo del disco y mide el tiempo y la memoria empleados.
+	 */
+	private static LoadedModel load(ModelKey key, LoadMode mode) throws IOException {
+		ModelLoader<? extends BaseModel> loader = LOADERS.get(key.type);
+		if (loader == null) {
+			throw new IllegalArgumentException("Unsupported model type: " + key.type.getName());
+		}
+
+		File file = new File(key.path);
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long heapBefore = memory.getHeapMemoryUsage().getUsed();
+		long start = System.nanoTime();
+
+		BaseModel model;
+		try (InputStream modelIn = open(file, mode)) {
+			model = loader.load(modelIn);
+		}
+
+		long loadTimeNanos = System.nanoTime() - start;
+		long heapDelta = Math.max(0L, memory.getHeapMemoryUsage().getUsed() - heapBefore);
+		ModelStats stats = new ModelStats(key.path, key.type, mode, file.length(), loadTimeNanos, heapDelta);
+
+		if (LOGGER.isLoggable(Level.INFO)) {
+			LOGGER.info(String.format("Loaded %s from %s in %.1f ms (%s, %d bytes on disk, ~%d bytes of heap)",
+					key.type.getSimpleName(), key.path, stats.getLoadTimeMillis(), mode,
+					stats.getFileBytes(), stats.getHeapBytes()));
+		}
+		return new LoadedModel(model, stats);
+	}
+
+	/**
+	 * @brief Abre un fichero de modelo según el modo de carga.
+	 *
+	 * En modo MAPPED el canal puede cerrarse nada más proyectar el fichero: la proyección
+	 * sigue siendo válida hasta que el búfer deja de usarse.
+	 */
+	private static InputStream open(File file, LoadMode mode) throws IOException {
+		if (mode == LoadMode.STREAM) {
+			return new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new ByteBufferInputStream(buffer);
+		}
+	}
+
+	/**
+	 * @brief Función que construye un modelo a partir de un flujo de entrada.
+	 */
+	@FunctionalInterface
+	private interface ModelLoader<T extends BaseModel> {
+		T load(InputStream in) throws IOException;
+	}
+
+	/**
+	 * @brief Clave de un modelo en el registro: ruta del fichero y tipo esperado.
+	 */
+	private static final class ModelKey {
+		private final String path;
+		private final Class<? extends BaseModel> type;
+
+		ModelKey(String path, Class<? extends BaseModel> type) {
+			this.path = Objects.requireNonNull(path, "path");
+			this.type = Objects.requireNonNull(type, "type");
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof ModelKey)) {
+				return false;
+			}
+			ModelKey other = (ModelKey) o;
+			return path.equals(other.path) && type.equals(other.type);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * path.hashCode() + type.hashCode();
+		}
+	}
+
+	/**
+	 * @brief Modelo cargado junto con sus métricas.
+	 */
+	private static final class LoadedModel {
+		private final BaseModel model;
+		private final ModelStats stats;
+
+		LoadedModel(BaseModel model, ModelStats stats) {
+			this.model = model;
+			this.stats = stats;
+		}
+	}
+
+	/**
+	 * @brief Métricas de carga de un modelo.
+	 *
+	 * La memoria ocupada es una estimación: se calcula como el crecimiento del heap
+	 * durante la deserialización, por lo que puede verse afectada por otras cargas
+	 * simultáneas o por el recolector de basura.
+	 */
+	public static final class ModelStats {
+		private final String path;
+		private final Class<? extends BaseModel> type;
+		private final LoadMode loadMode;
+		private final long fileBytes;
+		private final long loadTimeNanos;
+		private final long heapBytes;
+
+		ModelStats(String path, Class<? extends BaseModel> type, LoadMode loadMode, long fileBytes,
+				long loadTimeNanos, long heapBytes) {
+			this.path = path;
+			this.type = type;
+			this.loadMode = loadMode;
+			this.fileBytes = fileBytes;
+			this.loadTimeNanos = loadTimeNanos;
+			this.heapBytes = heapBytes;
+		}
+
+		/** @return Ruta del fichero del modelo. */
+		public String getPath() {
+			return path;
+		}
+
+		/** @return Tipo del modelo. */
+		public Class<? extends BaseModel> getType() {
+			return type;
+		}
+
+		/** @return Modo con el que se leyó el fichero. */
+		public LoadMode getLoadMode() {
+			return loadMode;
+		}
+
+		/** @return Tamaño del fichero en disco, en bytes. */
+		public long getFileBytes() {
+			return fileBytes;
+		}
+
+		/** @return Tiempo de carga, en nanosegundos. */
+		public long getLoadTimeNanos() {
+			return loadTimeNanos;
+		}
+
+		/** @return Tiempo de carga, en milisegundos. */
+		public double getLoadTimeMillis() {
+			return loadTimeNanos / 1_000_000.0;
+		}
+
+		/** @return Memoria de heap estimada que ocupa el modelo, en bytes. */
+		public long getHeapBytes() {
+			return heapBytes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%s] %s load=%.1f ms file=%d B heap~%d B",
+					type.getSimpleName(), path, loadMode, getLoadTimeMillis(), fileBytes, heapBytes);
+		}
+	}
+}
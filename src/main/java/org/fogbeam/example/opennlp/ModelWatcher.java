@@ -0,0 +1,229 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import opennlp.tools.util.model.BaseModel;
+
+/**
+ * @file ModelWatcher.java
+ * @brief Recarga en caliente los modelos cuando un entrenador reescribe su fichero.
+ *
+ * Vigila con un WatchService los directorios de los modelos registrados. Cuando un fichero
+ * vigilado cambia, espera a que deje de cambiar durante un intervalo (los entrenadores lo
+ * escriben poco a poco), lo carga en un hilo propio con ModelRegistry.reload() y, solo si la
+ * carga termina bien, lo pasa a los MEPool registrados con MEPool.swap(). Las peticiones
+ * siguientes usan el modelo nuevo sin esperar a ninguna carga; las que estaban en curso
+ * terminan con el anterior, y el watcher espera a que acaben antes de dar el cambio por hecho.
+ *
+ * Si el fichero nuevo no es un modelo válido (por ejemplo, porque la escritura no había
+ * terminado), el modelo anterior sigue en uso y se reintenta con el siguiente cambio.
+ */
+public final class ModelWatcher implements AutoCloseable {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(ModelWatcher.class.getName());
+
+	/** Tiempo sin cambios en un fichero antes de recargarlo, por defecto. */
+	public static final long DEFAULT_QUIET_MILLIS = 1000;
+	/** Tiempo máximo de espera a las peticiones en curso sobre el modelo anterior. */
+	public static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+	private final WatchService watchService;
+	private final long quietMillis;
+	private final Map<Path, Watched<?>> watched = new ConcurrentHashMap<>();
+	private final Set<Path> directories = new HashSet<>();
+	private final Map<Path, ScheduledFuture<?>> pending = new HashMap<>();
+	private final ScheduledExecutorService loader;
+	private final AtomicLong reloads = new AtomicLong();
+	private Thread thread;
+
+	/**
+	 * @brief Modelo vigilado y pools a los que se pasa cada versión nueva.
+	 */
+	private static final class Watched<M extends BaseModel> {
+		private final String path;
+		private final Class<M> type;
+		private final List<MEPool<M, ?>> pools = new CopyOnWriteArrayList<>();
+
+		Watched(String path, Class<M> type) {
+			this.path = path;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * @brief Crea un watcher con el intervalo sin cambios por defecto.
+	 *
+	 * @throws IOException Si el sistema de ficheros no permite vigilar directorios.
+	 */
+	public ModelWatcher() throws IOException {
+		this(DEFAULT_QUIET_MILLIS);
+	}
+
+	/**
+	 * @brief Crea un watcher.
+	 *
+	 * @param quietMillis Tiempo que un fichero debe pasar sin cambios antes de recargarlo.
+	 * @throws IOException Si el sistema de ficheros no permite vigilar directorios.
+	 */
+	public ModelWatcher(long quietMillis) throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.quietMillis = quietMillis;
+		this.loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread loaderThread = new Thread(runnable, "model-watcher-loader");
+			loaderThread.setDaemon(true);
+			return loaderThread;
+		});
+	}
+
+	/**
+	 * @brief Registra un pool que debe recibir las versiones nuevas de un modelo.
+	 *
+	 * @param path Ruta del fichero del modelo.
+	 * @param type Clase del modelo.
+	 * @param pool Pool cuyo modelo se sustituye en cada recarga.
+	 * @throws IOException Si no se puede vigilar el directorio del modelo.
+	 */
+	public synchronized <M extends BaseModel> void watch(String path, Class<M> type, MEPool<M, ?> pool)
+			throws IOException {
+		Path file = Paths.get(path).toAbsolutePath().normalize();
+		Watched<?> existing = watched.computeIfAbsent(file, key -> new Watched<>(path, type));
+		if (existing.type != type) {
+			throw new IllegalArgumentException(path + " ya se vigila como " + existing.type.getSimpleName());
+		}
+		@SuppressWarnings("unchecked")
+		Watched<M> entry = (Watched<M>) existing;
+		entry.pools.add(pool);
+
+		Path directory = file.getParent();
+		if (directories.add(directory)) {
+			directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+	}
+
+	/**
+	 * @brief Empieza a vigilar en un hilo de fondo.
+	 */
+	public synchronized void start() {
+		if (thread == null) {
+			thread = new Thread(this::run, "model-watcher");
+			thread.setDaemon(true);
+			thread.start();
+			LOGGER.info(String.format("Watching %d models in %s", watched.size(), directories));
+		}
+	}
+
+	/** @return Número de recargas completadas. */
+	public long getReloadCount() {
+		return reloads.get();
+	}
+
+	/**
+	 * @brief Deja de vigilar. Una recarga en curso se interrumpe y el modelo anterior sigue en uso.
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+		loader.shutdownNow();
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Path directory = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						// Se han perdido eventos: se recargan todos los modelos del directorio.
+						for (Path file : watched.keySet()) {
+							if (file.getParent().equals(directory)) {
+								schedule(file);
+							}
+						}
+					} else {
+						Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+						if (watched.containsKey(file)) {
+							schedule(file);
+						}
+					}
+				}
+				key.reset();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// close(): fin normal del hilo.
+		}
+	}
+
+	/**
+	 * @brief Programa la recarga de un fichero; cada cambio nuevo vuelve a empezar la espera.
+	 */
+	private void schedule(Path file) {
+		synchronized (pending) {
+			ScheduledFuture<?> previous = pending.get(file);
+			if (previous != null) {
+				previous.cancel(false);
+			}
+			pending.put(file, loader.schedule(() -> reload(file), quietMillis, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	private void reload(Path file) {
+		synchronized (pending) {
+			pending.remove(file);
+		}
+		reload(watched.get(file));
+	}
+
+	private <M extends BaseModel> void reload(Watched<M> entry) {
+		M model;
+		try {
+			model = ModelRegistry.getInstance().reload(entry.path, entry.type);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Cannot reload {0}, keeping the previous model: {1}",
+					new Object[] { entry.path, e.getMessage() });
+			return;
+		}
+
+		try {
+			for (MEPool<M, ?> pool : entry.pools) {
+				long start = System.nanoTime();
+				boolean drained = pool.swap(model, DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+				double millis = (System.nanoTime() - start) / 1_000_000.0;
+				if (drained) {
+					LOGGER.info(String.format("Swapped %s (generation %d), previous version drained in %.1f ms",
+							entry.path, pool.getGeneration(), millis));
+				} else {
+					LOGGER.warning(String.format("Swapped %s (generation %d), previous version still in use after %d s",
+							entry.path, pool.getGeneration(), DRAIN_TIMEOUT_SECONDS));
+				}
+			}
+			reloads.incrementAndGet();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
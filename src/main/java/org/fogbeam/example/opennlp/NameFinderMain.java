@@ -1,9 +1,16 @@
 
 package org.fogbeam.example.opennlp;
 
-import java.io.FileInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
 
 import opennlp.tools.namefind.NameFinderME;
 import opennlp.tools.namefind.TokenNameFinderModel;
@@ -17,7 +24,17 @@ import java.util.logging.Logger;
  * @brief Programa principal para la detección de nombres propios en texto utilizando OpenNLP.
  *
  * Este programa carga un modelo de detección de entidades nombradas, procesa un conjunto
- * de tokens para identificar nombres propios y muestra los resultados.
+ * de tokens para identificar nombres propios y escribe los resultados con un ResultSink en
+ * el formato elegido (CoNLL por defecto, con la entidad de cada token en formato BIO).
+ *
+ * Si se le pasan archivos, funciona en modo por lotes: cada archivo se divide en
+ * documentos (separados por líneas en blanco), oraciones y tokens, y las entidades
+ * encontradas se escriben con sus posiciones de carácter en el archivo de salida.
+ *
+ * Ejemplo: mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.NameFinderMain"
+ *              -Dexec.args="demo_data/en-ner-person.demo entidades.tsv"
+ *          mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.NameFinderMain"
+ *              -Dexec.args="-format jsonl -out entidades.jsonl"
  */
 public class NameFinderMain
 {
@@ -30,20 +47,48 @@ public class NameFinderMain
 	 * Este metodo carga un modelo de detección de entidades nombradas (NER, por sus siglas en inglés),
 	 * identifica nombres propios en un conjunto de tokens y muestra las entidades detectadas.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados en este programa).
+	 * @param args Argumentos de línea de comandos: para la demostración, opcionalmente
+	 *             -format conll|jsonl|binary|corpus y -out archivo (salida estándar por defecto); o bien
+	 *             archivos de entrada seguidos del archivo de salida para el modo por lotes.
 	 * @throws Exception En caso de errores durante la ejecución.
 	 */
 	public static void main(String[] args) throws Exception
 	{
-		InputStream modelIn = null; /**< Flujo de entrada para cargar el modelo NER. */
+		ResultSink.Format format = ResultSink.Format.CONLL;
+		String outputFileName = null;
+		int firstInput = 0;
+		while (firstInput + 1 < args.length && args[firstInput].startsWith("-"))
+		{
+			if ("-format".equals(args[firstInput]))
+			{
+				format = ResultSink.Format.fromName(args[firstInput + 1]);
+			}
+			else if ("-out".equals(args[firstInput]))
+			{
+				outputFileName = args[firstInput + 1];
+			}
+			else
+			{
+				break;
+			}
+			firstInput += 2;
+		}
+		MetricsReporter metrics = MetricsReporter.install();
+
+		if (args.length - firstInput >= 2)
+		{
+			runBatch(Arrays.copyOfRange(args, firstInput, args.length));
+			metrics.report();
+			return;
+		}
+
 		try
 		{
-			// Carga el modelo preentrenado de detección de entidades nombradas desde un archivo.
-			modelIn = new FileInputStream("models/en-ner-person.model");
-			TokenNameFinderModel model = new TokenNameFinderModel(modelIn);
+			// Obtiene el modelo preentrenado de detección de entidades nombradas del registro compartido.
+			TokenNameFinderModel model = ModelRegistry.getInstance().get(Pipeline.NAME_FINDER_MODEL, TokenNameFinderModel.class);
 
-			// Inicializa el motor de detección de nombres con el modelo cargado.
-			NameFinderME nameFinder = new NameFinderME(model);
+			// Pool de detectores de nombres sobre el modelo cargado.
+			MEPool<TokenNameFinderModel, NameFinderME> nameFinders = MEPool.nameFinders(model);
 
 			// Tokens de entrada que representan una oración tokenizada.
 			String[] tokens = {
@@ -57,55 +102,69 @@ public class NameFinderMain
 					"."
 			};
 
-			// Realiza la detección de nombres propios en los tokens de entrada.
-			Span[] names = nameFinder.find(tokens);
+			// Realiza la detección de nombres propios en los tokens de entrada. Al terminar el
+			// documento, el pool limpia los datos adaptativos del detector.
+			long start = System.nanoTime();
+			Span[] names = nameFinders.apply(nameFinder -> nameFinder.find(tokens));
+			StageMetrics.FIND.record(start, 1, tokens.length);
 
-			/**
-			 * Itera sobre las entidades detectadas (nombres propios).
-			 * Cada objeto Span contiene:
-			 * - Índice de inicio y fin de la entidad en el array de tokens.
-			 * - Tipo de entidad (por ejemplo, "person").
-			 */
-			for (Span ns : names)
+			// Escribe los tokens con la entidad a la que pertenece cada uno, en el formato elegido.
+			try (ResultSink sink = ResultSink.open(format, outputFileName))
 			{
-				// Reemplaza el uso de System.out con el logger.
-				LOGGER.log(Level.INFO, "Entity span: {0}", ns);
-
-				// Ejemplo para extraer y mostrar el texto correspondiente a la entidad.
-				StringBuilder sb = new StringBuilder();
-				for (int i = ns.getStart(); i < ns.getEnd(); i++)
-				{
-					sb.append(tokens[i]).append(" ");
-				}
-				LOGGER.log(Level.INFO, "Detected name: {0}", sb.toString().trim());
+				sink.write(new AnnotatedSentence(null, null, tokens, null, null, null, names));
 			}
-
-			// Limpia los datos adaptativos del modelo.
-			nameFinder.clearAdaptiveData();
 		}
 		catch (IOException e)
 		{
 			// En desarrollo: registrar detalles del error para depuración
-			LOGGER.log(Level.SEVERE, "Error loading the model: {0}", e.getMessage());
+			LOGGER.log(Level.SEVERE, "Error loading the model or writing the results: {0}", e.getMessage());
 		}
-		finally
+
+		// Indica que el programa ha finalizado, con las métricas de la detección.
+		metrics.report();
+		LOGGER.log(Level.INFO, "done");
+	}
+
+	/**
+	 * @brief Busca entidades en varios archivos y las escribe en un archivo de salida.
+	 *
+	 * Cada línea de salida tiene las columnas: archivo, inicio, fin, tipo y texto de la entidad.
+	 * Se usa un único DocumentNameFinder para todos los archivos; sus datos adaptativos se
+	 * borran al final de cada documento.
+	 *
+	 * @param args Archivos de entrada seguidos del archivo de salida.
+	 * @throws IOException En caso de errores al cargar los modelos o al escribir la salida.
+	 */
+	private static void runBatch(String[] args) throws IOException
+	{
+		String outputFileName = args[args.length - 1];
+		DocumentNameFinder finder = DocumentNameFinder.fromRegistry();
+		int entityCount = 0;
+
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(outputFileName), StandardCharsets.UTF_8)))
 		{
-			// Cierra el flujo de entrada del modelo si está abierto.
-			if (modelIn != null)
+			for (int i = 0; i < args.length - 1; i++)
 			{
-				try
+				File inputFile = new File(args[i]);
+				if (!inputFile.exists())
 				{
-					modelIn.close();
+					LOGGER.log(Level.WARNING, "File {0} does not exist. Skipping.", inputFile.getName());
+					continue;
 				}
-				catch (IOException e)
+
+				String text = new String(Files.readAllBytes(inputFile.toPath()), StandardCharsets.UTF_8);
+				List<Span> names = finder.findAll(text);
+				for (Span name : names)
 				{
-					// Registra cualquier error al cerrar el flujo.
-					LOGGER.log(Level.WARNING, "Error closing model input stream: {0}", e.getMessage());
+					writer.write(inputFile.getPath() + "\t" + name.getStart() + "\t" + name.getEnd() + "\t"
+							+ name.getType() + "\t" + name.getCoveredText(text) + "\n");
 				}
+				entityCount += names.size();
 			}
 		}
 
-		// Indica que el programa ha finalizado.
-		LOGGER.log(Level.INFO, "done");
+		LOGGER.log(Level.INFO, "Found {0} entities. Results written to: {1}",
+				new Object[]{entityCount, outputFileName});
 	}
 }
\ No newline at end of file
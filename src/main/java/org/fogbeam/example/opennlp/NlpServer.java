@@ -0,0 +1,516 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.parser.Parse;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+// Ejemplo de uso: java NlpServer [-port 8080] [-threads N]
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.NlpServer" -Dexec.args="-port 8080"
+// curl --data-binary @demo_data/en-sent1.demo http://localhost:8080/sentences
+// curl --data-binary 'Pierre Vinken is 61 years old.' 'http://localhost:8080/parse?k=2'
+
+/**
+ * @file NlpServer.java
+ * @brief Servidor HTTP con todos los componentes de OpenNLP y los modelos ya cargados.
+ *
+ * Evita pagar el arranque de la JVM y la carga de los modelos en cada llamada: los modelos
+ * se cargan una vez al iniciar el servidor (ver ModelRegistry) y cada petición solo hace el
+ * trabajo de anotación. Endpoints (POST, texto UTF-8 en el cuerpo):
+ *
+ *   /tokenize   tokens y sus posiciones.
+ *   /sentences  oraciones y sus posiciones.
+ *   /pos        tokens y etiquetas gramaticales.
+ *   /chunk      tokens, etiquetas gramaticales y fragmentos.
+ *   /ner        entidades con sus posiciones (ver DocumentNameFinder).
+ *   /doccat     categoría y probabilidades de cada categoría (con caché, ver CachingCategorizer).
+ *   /parse      los k mejores árboles sintácticos (?k=N, 1 por defecto, como mucho ParserService.MAX_K).
+ *   /metrics    (GET) latencias por endpoint y por etapa (ver StageMetrics), aciertos de la
+ *               caché de /doccat y tiempos de carga de los modelos.
+ *
+ * Cada línea del cuerpo es una entrada independiente, de modo que un cliente puede agrupar
+ * muchas oraciones o documentos en una sola petición; la respuesta es un objeto JSON con un
+ * resultado por línea, en el mismo orden. Todas las líneas de una petición se procesan en el
+ * mismo hilo con las mismas instancias ME (ver MEPool).
+ *
+ * Las peticiones se atienden en hilos virtuales si la JVM los ofrece (Java 21 o posterior);
+ * si no, en un pool de hilos de tamaño fijo (-threads N); ver VirtualThreads. Con hilos
+ * virtuales, estos solo leen y escriben por la red: la anotación se hace en un pool fijo de
+ * -threads N hilos normales, de modo que las instancias ME de cada hilo (ver MEPool), y en
+ * especial los Parser, se crean una vez y no en cada petición.
+ *
+ * Los modelos de fragmentación y de entidades se recargan en caliente cuando se reescribe su
+ * fichero (ver ModelWatcher), sin reiniciar el servidor ni cortar las peticiones en curso.
+ */
+public class NlpServer {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(NlpServer.class.getName());
+
+	/** Tamaño máximo del cuerpo de una petición. */
+	private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+	/**
+	 * @brief Anotación de una línea de entrada, escrita como objeto JSON.
+	 */
+	@FunctionalInterface
+	interface LineAnnotator {
+		void annotate(String line, Map<String, String> params, StringBuilder json);
+	}
+
+	/**
+	 * @brief Métricas de un endpoint.
+	 */
+	private static final class EndpointMetrics {
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final LongAdder lines = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	/** Pool de la anotación con hilos virtuales, o null si la anotación se hace en executor. */
+	private final ExecutorService inference;
+	private final boolean virtualThreads;
+	private final Map<String, EndpointMetrics> metrics = new LinkedHashMap<>();
+
+	private final MEPool<SentenceModel, SentenceDetectorME> sentenceDetectors;
+	private final MEPool<TokenizerModel, TokenizerME> tokenizers;
+	private final MEPool<POSModel, POSTaggerME> taggers;
+	private final MEPool<ChunkerModel, ChunkerME> chunkers;
+	private final CachingCategorizer categorizer;
+	private final DocumentNameFinder nameFinder;
+	private final ParserService parser;
+	private final ModelWatcher watcher;
+
+	/**
+	 * @brief Carga los modelos por defecto y prepara el servidor, sin iniciarlo.
+	 *
+	 * @param address Dirección y puerto en los que escuchar (puerto 0 para uno libre).
+	 * @param threads Hilos del pool de peticiones, o del de anotación si la JVM ofrece hilos virtuales.
+	 * @throws IOException Si algún modelo no se puede cargar o el puerto no está disponible.
+	 */
+	public NlpServer(InetSocketAddress address, int threads) throws IOException {
+		ModelRegistry registry = ModelRegistry.getInstance();
+		this.sentenceDetectors = MEPool.sentenceDetectors(registry.get(Pipeline.SENTENCE_MODEL, SentenceModel.class));
+		this.tokenizers = MEPool.tokenizers(registry.get(Pipeline.TOKENIZER_MODEL, TokenizerModel.class));
+		this.taggers = MEPool.taggers(registry.get(Pipeline.POS_MODEL, POSModel.class));
+		this.chunkers = MEPool.chunkers(registry.get(Pipeline.CHUNKER_MODEL, ChunkerModel.class));
+		this.categorizer = new CachingCategorizer(registry.get(Pipeline.DOCCAT_MODEL, DoccatModel.class),
+				line -> tokenizers.get().tokenize(line), CachingCategorizer.fileVersion(Pipeline.DOCCAT_MODEL),
+				CachingCategorizer.DEFAULT_CAPACITY);
+		this.nameFinder = DocumentNameFinder.fromRegistry();
+		this.parser = ParserService.fromRegistry();
+
+		this.watcher = new ModelWatcher();
+		watcher.watch(Pipeline.CHUNKER_MODEL, ChunkerModel.class, chunkers);
+		watcher.watch(Pipeline.NAME_FINDER_MODEL, TokenNameFinderModel.class, nameFinder.getNameFinders());
+
+		this.virtualThreads = VirtualThreads.isAvailable();
+		this.executor = VirtualThreads.newExecutor(threads);
+		this.inference = virtualThreads ? Executors.newFixedThreadPool(threads) : null;
+
+		this.server = HttpServer.create(address, 0);
+		server.setExecutor(executor);
+		register("/tokenize", this::tokenize);
+		register("/sentences", this::sentences);
+		register("/pos", this::pos);
+		register("/chunk", this::chunk);
+		register("/ner", this::ner);
+		register("/doccat", this::doccat);
+		register("/parse", this::parse);
+		server.createContext("/metrics", this::handleMetrics);
+	}
+
+	/**
+	 * @brief Metodo principal del programa.
+	 *
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -port N para escuchar en el puerto N (8080 por defecto).
+	 *             - Opcional: -threads N, hilos del pool (de anotación, si hay hilos virtuales).
+	 * @throws Exception En caso de errores durante la ejecución.
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = 8080;
+		int threads = Runtime.getRuntime().availableProcessors() * 2;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if ("-port".equals(args[i])) {
+				port = Integer.parseInt(args[i + 1]);
+			} else if ("-threads".equals(args[i])) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else {
+				LOGGER.severe("Uso: java NlpServer [-port N] [-threads N]");
+				System.exit(1);
+			}
+		}
+
+		// Comprueba todos los modelos antes de abrir el puerto: un modelo ausente o corrupto
+		// detiene el arranque en lugar de fallar con la primera petición.
+		MetricsReporter.install();
+		ModelManifest.Report report = ModelManifest.getDefault().validate(threads);
+		LOGGER.info(report.toString());
+		if (!report.isValid()) {
+			LOGGER.severe("Invalid models, see " + ModelManifest.getDefault().getFile());
+			System.exit(1);
+		}
+
+		NlpServer server = new NlpServer(new InetSocketAddress(port), threads);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+		server.start();
+	}
+
+	/**
+	 * @brief Empieza a atender peticiones.
+	 */
+	public void start() {
+		watcher.start();
+		server.start();
+		LOGGER.info(String.format("Listening on port %d (%s)", getPort(),
+				virtualThreads ? "virtual threads" : "fixed thread pool"));
+	}
+
+	/**
+	 * @brief Deja de aceptar peticiones, espera un segundo a las que estén en curso y libera los hilos.
+	 */
+	public void stop() {
+		try {
+			watcher.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error stopping the model watcher", e);
+		}
+		server.stop(1);
+		executor.shutdown();
+		if (inference != null) {
+			inference.shutdown();
+		}
+		try {
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+			if (inference != null) {
+				inference.awaitTermination(5, TimeUnit.SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** @return Puerto en el que escucha el servidor. */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/** @return true si las peticiones se atienden en hilos virtuales. */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	private void register(String path, LineAnnotator annotator) {
+		EndpointMetrics endpoint = new EndpointMetrics();
+		metrics.put(path, endpoint);
+		server.createContext(path, exchange -> handle(exchange, endpoint, annotator));
+	}
+
+	/**
+	 * @brief Atiende una petición: anota cada línea del cuerpo y responde con un objeto JSON.
+	 */
+	private void handle(HttpExchange exchange, EndpointMetrics endpoint, LineAnnotator annotator) throws IOException {
+		long start = System.nanoTime();
+		try {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				endpoint.errors.increment();
+				respond(exchange, 405, error("Use POST con el texto en el cuerpo"));
+				return;
+			}
+			String body = readBody(exchange);
+			if (body == null) {
+				endpoint.errors.increment();
+				respond(exchange, 413, error("El cuerpo supera " + MAX_BODY_BYTES + " bytes"));
+				return;
+			}
+
+			Map<String, String> params = queryParams(exchange.getRequestURI().getRawQuery());
+			String[] lines = body.split("\r?\n", -1);
+			int count = lines.length > 0 && lines[lines.length - 1].isEmpty() ? lines.length - 1 : lines.length;
+
+			StringBuilder json = new StringBuilder(body.length() * 2 + 64);
+			json.append("{\"results\":[");
+			annotate(annotator, lines, count, params, json);
+			json.append("],\"lines\":").append(count)
+					.append(",\"latencyMs\":").append((System.nanoTime() - start) / 1_000_000.0).append('}');
+
+			endpoint.lines.add(count);
+			respond(exchange, 200, json.toString());
+		} catch (IllegalArgumentException e) {
+			endpoint.errors.increment();
+			respond(exchange, 400, error(e.getMessage()));
+		} catch (RuntimeException e) {
+			endpoint.errors.increment();
+			LOGGER.log(Level.SEVERE, "Error processing " + exchange.getRequestURI(), e);
+			respond(exchange, 500, error(e.toString()));
+		} finally {
+			endpoint.latency.record(System.nanoTime() - start);
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @brief Anota las líneas de una petición, en el pool de anotación si el hilo actual es virtual.
+	 */
+	private void annotate(LineAnnotator annotator, String[] lines, int count, Map<String, String> params,
+			StringBuilder json) {
+		Runnable task = () -> {
+			for (int i = 0; i < count; i++) {
+				if (i > 0) {
+					json.append(',');
+				}
+				annotator.annotate(lines[i], params, json);
+			}
+		};
+		if (inference == null) {
+			task.run();
+			return;
+		}
+		try {
+			inference.submit(task).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the annotation", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void tokenize(String line, Map<String, String> params, StringBuilder json) {
+		long start = System.nanoTime();
+		Span[] spans = tokenizers.get().tokenizePos(line);
+		StageMetrics.TOKENIZE.record(start, 1, spans.length);
+		json.append("{\"tokens\":");
+		Json.array(json, Span.spansToStrings(spans, line));
+		json.append(",\"spans\":");
+		spans(json, spans);
+		json.append('}');
+	}
+
+	private void sentences(String line, Map<String, String> params, StringBuilder json) {
+		long start = System.nanoTime();
+		Span[] spans = sentenceDetectors.get().sentPosDetect(line);
+		StageMetrics.SENT_DETECT.record(start, spans.length, 0);
+		json.append("{\"sentences\":");
+		Json.array(json, Span.spansToStrings(spans, line));
+		json.append(",\"spans\":");
+		spans(json, spans);
+		json.append('}');
+	}
+
+	private void pos(String line, Map<String, String> params, StringBuilder json) {
+		String[] tokens = tokenize(line);
+		String[] tags = tag(tokens);
+		json.append("{\"tokens\":");
+		Json.array(json, tokens);
+		json.append(",\"tags\":");
+		Json.array(json, tags);
+		json.append('}');
+	}
+
+	private void chunk(String line, Map<String, String> params, StringBuilder json) {
+		String[] tokens = tokenize(line);
+		String[] tags = tag(tokens);
+		long start = System.nanoTime();
+		String[] chunks = chunkers.apply(chunker -> chunker.chunk(tokens, tags));
+		StageMetrics.CHUNK.record(start, 1, tokens.length);
+		json.append("{\"tokens\":");
+		Json.array(json, tokens);
+		json.append(",\"tags\":");
+		Json.array(json, tags);
+		json.append(",\"chunks\":");
+		Json.array(json, chunks);
+		json.append('}');
+	}
+
+	private String[] tokenize(String line) {
+		long start = System.nanoTime();
+		String[] tokens = tokenizers.get().tokenize(line);
+		StageMetrics.TOKENIZE.record(start, 1, tokens.length);
+		return tokens;
+	}
+
+	private String[] tag(String[] tokens) {
+		long start = System.nanoTime();
+		String[] tags = taggers.get().tag(tokens);
+		StageMetrics.TAG.record(start, 1, tokens.length);
+		return tags;
+	}
+
+	private void ner(String line, Map<String, String> params, StringBuilder json) {
+		List<Span> names = nameFinder.find(line);
+		json.append("{\"entities\":[");
+		for (int i = 0; i < names.size(); i++) {
+			Span name = names.get(i);
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"start\":").append(name.getStart()).append(",\"end\":").append(name.getEnd())
+					.append(",\"type\":");
+			Json.string(json, name.getType()).append(",\"text\":");
+			Json.string(json, name.getCoveredText(line)).append('}');
+		}
+		json.append("]}");
+	}
+
+	private void doccat(String line, Map<String, String> params, StringBuilder json) {
+		CachingCategorizer.Categorization result = categorizer.categorize(line);
+		json.append("{\"category\":");
+		Json.string(json, result.getBestCategory()).append(",\"probabilities\":{");
+		for (int i = 0; i < result.getCategoryCount(); i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			Json.string(json, result.getCategory(i)).append(':');
+			Json.number(json, result.getProbability(i));
+		}
+		json.append("}}");
+	}
+
+	private void parse(String line, Map<String, String> params, StringBuilder json) {
+		String value = params.getOrDefault("k", "1");
+		int k;
+		try {
+			k = Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("k debe ser un número entero: " + value);
+		}
+		ParserService.Result result = parser.parse(line, k);
+		json.append("{\"parses\":[");
+		Parse[] parses = result.getParses();
+		for (int i = 0; i < parses.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"tree\":");
+			Json.string(json, ParserService.toTree(parses[i])).append(",\"logProb\":");
+			Json.number(json, parses[i].getProb()).append('}');
+		}
+		json.append("],\"latencyMs\":").append(result.getLatencyMillis()).append('}');
+	}
+
+	/**
+	 * @brief Responde a /metrics con las latencias de cada endpoint y etapa, la caché de /doccat y la carga de los modelos.
+	 */
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		try {
+			StringBuilder json = new StringBuilder("{\"virtualThreads\":").append(virtualThreads)
+					.append(",\"modelReloads\":").append(watcher.getReloadCount())
+					.append(",\"endpoints\":{");
+			boolean first = true;
+			for (Map.Entry<String, EndpointMetrics> entry : metrics.entrySet()) {
+				EndpointMetrics endpoint = entry.getValue();
+				LatencyHistogram latency = endpoint.latency;
+				if (!first) {
+					json.append(',');
+				}
+				first = false;
+				Json.string(json, entry.getKey()).append(":{\"requests\":").append(latency.getCount())
+						.append(",\"lines\":").append(endpoint.lines.sum())
+						.append(",\"errors\":").append(endpoint.errors.sum())
+						.append(",\"meanMs\":").append(latency.getMeanMillis())
+						.append(",\"p50Ms\":").append(latency.getPercentileMillis(50))
+						.append(",\"p95Ms\":").append(latency.getPercentileMillis(95))
+						.append(",\"p99Ms\":").append(latency.getPercentileMillis(99))
+						.append(",\"maxMs\":").append(latency.getMaxMillis()).append('}');
+			}
+			ConcurrentLruCache<?, ?> cache = categorizer.getCache();
+			json.append("},\"doccatCache\":{\"size\":").append(cache.size())
+					.append(",\"capacity\":").append(cache.getCapacity())
+					.append(",\"hits\":").append(cache.getHits())
+					.append(",\"misses\":").append(cache.getMisses())
+					.append(",\"hitRate\":").append(cache.getHitRate())
+					.append(",\"evictions\":").append(cache.getEvictions())
+					.append(",\"estimatedBytes\":").append(cache.getEstimatedBytes())
+					.append("},\"stages\":");
+			MetricsReporter.appendStages(json).append(",\"models\":");
+			MetricsReporter.appendModels(json).append('}');
+			respond(exchange, 200, json.toString());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @brief Lee el cuerpo de la petición como UTF-8, o devuelve null si es demasiado grande.
+	 */
+	private static String readBody(HttpExchange exchange) throws IOException {
+		try (InputStream in = exchange.getRequestBody()) {
+			byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+			return body.length > MAX_BODY_BYTES ? null : new String(body, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static Map<String, String> queryParams(String query) {
+		if (query == null || query.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> params = new HashMap<>();
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			String key = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return params;
+	}
+
+	private static void spans(StringBuilder json, Span[] spans) {
+		json.append('[');
+		for (int i = 0; i < spans.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('[').append(spans[i].getStart()).append(',').append(spans[i].getEnd()).append(']');
+		}
+		json.append(']');
+	}
+
+	private static String error(String message) {
+		return Json.string(new StringBuilder("{\"error\":"), message).append('}').toString();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
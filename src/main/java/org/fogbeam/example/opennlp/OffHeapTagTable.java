@@ -0,0 +1,150 @@
+package org.fogbeam.example.opennlp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @file OffHeapTagTable.java
+ * @brief Tabla de etiquetas gramaticales por oración guardada en memoria directa.
+ *
+ * La tabla es un único ByteBuffer directo dividido en ranuras de tamaño fijo; el recolector
+ * de basura no ve su contenido, así que una caché grande no alarga las pausas. Cada ranura
+ * guarda una oración de hasta maxTokens tokens:
+ *
+ *   [hash:8][check:8][tokens:4][relleno:4][probabilidades: tokens × 8][etiquetas: tokens × 2]
+ *
+ * La ranura de una oración se elige con su hash y la entrada se confirma con el segundo hash
+ * (check). Cada ranura tiene sitio para una sola oración: una oración nueva sobrescribe la
+ * que hubiera (y cuenta como desalojo). Las ranuras se protegen con un conjunto fijo de
+ * cerrojos repartidos por posición.
+ */
+final class OffHeapTagTable {
+	private static final int HEADER_BYTES = 24;
+	private static final int LOCK_STRIPES = 64;
+
+	private final ByteBuffer buffer;
+	private final int slotBytes;
+	private final int slots;
+	private final int maxTokens;
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @brief Reserva la tabla.
+	 *
+	 * @param maxBytes Memoria máxima a reservar; un ByteBuffer no puede pasar de 2 GB.
+	 * @param maxTokens Longitud máxima de las oraciones guardadas.
+	 */
+	OffHeapTagTable(long maxBytes, int maxTokens) {
+		if (maxTokens < 1) {
+			throw new IllegalArgumentException("maxTokens debe ser mayor que cero: " + maxTokens);
+		}
+		this.maxTokens = maxTokens;
+		// Redondea a múltiplo de 8 para que todas las ranuras empiecen alineadas.
+		this.slotBytes = (HEADER_BYTES + maxTokens * 10 + 7) & ~7;
+		long slotCount = Math.min(maxBytes, Integer.MAX_VALUE) / slotBytes;
+		if (slotCount < 1) {
+			throw new IllegalArgumentException("maxBytes no alcanza para una ranura de " + slotBytes + " bytes");
+		}
+		this.slots = (int) slotCount;
+		this.buffer = ByteBuffer.allocateDirect(slots * slotBytes);
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * @brief Busca una oración.
+	 *
+	 * @param hash Hash principal de los tokens.
+	 * @param check Hash de comprobación de los tokens.
+	 * @param length Número de tokens.
+	 * @param tagNames Nombres de las etiquetas, indexados como se guardaron.
+	 * @return Etiquetas y probabilidades guardadas, o null si la oración no está.
+	 */
+	CachingPosTagger.Tagging get(long hash, long check, int length, String[] tagNames) {
+		if (length > maxTokens) {
+			misses.increment();
+			return null;
+		}
+		int slot = slot(hash);
+		int base = slot * slotBytes;
+		synchronized (locks[slot % LOCK_STRIPES]) {
+			if (buffer.getLong(base) != hash || buffer.getLong(base + 8) != check
+					|| buffer.getInt(base + 16) != length) {
+				misses.increment();
+				return null;
+			}
+			double[] probs = new double[length];
+			String[] tags = new String[length];
+			int probsAt = base + HEADER_BYTES;
+			int tagsAt = probsAt + maxTokens * 8;
+			for (int i = 0; i < length; i++) {
+				probs[i] = buffer.getDouble(probsAt + i * 8);
+				tags[i] = tagNames[buffer.getShort(tagsAt + i * 2)];
+			}
+			hits.increment();
+			return new CachingPosTagger.Tagging(tags, probs);
+		}
+	}
+
+	/**
+	 * @brief Guarda una oración, sobrescribiendo la que ocupara su ranura. Las oraciones de más
+	 *        de maxTokens tokens no se guardan.
+	 *
+	 * @param hash Hash principal de los tokens.
+	 * @param check Hash de comprobación de los tokens.
+	 * @param tags Índice de la etiqueta de cada token.
+	 * @param probs Probabilidad de cada etiqueta.
+	 */
+	void put(long hash, long check, short[] tags, double[] probs) {
+		int length = tags.length;
+		if (length > maxTokens) {
+			return;
+		}
+		int slot = slot(hash);
+		int base = slot * slotBytes;
+		synchronized (locks[slot % LOCK_STRIPES]) {
+			int previous = buffer.getInt(base + 16);
+			if (previous > 0 && (buffer.getLong(base) != hash || buffer.getLong(base + 8) != check)) {
+				evictions.increment();
+			}
+			buffer.putLong(base, hash);
+			buffer.putLong(base + 8, check);
+			buffer.putInt(base + 16, length);
+			int probsAt = base + HEADER_BYTES;
+			int tagsAt = probsAt + maxTokens * 8;
+			for (int i = 0; i < length; i++) {
+				buffer.putDouble(probsAt + i * 8, probs[i]);
+				buffer.putShort(tagsAt + i * 2, tags[i]);
+			}
+		}
+	}
+
+	private int slot(long hash) {
+		return (int) Long.remainderUnsigned(hash, slots);
+	}
+
+	/** @return Consultas que encontraron la oración. */
+	long getHits() {
+		return hits.sum();
+	}
+
+	/** @return Consultas que no encontraron la oración. */
+	long getMisses() {
+		return misses.sum();
+	}
+
+	/** @return Oraciones sobrescritas por otra con la misma ranura. */
+	long getEvictions() {
+		return evictions.sum();
+	}
+
+	/** @return Memoria directa reservada, en bytes. */
+	long getCapacityBytes() {
+		return (long) slots * slotBytes;
+	}
+}
@@ -0,0 +1,221 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.util.Span;
+
+/**
+ * @file ParallelSentenceDetector.java
+ * @brief Detección de oraciones en paralelo, repartiendo el texto por párrafos.
+ *
+ * El texto se corta en fragmentos de al menos minShardChars caracteres, siempre en una
+ * línea en blanco, y cada fragmento se analiza como una tarea de un ForkJoinPool con el
+ * SentenceDetectorME propio del hilo (ver MEPool). Las oraciones de cada fragmento se
+ * devuelven con posiciones de carácter en el texto completo y en orden, de modo que el
+ * resultado es el mismo que el de una sola llamada a sentPosDetect().
+ *
+ * Una línea en blanco no siempre es un final de oración para el modelo (un título sin
+ * punto final sigue en la oración del párrafo siguiente), así que antes de cortar en ella
+ * se comprueba con el propio detector sobre las palabras de alrededor, que son todo el
+ * contexto que usa para decidir. Además, cada fragmento se analiza precedido de la última
+ * palabra del fragmento anterior, que el detector necesita para decidir sobre la primera.
+ */
+public class ParallelSentenceDetector {
+	/** Tamaño mínimo por defecto de cada fragmento, en caracteres. */
+	public static final int DEFAULT_MIN_SHARD_CHARS = 16 * 1024;
+
+	/** Línea en blanco: un salto de línea seguido de una o más líneas vacías o de espacios. */
+	private static final Pattern BLANK_LINE = Pattern.compile("\\r?\\n[ \\t]*(?:\\r?\\n[ \\t]*)+");
+
+	private final MEPool<SentenceModel, SentenceDetectorME> detectors;
+	private final int minShardChars;
+
+	/**
+	 * @brief Crea un detector en paralelo con el tamaño mínimo de fragmento por defecto.
+	 *
+	 * @param model Modelo de detección de oraciones.
+	 */
+	public ParallelSentenceDetector(SentenceModel model) {
+		this(model, DEFAULT_MIN_SHARD_CHARS);
+	}
+
+	/**
+	 * @brief Crea un detector en paralelo.
+	 *
+	 * @param model Modelo de detección de oraciones.
+	 * @param minShardChars Tamaño mínimo de cada fragmento, en caracteres.
+	 */
+	public ParallelSentenceDetector(SentenceModel model, int minShardChars) {
+		if (minShardChars < 1) {
+			throw new IllegalArgumentException("minShardChars must be positive: " + minShardChars);
+		}
+		this.detectors = MEPool.sentenceDetectors(model);
+		this.minShardChars = minShardChars;
+	}
+
+	/**
+	 * @brief Detecta las oraciones de un texto en el pool común.
+	 *
+	 * @see #sentPosDetect(String, ForkJoinPool)
+	 */
+	public Span[] sentPosDetect(String text) {
+		return sentPosDetect(text, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @brief Detecta las oraciones de un texto repartiendo sus párrafos entre los hilos de un pool.
+	 *
+	 * @param text Texto completo.
+	 * @param pool Pool donde se analizan los fragmentos.
+	 * @return Posiciones de las oraciones en el texto, en orden.
+	 */
+	public Span[] sentPosDetect(String text, ForkJoinPool pool) {
+		long detectStart = System.nanoTime();
+		int[] starts = shardStarts(text);
+		List<ForkJoinTask<Span[]>> tasks = new ArrayList<>(starts.length);
+		for (int i = 0; i < starts.length; i++) {
+			int start = starts[i];
+			int end = i + 1 < starts.length ? starts[i + 1] : text.length();
+			tasks.add(pool.submit(() -> detectShard(text, start, end)));
+		}
+
+		List<Span> sentences = new ArrayList<>();
+		for (ForkJoinTask<Span[]> task : tasks) {
+			for (Span span : task.join()) {
+				sentences.add(span);
+			}
+		}
+		StageMetrics.SENT_DETECT.record(detectStart, sentences.size(), 0);
+		return sentences.toArray(new Span[0]);
+	}
+
+	/**
+	 * @brief Detecta las oraciones de un texto y las devuelve como cadenas.
+	 *
+	 * @param text Texto completo.
+	 * @param pool Pool donde se analizan los fragmentos.
+	 * @return Oraciones del texto, en orden.
+	 */
+	public String[] sentDetect(String text, ForkJoinPool pool) {
+		return Span.spansToStrings(sentPosDetect(text, pool), text);
+	}
+
+	/**
+	 * @brief Calcula dónde empieza cada fragmento: el primer carácter tras una línea en blanco
+	 *        en la que el detector también corta la oración.
+	 *
+	 * @param text Texto completo.
+	 * @return Inicio de cada fragmento; el primero es siempre 0.
+	 */
+	int[] shardStarts(String text) {
+		List<Integer> starts = new ArrayList<>();
+		starts.add(0);
+		Matcher blankLine = BLANK_LINE.matcher(text);
+		int from = minShardChars;
+		while (from < text.length() && blankLine.find(from)) {
+			int gapStart = trimEnd(text, blankLine.start());
+			int next = trimStart(text, blankLine.end());
+			if (next == text.length()) {
+				break;
+			}
+			if (gapStart > 0 && isSentenceBreak(text, gapStart, next)) {
+				starts.add(next);
+				from = next + minShardChars;
+			} else {
+				from = next;
+			}
+		}
+
+		int[] result = new int[starts.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = starts.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * @brief Comprueba si el detector corta entre gapStart y next analizando solo las dos
+	 *        palabras anteriores y las dos siguientes.
+	 */
+	private boolean isSentenceBreak(String text, int gapStart, int next) {
+		int from = wordStart(text, wordStart(text, gapStart));
+		int to = wordEnd(text, wordEnd(text, next));
+		int end = gapStart - from;
+		int start = next - from;
+		Span[] spans = detectors.apply(detector -> detector.sentPosDetect(text.substring(from, to)));
+		for (int i = 0; i + 1 < spans.length; i++) {
+			if (spans[i].getEnd() == end) {
+				return spans[i + 1].getStart() == start;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @brief Analiza el fragmento [start, end) precedido de la última palabra anterior a start.
+	 *
+	 * Si el detector no corta tras esa palabra, la oración que la contiene se recorta para
+	 * que empiece en start: el corte ya se comprobó al elegir los fragmentos. sentPosDetect()
+	 * deja en la última oración los espacios finales del texto, que en un fragmento intermedio
+	 * son la línea en blanco; se quitan para que coincida con el análisis del texto completo.
+	 */
+	private Span[] detectShard(String text, int start, int end) {
+		int from = wordStart(text, start);
+		Span[] spans = detectors.apply(detector -> detector.sentPosDetect(text.substring(from, end)));
+		List<Span> sentences = new ArrayList<>(spans.length);
+		for (Span span : spans) {
+			int spanStart = Math.max(from + span.getStart(), start);
+			int spanEnd = from + span.getEnd();
+			if (end < text.length()) {
+				spanEnd = Math.max(trimEnd(text, spanEnd), spanStart);
+			}
+			if (spanEnd > spanStart) {
+				sentences.add(new Span(spanStart, spanEnd));
+			}
+		}
+		return sentences.toArray(new Span[0]);
+	}
+
+	/** @return Inicio de la última palabra que termina antes de position (o 0). */
+	private static int wordStart(String text, int position) {
+		int i = trimEnd(text, position);
+		while (i > 0 && !Character.isWhitespace(text.charAt(i - 1))) {
+			i--;
+		}
+		return i;
+	}
+
+	/** @return Final de la primera palabra que empieza en position o después (o el final del texto). */
+	private static int wordEnd(String text, int position) {
+		int i = trimStart(text, position);
+		while (i < text.length() && !Character.isWhitespace(text.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	/** @return Posición tras el último carácter que no es espacio antes de position. */
+	private static int trimEnd(String text, int position) {
+		int i = position;
+		while (i > 0 && Character.isWhitespace(text.charAt(i - 1))) {
+			i--;
+		}
+		return i;
+	}
+
+	/** @return Posición del primer carácter que no es espacio desde position. */
+	private static int trimStart(String text, int position) {
+		int i = position;
+		while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+}
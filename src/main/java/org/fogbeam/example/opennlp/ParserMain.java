@@ -1,84 +1,103 @@
 package org.fogbeam.example.opennlp;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import opennlp.tools.parser.AbstractBottomUpParser;
 import opennlp.tools.parser.Parse;
-import opennlp.tools.parser.Parser;
-import opennlp.tools.parser.ParserFactory;
-import opennlp.tools.parser.ParserModel;
-import opennlp.tools.util.Span;
+
+// Ejemplo de uso: java ParserMain [-k N] [-threads N] [-file oraciones.txt] ["oración 1" "oración 2" ...]
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.ParserMain" -Dexec.args="-k 3 'I say November.'"
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.ParserMain" -Dexec.args="-threads 4 -file demo_data/en-sent1.demo"
 
 /**
  * @file ParserMain.java
  * @brief Programa principal para el análisis sintáctico de oraciones utilizando OpenNLP.
  *
- * Este programa carga un modelo de análisis sintáctico, procesa una oración de entrada
- * y genera un árbol sintáctico que describe su estructura gramatical.
+ * Este programa analiza las oraciones de entrada con un ParserService, que mantiene cargado
+ * el modelo de análisis sintáctico y reutiliza el analizador entre oraciones, y muestra los
+ * k árboles sintácticos más probables de cada una junto con el tiempo de análisis. Con la
+ * opción -threads, las oraciones se analizan en paralelo.
  */
 public class ParserMain {
 	// Logger para el registro de mensajes
 	private static final Logger LOGGER = Logger.getLogger(ParserMain.class.getName());
 
+	/** Oración analizada si no se indica ninguna. */
+	private static final String DEFAULT_SENTENCE = "The quick brown fox jumps over the lazy dog.";
+
 	/**
 	 * @brief Metodo principal del programa.
 	 *
-	 * Este metodo carga un modelo de análisis sintáctico, analiza una oración de entrada y
-	 * genera un árbol sintáctico que representa su estructura gramatical. También muestra
-	 * el árbol sintáctico en forma de texto y como un árbol codificado.
+	 * Este metodo analiza cada oración de entrada y muestra sus árboles sintácticos en forma
+	 * de texto y, para el más probable, como un árbol codificado.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados en este programa).
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -k N para mostrar los N análisis más probables (1 por defecto, como mucho ParserService.MAX_K).
+	 *             - Opcional: -threads N para analizar las oraciones con N hilos.
+	 *             - Opcional: -file archivo para leer oraciones de un archivo, una por línea.
+	 *             - Opcional: oraciones a analizar.
 	 * @throws Exception En caso de errores durante la ejecución.
 	 */
 	public static void main(String[] args) throws Exception {
-		InputStream modelIn = null; /**< Flujo de entrada para cargar el modelo de análisis sintáctico. */
-		try {
-			// Carga el modelo preentrenado de análisis sintáctico desde un archivo.
-			modelIn = new FileInputStream("models/en-parser-chunking.bin");
-			ParserModel model = new ParserModel(modelIn);
-
-			// Inicializa el analizador sintáctico con el modelo cargado.
-			Parser parser = ParserFactory.create(model);
-
-			// Oración de entrada para analizar.
-			String sentence = "The quick brown fox jumps over the lazy dog.";
-			String[] tokens = sentence.split(" "); // Tokenización básica
+		int k = 1;
+		int threads = 1;
+		List<String> sentences = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if ("-k".equals(args[i]) && i + 1 < args.length) {
+				k = Integer.parseInt(args[++i]);
+			} else if ("-threads".equals(args[i]) && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if ("-file".equals(args[i]) && i + 1 < args.length) {
+				for (String line : Files.readAllLines(Paths.get(args[++i]), StandardCharsets.UTF_8)) {
+					if (!line.trim().isEmpty()) {
+						sentences.add(line);
+					}
+				}
+			} else {
+				sentences.add(args[i]);
+			}
+		}
+		if (sentences.isEmpty()) {
+			sentences.add(DEFAULT_SENTENCE);
+		}
+		MetricsReporter metrics = MetricsReporter.install();
 
-			// Construcción inicial del árbol sintáctico
-			Parse parse = new Parse(sentence,
-					new Span(0, sentence.length()),
-					AbstractBottomUpParser.INC_NODE,
-					1,
-					0);
+		try {
+			// El servicio carga el modelo una sola vez y reutiliza el analizador en todas las oraciones.
+			ParserService service = ParserService.fromRegistry();
 
-			// Insertar tokens en el árbol de análisis
-			int start = 0;
-			for (int i = 0; i < tokens.length; i++) {
-				int end = start + tokens[i].length();
-				parse.insert(new Parse(sentence,
-						new Span(start, end),
-						AbstractBottomUpParser.TOK_NODE,
-						1,
-						i));
-				start = end + 1; // Avanza al siguiente token (considera el espacio)
-			}
+			List<ParserService.Result> results = parseAll(service, sentences, k, threads);
+			for (ParserService.Result result : results) {
+				String sentence = result.getSentence();
 
-			// Procesa el análisis sintáctico
-			Parse result = parser.parse(parse);
+				// Muestra los árboles de análisis en formato de texto
+				if (LOGGER.isLoggable(Level.INFO)) {
+					LOGGER.info(String.format("%s (%d parses in %.2f ms)", sentence, result.getParses().length,
+							result.getLatencyMillis()));
+					Parse[] parses = result.getParses();
+					for (int i = 0; i < parses.length; i++) {
+						LOGGER.info(String.format("  #%d log(p)=%.4f %s", i + 1, parses[i].getProb(),
+								ParserService.toTree(parses[i])));
+					}
+				}
 
-			// Muestra el árbol de análisis en formato de texto
-			if (LOGGER.isLoggable(Level.INFO)) {
-				LOGGER.info(String.format("Parsed tree (text format): %s", result.toString()));
+				// Muestra el mejor árbol de análisis en formato codificado
+				if (LOGGER.isLoggable(Level.FINE) && result.getBest() != null) {
+					LOGGER.fine("Parsed tree (encoded format):");
+					result.getBest().showCodeTree();
+				}
 			}
 
-			// Muestra el árbol de análisis en formato codificado
 			if (LOGGER.isLoggable(Level.INFO)) {
-				LOGGER.info("Parsed tree (encoded format):");
-				result.showCodeTree();
+				LOGGER.info(String.format("%d sentences, mean latency %.2f ms, max %.2f ms",
+						service.getSentenceCount(), service.getMeanLatencyMillis(), service.getMaxLatencyMillis()));
 			}
 		}
 		catch (IOException e) {
@@ -86,24 +105,33 @@ public class ParserMain {
 			if (LOGGER.isLoggable(Level.SEVERE)) {
 				LOGGER.log(Level.SEVERE, String.format("Error loading the model: %s", e.getMessage()), e);
 			}
-		} finally {
-			// Cierra el flujo de entrada del modelo si está abierto.
-			if (modelIn != null) {
-				try {
-					modelIn.close();
-				} catch (IOException e) {
-					if (LOGGER.isLoggable(Level.WARNING)) {
-						LOGGER.log(Level.WARNING, String.format("Error closing the model stream: %s", e.getMessage()), e);
-					}
-				}
-			}
 		}
 
-		// Indica que el programa ha finalizado.
+		// Indica que el programa ha finalizado, con las métricas del análisis.
+		metrics.report();
 		if (LOGGER.isLoggable(Level.INFO)) {
 			LOGGER.info("Done");
 		}
 	}
-}
 
+	/**
+	 * @brief Analiza las oraciones en orden, o en paralelo si se indicaron varios hilos.
+	 */
+	private static List<ParserService.Result> parseAll(ParserService service, List<String> sentences, int k,
+			int threads) {
+		if (threads <= 1) {
+			List<ParserService.Result> results = new ArrayList<>(sentences.size());
+			for (String sentence : sentences) {
+				results.add(service.parse(sentence, k));
+			}
+			return results;
+		}
 
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return service.parseAll(sentences, k, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
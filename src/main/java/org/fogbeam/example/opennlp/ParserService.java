@@ -0,0 +1,227 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import opennlp.tools.parser.AbstractBottomUpParser;
+import opennlp.tools.parser.Parse;
+import opennlp.tools.parser.Parser;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+/**
+ * @file ParserService.java
+ * @brief Servicio de análisis sintáctico con el modelo y los analizadores ya preparados.
+ *
+ * Cargar el ParserModel y crear el Parser con ParserFactory es lo más caro del análisis,
+ * así que el servicio lo hace una sola vez: el modelo se obtiene del registro compartido y
+ * cada hilo reutiliza su propio Parser (ver MEPool) para todas las oraciones. Cada análisis
+ * devuelve las k mejores interpretaciones junto con el tiempo que ha costado, y el servicio
+ * acumula el número de oraciones analizadas y su latencia media y máxima.
+ *
+ * Las oraciones se tokenizan con TokenizerME.tokenizePos, y el árbol inicial del analizador
+ * se construye directamente con esas posiciones sobre el texto original: no se copian
+ * cadenas y da igual cuántos espacios, tabuladores o signos de puntuación haya entre tokens.
+ * Un lote de oraciones puede analizarse en paralelo con parseAll().
+ */
+public class ParserService {
+	/** Ruta del modelo usado por defecto, según el manifiesto (ver training.ParserTrainer y ModelManifest). */
+	public static final String PARSER_MODEL = ModelManifest.path("parser");
+	/**
+	 * Máximo de análisis por oración: el tamaño del haz del Parser. El Parser reserva memoria
+	 * para k análisis antes de buscarlos, así que un k enorme agotaría el heap y pedir más de
+	 * los que caben en el haz no da análisis nuevos.
+	 */
+	public static final int MAX_K = AbstractBottomUpParser.defaultBeamSize;
+
+	private final MEPool<ParserModel, Parser> parsers;
+	private final MEPool<TokenizerModel, TokenizerME> tokenizers;
+	private final LongAdder sentences = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+	/**
+	 * @brief Resultado del análisis de una oración.
+	 */
+	public static final class Result {
+		private final String sentence;
+		private final Parse[] parses;
+		private final long latencyNanos;
+
+		Result(String sentence, Parse[] parses, long latencyNanos) {
+			this.sentence = sentence;
+			this.parses = parses;
+			this.latencyNanos = latencyNanos;
+		}
+
+		/** @return Oración analizada. */
+		public String getSentence() {
+			return sentence;
+		}
+
+		/** @return Análisis encontrados, del más al menos probable. */
+		public Parse[] getParses() {
+			return parses;
+		}
+
+		/** @return El análisis más probable, o null si no se encontró ninguno. */
+		public Parse getBest() {
+			return parses.length == 0 ? null : parses[0];
+		}
+
+		/** @return Tiempo que costó el análisis, en nanosegundos. */
+		public long getLatencyNanos() {
+			return latencyNanos;
+		}
+
+		/** @return Tiempo que costó el análisis, en milisegundos. */
+		public double getLatencyMillis() {
+			return latencyNanos / 1_000_000.0;
+		}
+	}
+
+	/**
+	 * @brief Crea un servicio sobre modelos ya cargados.
+	 *
+	 * @param model Modelo de análisis sintáctico.
+	 * @param tokenizerModel Modelo de tokenización de las oraciones.
+	 */
+	public ParserService(ParserModel model, TokenizerModel tokenizerModel) {
+		this.parsers = MEPool.parsers(model);
+		this.tokenizers = MEPool.tokenizers(tokenizerModel);
+	}
+
+	/**
+	 * @brief Crea un servicio con los modelos por defecto, obtenidos del registro compartido.
+	 *
+	 * @return Servicio listo para usar.
+	 * @throws IOException Si algún modelo no se puede cargar.
+	 */
+	public static ParserService fromRegistry() throws IOException {
+		ModelRegistry registry = ModelRegistry.getInstance();
+		return new ParserService(registry.get(PARSER_MODEL, ParserModel.class),
+				registry.get(Pipeline.TOKENIZER_MODEL, TokenizerModel.class));
+	}
+
+	/**
+	 * @brief Tokeniza una oración y devuelve sus k análisis más probables.
+	 *
+	 * @param sentence Oración a analizar.
+	 * @param k Número máximo de análisis a devolver (entre 1 y MAX_K).
+	 * @return Resultado del análisis, con su latencia (incluida la tokenización).
+	 */
+	public Result parse(String sentence, int k) {
+		long start = System.nanoTime();
+		Span[] tokenSpans = tokenizers.get().tokenizePos(sentence);
+		return parse(sentence, tokenSpans, k, start);
+	}
+
+	/**
+	 * @brief Analiza una oración ya tokenizada y devuelve sus k análisis más probables.
+	 *
+	 * @param sentence Oración a analizar.
+	 * @param tokenSpans Posiciones de los tokens en la oración, como las de tokenizePos.
+	 * @param k Número máximo de análisis a devolver (entre 1 y MAX_K).
+	 * @return Resultado del análisis, con su latencia.
+	 */
+	public Result parse(String sentence, Span[] tokenSpans, int k) {
+		return parse(sentence, tokenSpans, k, System.nanoTime());
+	}
+
+	/**
+	 * @brief Analiza en paralelo un lote de oraciones en el pool común de fork-join.
+	 *
+	 * @see #parseAll(List, int, ForkJoinPool)
+	 */
+	public List<Result> parseAll(List<String> sentences, int k) {
+		return parseAll(sentences, k, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @brief Analiza en paralelo un lote de oraciones.
+	 *
+	 * Cada hilo del pool usa su propio tokenizador y su propio analizador. El resultado
+	 * conserva el orden de las oraciones de entrada.
+	 *
+	 * @param sentences Oraciones a analizar.
+	 * @param k Número máximo de análisis por oración.
+	 * @param pool Pool en el que se reparten las oraciones.
+	 * @return Resultados, en el mismo orden que las oraciones.
+	 */
+	public List<Result> parseAll(List<String> sentences, int k, ForkJoinPool pool) {
+		checkK(k);
+		return pool.submit(() -> sentences.parallelStream()
+				.map(sentence -> parse(sentence, k))
+				.collect(Collectors.toList())).join();
+	}
+
+	private Result parse(String sentence, Span[] tokenSpans, int k, long start) {
+		checkK(k);
+		long parseStart = System.nanoTime();
+		Parse[] parses = tokenSpans.length == 0
+				? new Parse[0]
+				: parsers.get().parse(buildTree(sentence, tokenSpans), k);
+		StageMetrics.PARSE.record(parseStart, 1, tokenSpans.length);
+		long latency = System.nanoTime() - start;
+
+		sentences.increment();
+		totalNanos.add(latency);
+		maxNanos.accumulate(latency);
+		return new Result(sentence, parses, latency);
+	}
+
+	private static void checkK(int k) {
+		if (k < 1 || k > MAX_K) {
+			throw new IllegalArgumentException("k debe estar entre 1 y " + MAX_K + ": " + k);
+		}
+	}
+
+	/** @return Número de oraciones analizadas por el servicio. */
+	public long getSentenceCount() {
+		return sentences.sum();
+	}
+
+	/** @return Latencia media por oración, en milisegundos. */
+	public double getMeanLatencyMillis() {
+		long count = sentences.sum();
+		return count == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / count;
+	}
+
+	/** @return Latencia máxima de una oración, en milisegundos. */
+	public double getMaxLatencyMillis() {
+		return maxNanos.get() / 1_000_000.0;
+	}
+
+	/**
+	 * @brief Devuelve un análisis como árbol entre paréntesis, en formato Penn Treebank.
+	 *
+	 * @param parse Análisis a mostrar.
+	 * @return Árbol en una sola línea.
+	 */
+	public static String toTree(Parse parse) {
+		StringBuffer tree = new StringBuffer();
+		parse.show(tree);
+		return tree.toString();
+	}
+
+	/**
+	 * @brief Construye el árbol inicial del analizador: un nodo por token bajo un nodo raíz.
+	 *
+	 * Los nodos solo guardan posiciones sobre el texto de la oración; el nodo raíz va del
+	 * primer al último token, sin los espacios de los extremos.
+	 */
+	private static Parse buildTree(String sentence, Span[] tokenSpans) {
+		Span extent = new Span(tokenSpans[0].getStart(), tokenSpans[tokenSpans.length - 1].getEnd());
+		Parse parse = new Parse(sentence, extent, AbstractBottomUpParser.INC_NODE, 1, 0);
+		for (int i = 0; i < tokenSpans.length; i++) {
+			parse.insert(new Parse(sentence, tokenSpans[i], AbstractBottomUpParser.TOK_NODE, 1, i));
+		}
+		return parse;
+	}
+}
@@ -1,21 +1,27 @@
 package org.fogbeam.example.opennlp;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import opennlp.tools.postag.POSModel;
-import opennlp.tools.postag.POSTaggerME;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+// Ejemplo de uso: java PartOfSpeechTaggerMain [-cache heap|offheap] [-cacheLimit N] [-format conll|jsonl|binary|corpus]
+//                 [-out archivo] ["oración tokenizada" ...]
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.PartOfSpeechTaggerMain" -Dexec.args="-format jsonl"
+
 /**
  * @file PartOfSpeechTaggerMain.java
  * @brief Programa principal para el etiquetado gramatical (POS tagging) de oraciones utilizando OpenNLP.
  *
  * Este programa carga un modelo de etiquetado gramatical preentrenado, procesa una oración de ejemplo
  * para asignar etiquetas gramaticales (part-of-speech, POS) a cada palabra y muestra los resultados.
+ * Las oraciones se etiquetan a través de una caché (ver CachingPosTagger), en el heap o fuera de él,
+ * de modo que las oraciones repetidas no vuelven a pasar por el modelo. Los resultados se
+ * escriben con un ResultSink en el formato elegido (CoNLL por defecto).
  */
 public class PartOfSpeechTaggerMain {
 	// Logger para el registro de mensajes
@@ -27,60 +33,69 @@ public class PartOfSpeechTaggerMain {
 	 * Este metodo carga un modelo de etiquetado gramatical, procesa una oración tokenizada y
 	 * genera etiquetas gramaticales (POS) para cada token, junto con las probabilidades asociadas.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados en este programa).
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -cache heap|offheap, dónde guardar la caché (heap por defecto).
+	 *             - Opcional: -cacheLimit N, oraciones (heap) o bytes (offheap) de la caché.
+	 *             - Opcional: -format conll|jsonl|binary|corpus, formato de salida (conll por defecto).
+	 *             - Opcional: -out archivo, archivo de salida (salida estándar por defecto).
+	 *             - Opcional: oraciones a etiquetar, con los tokens separados por espacios.
 	 */
 	public static void main(String[] args) {
-		InputStream modelIn = null; /**< Flujo de entrada para cargar el modelo de etiquetado gramatical. */
+		CachingPosTagger.Mode mode = CachingPosTagger.Mode.ON_HEAP;
+		long cacheLimit = -1;
+		ResultSink.Format format = ResultSink.Format.CONLL;
+		String outputFileName = null;
+		List<String[]> sentences = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if ("-cache".equals(args[i]) && i + 1 < args.length) {
+				mode = "offheap".equals(args[++i]) ? CachingPosTagger.Mode.OFF_HEAP : CachingPosTagger.Mode.ON_HEAP;
+			} else if ("-cacheLimit".equals(args[i]) && i + 1 < args.length) {
+				cacheLimit = Long.parseLong(args[++i]);
+			} else if ("-format".equals(args[i]) && i + 1 < args.length) {
+				format = ResultSink.Format.fromName(args[++i]);
+			} else if ("-out".equals(args[i]) && i + 1 < args.length) {
+				outputFileName = args[++i];
+			} else {
+				sentences.add(args[i].trim().split("\\s+"));
+			}
+		}
+		if (sentences.isEmpty()) {
+			// Tokens de entrada que representan una oración tokenizada.
+			sentences.add(new String[]{"Most", "large", "cities", "in", "the", "US", "had",
+					"morning", "and", "afternoon", "newspapers", "."});
+		}
+		MetricsReporter metrics = MetricsReporter.install();
 
 		try {
-			// Carga el modelo preentrenado de etiquetado gramatical desde un archivo.
-			modelIn = new FileInputStream("models/en-pos-maxent.bin");
-
-			// Inicializa el modelo de etiquetado gramatical.
-			POSModel model = new POSModel(modelIn);
-
-			// Inicializa el etiquetador gramatical con el modelo cargado.
-			POSTaggerME tagger = new POSTaggerME(model);
+			// Obtiene el modelo preentrenado de etiquetado gramatical del registro compartido.
+			POSModel model = ModelRegistry.getInstance().get(Pipeline.POS_MODEL, POSModel.class);
 
-			// Tokens de entrada que representan una oración tokenizada.
-			String[] sent = new String[]{"Most", "large", "cities", "in", "the", "US", "had",
-					"morning", "and", "afternoon", "newspapers", "."};
-
-			// Genera etiquetas gramaticales para los tokens de entrada.
-			String[] tags = tagger.tag(sent);
+			// Inicializa el etiquetador gramatical con el modelo cargado y la caché elegida.
+			CachingPosTagger tagger = cacheLimit > 0
+					? new CachingPosTagger(model, mode, cacheLimit, CachingPosTagger.DEFAULT_MAX_TOKENS)
+					: new CachingPosTagger(model, mode);
 
-			// Obtiene las probabilidades asociadas a las etiquetas generadas.
-			double[] probs = tagger.probs();
+			try (ResultSink sink = ResultSink.open(format, outputFileName)) {
+				for (String[] sent : sentences) {
+					// Genera etiquetas gramaticales para los tokens de entrada, con sus probabilidades,
+					// y las escribe con una línea por token (en CoNLL) o un registro por oración.
+					CachingPosTagger.Tagging tagging = tagger.tag(sent);
+					sink.write(new AnnotatedSentence(null, null, sent, tagging.getTags(), tagging.getProbs(), null,
+							null));
+				}
+			}
 
-			/**
-			 * Registra los resultados para cada token.
-			 * Muestra:
-			 * - El token original.
-			 * - Su etiqueta gramatical (POS tag).
-			 * - La probabilidad asociada a esa etiqueta.
-			 */
 			if (LOGGER.isLoggable(Level.INFO)) {
-				for (int i = 0; i < sent.length; i++) {
-					LOGGER.info(String.format("Token [%s] has POS [%s] with probability = %.4f",
-							sent[i], tags[i], probs[i]));
-				}
+				LOGGER.info("Cache: " + tagger);
 			}
 
 		} catch (IOException e) {
 			// En desarrollo: registrar detalles del error para depuración
-			LOGGER.log(Level.SEVERE, "Error loading the model: {0}", e.getMessage());
-		} finally {
-			// Cierra el flujo de entrada del modelo si está abierto.
-			if (modelIn != null) {
-				try {
-					modelIn.close();
-				} catch (IOException e) {
-					LOGGER.log(Level.WARNING, "Error closing the model stream: {0}", e.getMessage());
-				}
-			}
+			LOGGER.log(Level.SEVERE, "Error loading the model or writing the results: {0}", e.getMessage());
 		}
 
-		// Indica que el programa ha finalizado.
+		// Indica que el programa ha finalizado, con las métricas del etiquetado.
+		metrics.report();
 		if (LOGGER.isLoggable(Level.INFO)) {
 			LOGGER.info("Done");
 		}
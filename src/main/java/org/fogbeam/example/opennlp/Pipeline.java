@@ -0,0 +1,166 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+/**
+ * @file Pipeline.java
+ * @brief Encadena todas las etapas de OpenNLP sobre un mismo texto.
+ *
+ * El texto se lee una sola vez y pasa por detección de oraciones, tokenización,
+ * etiquetado gramatical, fragmentación y detección de entidades. Cada etapa recibe
+ * directamente los arrays de la anterior, sin volver a tokenizar ni a construir cadenas.
+ * Opcionalmente se clasifica el documento completo con los tokens ya obtenidos.
+ *
+ * Un mismo Pipeline puede usarse desde varios hilos a la vez: cada hilo trabaja con
+ * sus propias instancias ME, obtenidas de un MEPool por etapa sobre los modelos compartidos.
+ * Cada etapa registra sus llamadas en StageMetrics.
+ */
+public class Pipeline {
+	/** Rutas de los modelos usados por defecto, según el manifiesto (ver ModelManifest). */
+	public static final String SENTENCE_MODEL = ModelManifest.path("sentence");
+	public static final String TOKENIZER_MODEL = ModelManifest.path("tokenizer");
+	public static final String POS_MODEL = ModelManifest.path("pos");
+	public static final String CHUNKER_MODEL = ModelManifest.path("chunker");
+	public static final String NAME_FINDER_MODEL = ModelManifest.path("namefinder");
+	public static final String DOCCAT_MODEL = ModelManifest.path("doccat");
+
+	private final MEPool<SentenceModel, SentenceDetectorME> sentenceDetectors;
+	private final MEPool<TokenizerModel, TokenizerME> tokenizers;
+	private final MEPool<POSModel, POSTaggerME> taggers;
+	private final MEPool<ChunkerModel, ChunkerME> chunkers;
+	private final MEPool<TokenNameFinderModel, NameFinderME> nameFinders;
+	private final MEPool<DoccatModel, DocumentCategorizerME> categorizers;
+
+	/**
+	 * @brief Crea un pipeline a partir de los modelos de cada etapa.
+	 *
+	 * @param sentenceModel Modelo de detección de oraciones.
+	 * @param tokenizerModel Modelo de tokenización.
+	 * @param posModel Modelo de etiquetado gramatical.
+	 * @param chunkerModel Modelo de fragmentación.
+	 * @param nameFinderModel Modelo de detección de entidades.
+	 * @param doccatModel Modelo de clasificación de documentos, o null para omitir esa etapa.
+	 */
+	public Pipeline(SentenceModel sentenceModel, TokenizerModel tokenizerModel, POSModel posModel,
+			ChunkerModel chunkerModel, TokenNameFinderModel nameFinderModel, DoccatModel doccatModel) {
+		this.sentenceDetectors = MEPool.sentenceDetectors(sentenceModel);
+		this.tokenizers = MEPool.tokenizers(tokenizerModel);
+		this.taggers = MEPool.taggers(posModel);
+		this.chunkers = MEPool.chunkers(chunkerModel);
+		this.nameFinders = MEPool.nameFinders(nameFinderModel);
+		this.categorizers = doccatModel == null ? null : MEPool.categorizers(doccatModel);
+	}
+
+	/**
+	 * @brief Crea un pipeline con los modelos por defecto, obtenidos del registro compartido.
+	 *
+	 * @param categorize Si es true, se incluye la clasificación del documento.
+	 * @return Pipeline listo para usar.
+	 * @throws IOException Si algún modelo no se puede cargar.
+	 */
+	public static Pipeline fromRegistry(boolean categorize) throws IOException {
+		ModelRegistry registry = ModelRegistry.getInstance();
+		return new Pipeline(
+				registry.get(SENTENCE_MODEL, SentenceModel.class),
+				registry.get(TOKENIZER_MODEL, TokenizerModel.class),
+				registry.get(POS_MODEL, POSModel.class),
+				registry.get(CHUNKER_MODEL, ChunkerModel.class),
+				registry.get(NAME_FINDER_MODEL, TokenNameFinderModel.class),
+				categorize ? registry.get(DOCCAT_MODEL, DoccatModel.class) : null);
+	}
+
+	/**
+	 * @brief Anota un documento con todas las etapas del pipeline.
+	 *
+	 * Al terminar, el pool de detectores de entidades borra sus datos adaptativos,
+	 * de modo que un documento no influya en el siguiente.
+	 *
+	 * @param id Identificador del documento.
+	 * @param text Texto completo del documento.
+	 * @return Documento anotado.
+	 */
+	public AnnotatedDocument process(String id, String text) {
+		long start = System.nanoTime();
+		Span[] sentenceSpans = sentenceDetectors.get().sentPosDetect(text);
+		StageMetrics.SENT_DETECT.record(start, sentenceSpans.length, 0);
+		List<AnnotatedSentence> sentences = new ArrayList<>(sentenceSpans.length);
+		List<String> documentTokens = categorizers == null ? null : new ArrayList<>();
+
+		nameFinders.apply(nameFinder -> {
+			for (Span sentenceSpan : sentenceSpans) {
+				AnnotatedSentence sentence = processSentence(text, sentenceSpan, nameFinder);
+				sentences.add(sentence);
+				if (documentTokens != null) {
+					for (String token : sentence.getTokens()) {
+						documentTokens.add(token);
+					}
+				}
+			}
+			return null;
+		});
+
+		String category = null;
+		double[] categoryProbs = null;
+		if (categorizers != null) {
+			start = System.nanoTime();
+			DocumentCategorizerME categorizer = categorizers.get();
+			categoryProbs = categorizer.categorize(documentTokens.toArray(new String[0]));
+			category = categorizer.getBestCategory(categoryProbs);
+			StageMetrics.CATEGORIZE.record(start, sentences.size(), documentTokens.size());
+		}
+		return new AnnotatedDocument(id, text, sentences, category, categoryProbs);
+	}
+
+	/**
+	 * @brief Ejecuta las etapas de tokenización en adelante sobre una oración.
+	 */
+	private AnnotatedSentence processSentence(String text, Span sentenceSpan, NameFinderME nameFinder) {
+		int offset = sentenceSpan.getStart();
+		String sentenceText = sentenceSpan.getCoveredText(text).toString();
+
+		// Tokenización: posiciones relativas a la oración, que se pasan a posiciones del documento.
+		long start = System.nanoTime();
+		Span[] tokenSpans = tokenizers.get().tokenizePos(sentenceText);
+		String[] tokens = new String[tokenSpans.length];
+		for (int i = 0; i < tokenSpans.length; i++) {
+			tokens[i] = tokenSpans[i].getCoveredText(sentenceText).toString();
+			tokenSpans[i] = new Span(tokenSpans[i], offset);
+		}
+		StageMetrics.TOKENIZE.record(start, 1, tokens.length);
+
+		start = System.nanoTime();
+		POSTaggerME tagger = taggers.get();
+		String[] posTags = tagger.tag(tokens);
+		double[] posProbs = tagger.probs();
+		StageMetrics.TAG.record(start, 1, tokens.length);
+
+		start = System.nanoTime();
+		ChunkerME chunker = chunkers.get();
+		String[] chunkTags = chunker.chunk(tokens, posTags);
+		double[] chunkProbs = chunker.probs();
+		StageMetrics.CHUNK.record(start, 1, tokens.length);
+
+		start = System.nanoTime();
+		Span[] names = nameFinder.find(tokens);
+		StageMetrics.FIND.record(start, 1, tokens.length);
+
+		return new AnnotatedSentence(sentenceSpan, tokenSpans, tokens, posTags, posProbs, chunkTags, chunkProbs,
+				names);
+	}
+}
@@ -0,0 +1,107 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+// Ejemplo de uso:
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.PipelineMain" -Dexec.args="-doccat demo_data/en-sent1.demo demo_data/en-ner-person.demo salida.txt"
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.PipelineMain" -Dexec.args="-corpus demo_data/en-sent1.demo demo_data/en-ner-person.demo salida.corpus"
+
+/**
+ * @file PipelineMain.java
+ * @brief Programa principal que anota documentos completos con el pipeline de OpenNLP.
+ *
+ * Cada archivo de entrada se lee una sola vez y se anota con todas las etapas
+ * (oraciones, tokens, etiquetas gramaticales, fragmentos y entidades). El resultado
+ * se escribe en un único archivo de salida, con un bloque por documento de entrada.
+ * Con -corpus la salida es un corpus binario por columnas (ver CorpusWriter), que
+ * CorpusReader lee con acceso aleatorio a cada oración.
+ */
+public class PipelineMain {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(PipelineMain.class.getName());
+
+	/**
+	 * @brief Metodo principal del programa.
+	 *
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -doccat para clasificar además cada documento.
+	 *             - Opcional: -corpus para escribir un corpus binario en lugar de texto.
+	 *             - Nombres de archivos de entrada.
+	 *             - Último argumento debe ser el nombre del archivo de salida.
+	 * @throws Exception En caso de errores durante la ejecución.
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean categorize = false;
+		boolean corpus = false;
+		int firstInput = 0;
+		for (; firstInput < args.length && args[firstInput].startsWith("-"); firstInput++) {
+			if ("-doccat".equals(args[firstInput])) {
+				categorize = true;
+			} else if ("-corpus".equals(args[firstInput])) {
+				corpus = true;
+			}
+		}
+
+		if (args.length - firstInput < 2) {
+			LOGGER.severe("Uso: java PipelineMain [-doccat] [-corpus] <archivo1> <archivo2> ... <archivoSalida>");
+			System.exit(1);
+		}
+
+		String outputFileName = args[args.length - 1];
+		List<File> inputFiles = new ArrayList<>();
+		for (int i = firstInput; i < args.length - 1; i++) {
+			inputFiles.add(new File(args[i]));
+		}
+
+		MetricsReporter metrics = MetricsReporter.install();
+		Pipeline pipeline = Pipeline.fromRegistry(categorize);
+
+		try (ResultSink sink = corpus ? new CorpusWriter(new FileOutputStream(outputFileName))
+				: new ConllResultSink(new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(outputFileName), StandardCharsets.UTF_8)), false)) {
+			for (File inputFile : inputFiles) {
+				if (!inputFile.exists()) {
+					LOGGER.warning(() -> String.format("File %s does not exist. Skipping.", inputFile.getName()));
+					continue;
+				}
+
+				String text = new String(Files.readAllBytes(inputFile.toPath()), StandardCharsets.UTF_8);
+				sink.write(pipeline.process(inputFile.getPath(), text));
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error processing the documents: {0}", e.getMessage());
+		}
+
+		metrics.report();
+		LOGGER.info(() -> String.format("Done. Annotations written to: %s", outputFileName));
+	}
+
+	/**
+	 * @brief Escribe un documento anotado en formato tabular.
+	 *
+	 * Cada documento empieza con líneas de comentario (#) con su identificador y su
+	 * categoría. Después aparece una línea por token con las columnas: token, inicio,
+	 * fin, etiqueta gramatical, fragmento y entidad. Las oraciones se separan con una
+	 * línea en blanco (ver ConllResultSink).
+	 *
+	 * @param writer Destino de la salida.
+	 * @param document Documento anotado.
+	 * @throws IOException En caso de errores de escritura.
+	 */
+	static void writeDocument(Writer writer, AnnotatedDocument document) throws IOException {
+		// Sin close(): el Writer es de quien llama.
+		new ConllResultSink(writer, false).write(document);
+	}
+}
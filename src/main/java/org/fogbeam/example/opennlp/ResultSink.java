@@ -0,0 +1,137 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * @file ResultSink.java
+ * @brief Destino de los resultados de anotación, en el formato que se elija.
+ *
+ * Los programas entregan cada oración anotada a un ResultSink en lugar de registrar cada
+ * token con el logger. Cada implementación escribe la oración entera de una vez desde un
+ * búfer que se reutiliza, así que escribir la salida cuesta poco frente a la inferencia.
+ * Las implementaciones no son seguras entre hilos.
+ */
+public interface ResultSink extends Closeable {
+
+	/**
+	 * @brief Formatos de salida disponibles.
+	 */
+	enum Format {
+		/** Un objeto JSON por oración (ver JsonlResultSink). */
+		JSONL,
+		/** Un token por línea con columnas separadas por tabuladores (ver ConllResultSink). */
+		CONLL,
+		/** Registros binarios compactos (ver BinaryResultSink). */
+		BINARY,
+		/** Corpus binario por columnas, con acceso aleatorio (ver CorpusWriter y CorpusReader). */
+		CORPUS;
+
+		/**
+		 * @brief Devuelve el formato con el nombre dado, sin distinguir mayúsculas ("tsv" equivale a CONLL).
+		 *
+		 * @param name Nombre del formato.
+		 * @return Formato correspondiente.
+		 */
+		public static Format fromName(String name) {
+			String upper = name.toUpperCase(Locale.ROOT);
+			return "TSV".equals(upper) ? CONLL : valueOf(upper);
+		}
+	}
+
+	/**
+	 * @brief Empieza un documento nuevo; las oraciones que se escriban después pertenecen a él.
+	 *
+	 * @param id Identificador del documento.
+	 * @param category Categoría del documento, o null si no se clasificó.
+	 * @throws IOException En caso de errores de escritura.
+	 */
+	void startDocument(String id, String category) throws IOException;
+
+	/**
+	 * @brief Escribe una oración anotada.
+	 *
+	 * @param sentence Oración anotada; los arrays a null no se escriben.
+	 * @throws IOException En caso de errores de escritura.
+	 */
+	void write(AnnotatedSentence sentence) throws IOException;
+
+	/**
+	 * @brief Escribe un documento anotado completo.
+	 *
+	 * @param document Documento anotado.
+	 * @throws IOException En caso de errores de escritura.
+	 */
+	default void write(AnnotatedDocument document) throws IOException {
+		startDocument(document.getId(), document.getCategory());
+		for (AnnotatedSentence sentence : document.getSentences()) {
+			write(sentence);
+		}
+	}
+
+	/**
+	 * @brief Vuelca al destino lo que quede en los búferes.
+	 *
+	 * @throws IOException En caso de errores de escritura.
+	 */
+	void flush() throws IOException;
+
+	/**
+	 * @brief Crea un destino en el formato indicado sobre un flujo de salida, que se cierra con él.
+	 *
+	 * @param format Formato de salida.
+	 * @param out Flujo de salida.
+	 * @return Destino de resultados.
+	 * @throws IOException Si no se puede escribir la cabecera del formato.
+	 */
+	static ResultSink open(Format format, OutputStream out) throws IOException {
+		switch (format) {
+			case JSONL:
+				return new JsonlResultSink(out);
+			case BINARY:
+				return new BinaryResultSink(out);
+			case CORPUS:
+				return new CorpusWriter(out);
+			default:
+				return new ConllResultSink(out);
+		}
+	}
+
+	/**
+	 * @brief Crea un destino en el formato indicado sobre un archivo o sobre la salida estándar.
+	 *
+	 * @param format Formato de salida.
+	 * @param fileName Archivo de salida, o null para la salida estándar (que no se cierra con el destino).
+	 * @return Destino de resultados.
+	 * @throws IOException Si el archivo no se puede crear.
+	 */
+	static ResultSink open(Format format, String fileName) throws IOException {
+		if (fileName != null) {
+			return open(format, new FileOutputStream(fileName));
+		}
+		return open(format, new OutputStream() {
+			@Override
+			public void write(int b) {
+				System.out.write(b);
+			}
+
+			@Override
+			public void write(byte[] bytes, int offset, int length) {
+				System.out.write(bytes, offset, length);
+			}
+
+			@Override
+			public void flush() {
+				System.out.flush();
+			}
+
+			@Override
+			public void close() {
+				System.out.flush();
+			}
+		});
+	}
+}
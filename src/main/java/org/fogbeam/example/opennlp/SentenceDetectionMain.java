@@ -3,6 +3,10 @@ package org.fogbeam.example.opennlp;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
 
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
@@ -11,12 +15,21 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.Scanner;
 
+// Ejemplo de uso: java SentenceDetectionMain [-threads N | -stream] [archivo]
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.SentenceDetectionMain"
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.SentenceDetectionMain" -Dexec.args="-threads 8 corpus.txt"
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.SentenceDetectionMain" -Dexec.args="-stream corpus-enorme.txt"
+
 /**
  * @file SentenceDetectionMain.java
  * @brief Programa principal para la detección de oraciones utilizando OpenNLP.
  *
  * Este programa carga un modelo preentrenado de detección de oraciones, procesa un texto
- * de entrada y divide el contenido en oraciones individuales.
+ * de entrada y divide el contenido en oraciones individuales. Con la opción -stream el texto
+ * se lee por ventanas (ver StreamingSentenceDetector) y cada oración se muestra con su
+ * posición en el archivo, de modo que la memoria usada no depende del tamaño del archivo.
+ * Con la opción -threads los párrafos se analizan en paralelo (ver ParallelSentenceDetector),
+ * con el mismo resultado que la detección secuencial.
  */
 public class SentenceDetectionMain {
 
@@ -29,46 +42,77 @@ public class SentenceDetectionMain {
 	 * Este metodo carga un modelo de detección de oraciones, procesa un texto de entrada
 	 * desde un archivo, detecta oraciones individuales en el texto y las muestra en la salida.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados en este programa).
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -threads N para detectar las oraciones con N hilos.
+	 *             - Opcional: -stream para detectar las oraciones por ventanas.
+	 *             - Opcional: archivo de entrada (por defecto, demo_data/en-sent1.demo).
 	 * @throws Exception En caso de errores durante la ejecución.
 	 */
 	public static void main(String[] args) throws Exception {
-		InputStream modelIn = null;     /**< Flujo de entrada para cargar el modelo de detección de oraciones. */
+		// Procesar las opciones, si se indicaron.
+		int threads = 1;
+		boolean streaming = false;
+		int firstInput = 0;
+		while (firstInput < args.length && args[firstInput].startsWith("-")) {
+			if ("-threads".equals(args[firstInput]) && firstInput + 1 < args.length) {
+				threads = Integer.parseInt(args[firstInput + 1]);
+				firstInput += 2;
+			} else if ("-stream".equals(args[firstInput])) {
+				streaming = true;
+				firstInput++;
+			} else {
+				break;
+			}
+		}
+		if (threads < 1 || (streaming && threads > 1)) {
+			LOGGER.severe("Uso: java SentenceDetectionMain [-threads N | -stream] [archivo]");
+			System.exit(1);
+		}
+		String inputFileName = args.length > firstInput ? args[firstInput] : "demo_data/en-sent1.demo";
+		MetricsReporter metrics = MetricsReporter.install();
+
 		InputStream demoDataIn = null; /**< Flujo de entrada para leer los datos de demostración. */
 
 		try {
-			// Carga el modelo preentrenado de detección de oraciones desde un archivo.
-			modelIn = new FileInputStream("models/en-sent.model");
-			SentenceModel model = new SentenceModel(modelIn);
+			// Obtiene el modelo preentrenado de detección de oraciones del registro compartido.
+			SentenceModel model = ModelRegistry.getInstance().get(Pipeline.SENTENCE_MODEL, SentenceModel.class);
 
 			// Inicializa el detector de oraciones con el modelo cargado.
 			SentenceDetectorME sentenceDetector = new SentenceDetectorME(model);
 
-			// Lee el texto de entrada para la demostración desde un archivo.
-			demoDataIn = new FileInputStream("demo_data/en-sent1.demo");
-			String demoData = convertStreamToString(demoDataIn);
-
-			// Detecta oraciones en el texto de entrada.
-			String[] sentences = sentenceDetector.sentDetect(demoData);
+			demoDataIn = new FileInputStream(inputFileName);
+			if (streaming) {
+				detectStreaming(sentenceDetector, demoDataIn);
+			} else {
+				// Lee el texto de entrada completo desde el archivo.
+				String demoData = convertStreamToString(demoDataIn);
+
+				// Detecta oraciones en el texto de entrada.
+				String[] sentences;
+				if (threads > 1) {
+					ForkJoinPool pool = new ForkJoinPool(threads);
+					try {
+						sentences = new ParallelSentenceDetector(model).sentDetect(demoData, pool);
+					} finally {
+						pool.shutdown();
+					}
+				} else {
+					long start = System.nanoTime();
+					sentences = sentenceDetector.sentDetect(demoData);
+					StageMetrics.SENT_DETECT.record(start, sentences.length, 0);
+				}
 
-			// Registra cada oración detectada.
-			for (String sentence : sentences) {
-				LOGGER.info(sentence);
+				// Registra cada oración detectada.
+				for (String sentence : sentences) {
+					LOGGER.info(sentence);
+				}
 			}
 
 		} catch (IOException e) {
 			// En desarrollo: registrar detalles del error para depuración
 			LOGGER.log(Level.SEVERE, "Error loading the model or reading input data: {0}", e.getMessage());
 		} finally {
-			// Cierra los flujos de entrada si están abiertos.
-			if (modelIn != null) {
-				try {
-					modelIn.close();
-				} catch (IOException e) {
-					LOGGER.log(Level.WARNING, "Error closing the model stream: {0}", e.getMessage());
-				}
-			}
-
+			// Cierra el flujo de datos de demostración si está abierto.
 			if (demoDataIn != null) {
 				try {
 					demoDataIn.close();
@@ -78,10 +122,30 @@ public class SentenceDetectionMain {
 			}
 		}
 
-		// Indica que el programa ha finalizado.
+		// Indica que el programa ha finalizado, con las métricas de la detección.
+		metrics.report();
 		LOGGER.info("Program completed successfully.");
 	}
 
+	/**
+	 * @brief Detecta las oraciones por ventanas y registra cada una con su posición en el texto.
+	 *
+	 * @param sentenceDetector Detector de oraciones.
+	 * @param in Texto de entrada en UTF-8.
+	 * @throws IOException En caso de errores al leer el texto.
+	 */
+	private static void detectStreaming(SentenceDetectorME sentenceDetector, InputStream in) throws IOException {
+		Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+		long sentenceCount = new StreamingSentenceDetector(sentenceDetector).detect(reader,
+				(windowOffset, span, window) -> {
+					if (LOGGER.isLoggable(Level.INFO)) {
+						LOGGER.info(String.format("[%d, %d) %s", windowOffset + span.getStart(),
+								windowOffset + span.getEnd(), span.getCoveredText(window)));
+					}
+				});
+		LOGGER.info(String.format("Detected %d sentences", sentenceCount));
+	}
+
 	/**
 	 * @brief Convierte un flujo de entrada (InputStream) en una cadena (String).
 	 *
@@ -0,0 +1,125 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @file StageMetrics.java
+ * @brief Latencias y volumen procesado por cada etapa de anotación, comunes a todo el proceso.
+ *
+ * Cada componente que llama a un modelo (Pipeline, DocumentNameFinder, CachingCategorizer,
+ * ParserService, NlpServer y los programas *Main) registra cada llamada en la etapa que
+ * corresponde:
+ *
+ *   long start = System.nanoTime();
+ *   String[] tags = tagger.tag(tokens);
+ *   StageMetrics.TAG.record(start, 1, tokens.length);
+ *
+ * Registrar una llamada no bloquea (ver LatencyHistogram), así que las etapas se pueden
+ * compartir entre hilos. El rendimiento (tokens/s, oraciones/s) se mide sobre el tiempo
+ * pasado dentro de la etapa, no sobre el tiempo de reloj: no baja cuando el proceso está
+ * ocioso y, con varios hilos, es el de un hilo. Las métricas se publican por JMX y en
+ * instantáneas periódicas (ver MetricsReporter).
+ */
+public enum StageMetrics implements StageMetricsMXBean {
+	/** Tokenización. */
+	TOKENIZE("tokenize"),
+	/** Detección de oraciones. */
+	SENT_DETECT("sentDetect"),
+	/** Etiquetado gramatical. */
+	TAG("tag"),
+	/** Fragmentación. */
+	CHUNK("chunk"),
+	/** Detección de entidades. */
+	FIND("find"),
+	/** Clasificación de documentos. */
+	CATEGORIZE("categorize"),
+	/** Análisis sintáctico. */
+	PARSE("parse");
+
+	private final String name;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder sentences = new LongAdder();
+	private final LongAdder tokens = new LongAdder();
+
+	StageMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @brief Registra una llamada a la etapa.
+	 *
+	 * @param startNanos Valor de System.nanoTime() al empezar la llamada.
+	 * @param sentenceCount Oraciones procesadas en la llamada.
+	 * @param tokenCount Tokens procesados en la llamada.
+	 */
+	public void record(long startNanos, int sentenceCount, int tokenCount) {
+		latency.record(System.nanoTime() - startNanos);
+		sentences.add(sentenceCount);
+		tokens.add(tokenCount);
+	}
+
+	/** @return Histograma de latencias por llamada. */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getCalls() {
+		return latency.getCount();
+	}
+
+	@Override
+	public long getSentences() {
+		return sentences.sum();
+	}
+
+	@Override
+	public long getTokens() {
+		return tokens.sum();
+	}
+
+	@Override
+	public double getTokensPerSecond() {
+		return perSecond(tokens.sum());
+	}
+
+	@Override
+	public double getSentencesPerSecond() {
+		return perSecond(sentences.sum());
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return latency.getMeanMillis();
+	}
+
+	@Override
+	public double getP50Millis() {
+		return latency.getPercentileMillis(50);
+	}
+
+	@Override
+	public double getP95Millis() {
+		return latency.getPercentileMillis(95);
+	}
+
+	@Override
+	public double getP99Millis() {
+		return latency.getPercentileMillis(99);
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return latency.getMaxMillis();
+	}
+
+	private double perSecond(long count) {
+		long nanos = latency.getTotalNanos();
+		return nanos == 0 ? 0 : count * 1_000_000_000.0 / nanos;
+	}
+}
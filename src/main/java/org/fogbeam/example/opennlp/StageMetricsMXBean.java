@@ -0,0 +1,44 @@
+package org.fogbeam.example.opennlp;
+
+/**
+ * @file StageMetricsMXBean.java
+ * @brief Interfaz JMX con las métricas de una etapa de anotación (ver StageMetrics).
+ *
+ * Cada etapa se publica como org.fogbeam.example.opennlp:type=Stage,name=&lt;etapa&gt;
+ * (ver MetricsReporter), de modo que jconsole o cualquier cliente JMX local puede leerla.
+ */
+public interface StageMetricsMXBean {
+
+	/** @return Nombre de la etapa (tokenize, sentDetect, tag, chunk, find, categorize o parse). */
+	String getName();
+
+	/** @return Número de llamadas registradas. */
+	long getCalls();
+
+	/** @return Número de oraciones procesadas. */
+	long getSentences();
+
+	/** @return Número de tokens procesados. */
+	long getTokens();
+
+	/** @return Tokens por segundo de tiempo dentro de la etapa. */
+	double getTokensPerSecond();
+
+	/** @return Oraciones por segundo de tiempo dentro de la etapa. */
+	double getSentencesPerSecond();
+
+	/** @return Latencia media por llamada, en milisegundos. */
+	double getMeanMillis();
+
+	/** @return Percentil 50 de la latencia por llamada, en milisegundos. */
+	double getP50Millis();
+
+	/** @return Percentil 95 de la latencia por llamada, en milisegundos. */
+	double getP95Millis();
+
+	/** @return Percentil 99 de la latencia por llamada, en milisegundos. */
+	double getP99Millis();
+
+	/** @return Latencia máxima de una llamada, en milisegundos. */
+	double getMaxMillis();
+}
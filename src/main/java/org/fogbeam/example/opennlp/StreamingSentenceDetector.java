@@ -0,0 +1,189 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.util.Span;
+
+/**
+ * @file StreamingSentenceDetector.java
+ * @brief Detección de oraciones por ventanas en textos de cualquier tamaño, sin copiar cada oración.
+ *
+ * El texto se lee en una ventana de tamaño fijo sobre la que se llama a sentPosDetect(). Las
+ * oraciones cuyo final ya está confirmado se entregan como Span relativos a la ventana junto
+ * con la posición de la ventana en el texto completo, sin crear una cadena por oración. La
+ * oración final de la ventana, que puede estar incompleta, se pasa al principio de la
+ * ventana siguiente y se vuelve a analizar con el texto que llega detrás, precedida de la
+ * última palabra ya entregada como contexto.
+ *
+ * Un final de oración solo se da por confirmado si la palabra que lo sigue está entera
+ * dentro de la ventana: SentenceDetectorME decide cada posible final mirando la palabra
+ * anterior y la siguiente, así que con ese contexto completo la decisión es la misma que
+ * sobre el texto entero. Si una sola oración no cabe en la ventana, se corta al final de
+ * ella, igual que hace StreamingTokenizer con una palabra demasiado larga.
+ */
+public class StreamingSentenceDetector {
+	/** Tamaño por defecto de la ventana, en caracteres. */
+	public static final int DEFAULT_WINDOW_CHARS = 64 * 1024;
+
+	/**
+	 * @brief Recibe cada oración detectada.
+	 */
+	public interface SentenceListener {
+		/**
+		 * @param windowOffset Posición del primer carácter de la ventana en el texto completo.
+		 * @param span Oración, relativa a la ventana.
+		 * @param window Contenido de la ventana; solo es válido durante la llamada.
+		 *               span.getCoveredText(window) da el texto de la oración.
+		 * @throws IOException Si el destino de las oraciones falla.
+		 */
+		void sentence(long windowOffset, Span span, CharSequence window) throws IOException;
+	}
+
+	private final SentenceDetectorME detector;
+	private final char[] window;
+
+	/**
+	 * @brief Crea un detector por ventanas con el tamaño por defecto.
+	 *
+	 * @param detector Detector a usar. No debe compartirse con otros hilos.
+	 */
+	public StreamingSentenceDetector(SentenceDetectorME detector) {
+		this(detector, DEFAULT_WINDOW_CHARS);
+	}
+
+	/**
+	 * @brief Crea un detector por ventanas.
+	 *
+	 * @param detector Detector a usar. No debe compartirse con otros hilos.
+	 * @param windowChars Tamaño de la ventana, en caracteres; debe caber holgadamente la oración más larga.
+	 */
+	public StreamingSentenceDetector(SentenceDetectorME detector, int windowChars) {
+		if (windowChars < 1) {
+			throw new IllegalArgumentException("windowChars must be positive: " + windowChars);
+		}
+		this.detector = detector;
+		this.window = new char[windowChars];
+	}
+
+	/**
+	 * @brief Detecta las oraciones de todo el contenido de un lector.
+	 *
+	 * @param in Texto de entrada. No se cierra al terminar.
+	 * @param listener Destino de las oraciones, en orden.
+	 * @return Número de oraciones entregadas.
+	 * @throws IOException En caso de errores al leer o en el destino.
+	 */
+	public long detect(Reader in, SentenceListener listener) throws IOException {
+		long sentenceCount = 0;
+		long windowOffset = 0;
+		int length = 0;
+		// Los primeros skip caracteres de la ventana son contexto ya entregado.
+		int skip = 0;
+		int read;
+
+		while ((read = in.read(window, length, window.length - length)) != -1) {
+			length += read;
+			if (length < window.length) {
+				continue;
+			}
+
+			// Ventana llena: se entregan las oraciones confirmadas y se conserva el resto.
+			String text = new String(window, 0, length);
+			long start = System.nanoTime();
+			Span[] spans = detector.sentPosDetect(text);
+			int confirmed = countConfirmed(spans, length);
+			StageMetrics.SENT_DETECT.record(start, confirmed, 0);
+			int carry;
+			int nextSkip;
+			if (confirmed == 0) {
+				// Ningún final confirmado: la ventana entera es parte de una sola oración.
+				confirmed = spans.length;
+				carry = length;
+				nextSkip = 0;
+			} else {
+				carry = previousWordStart(spans[confirmed].getStart());
+				if (carry == 0) {
+					// La palabra de contexto empieza la ventana: conservarla no dejaría sitio para
+					// avanzar, así que la oración pendiente se pasa sin contexto.
+					carry = spans[confirmed].getStart();
+				}
+				nextSkip = spans[confirmed].getStart() - carry;
+			}
+			sentenceCount += emit(spans, confirmed, skip, windowOffset, text, listener);
+
+			skip = nextSkip;
+			System.arraycopy(window, carry, window, 0, length - carry);
+			length -= carry;
+			windowOffset += carry;
+		}
+
+		if (length > skip) {
+			String text = new String(window, 0, length);
+			long start = System.nanoTime();
+			Span[] spans = detector.sentPosDetect(text);
+			StageMetrics.SENT_DETECT.record(start, spans.length, 0);
+			sentenceCount += emit(spans, spans.length, skip, windowOffset, text, listener);
+		}
+		return sentenceCount;
+	}
+
+	/**
+	 * @brief Entrega las primeras count oraciones que no estén dentro del contexto ya entregado.
+	 *
+	 * Una oración que empiece en el contexto y termine después (el detector no ha vuelto a
+	 * cortar donde la ventana anterior) se entrega desde el final del contexto.
+	 */
+	private static long emit(Span[] spans, int count, int skip, long windowOffset, String text,
+			SentenceListener listener) throws IOException {
+		long emitted = 0;
+		for (int i = 0; i < count; i++) {
+			Span span = spans[i];
+			if (span.getEnd() <= skip) {
+				continue;
+			}
+			if (span.getStart() < skip) {
+				span = new Span(skip, span.getEnd());
+			}
+			listener.sentence(windowOffset, span, text);
+			emitted++;
+		}
+		return emitted;
+	}
+
+	/**
+	 * @brief Devuelve dónde empieza la última palabra anterior a una posición de la ventana.
+	 *
+	 * Esa palabra se conserva como contexto: SentenceDetectorME la usa para decidir los
+	 * posibles finales de la primera palabra de la oración siguiente.
+	 */
+	private int previousWordStart(int position) {
+		int i = position;
+		while (i > 0 && Character.isWhitespace(window[i - 1])) {
+			i--;
+		}
+		while (i > 0 && !Character.isWhitespace(window[i - 1])) {
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * @brief Cuenta las oraciones iniciales cuyo final está confirmado.
+	 *
+	 * El final de spans[i] está confirmado si la oración siguiente empieza antes del último
+	 * espacio en blanco de la ventana, es decir, si su primera palabra está entera.
+	 */
+	private int countConfirmed(Span[] spans, int length) {
+		int lastWhitespace = length - 1;
+		while (lastWhitespace >= 0 && !Character.isWhitespace(window[lastWhitespace])) {
+			lastWhitespace--;
+		}
+		int confirmed = 0;
+		while (confirmed + 1 < spans.length && spans[confirmed + 1].getStart() < lastWhitespace) {
+			confirmed++;
+		}
+		return confirmed;
+	}
+}
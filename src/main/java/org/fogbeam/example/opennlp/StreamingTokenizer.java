@@ -0,0 +1,118 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import opennlp.tools.tokenize.Tokenizer;
+
+/**
+ * @file StreamingTokenizer.java
+ * @brief Tokenización por fragmentos de textos de cualquier tamaño con memoria acotada.
+ *
+ * En lugar de leer el texto completo en memoria, esta clase lo lee en un búfer de tamaño
+ * fijo, lo corta en el último salto de línea (o, si no hay ninguno, en el último espacio)
+ * y tokeniza cada fragmento por separado, escribiendo los tokens a medida que se generan.
+ *
+ * Cortar en un espacio en blanco no altera el resultado: TokenizerME separa primero el
+ * texto por espacios y solo después decide dentro de cada palabra, por lo que ningún token
+ * puede cruzar un espacio. La memoria usada depende del tamaño del búfer y no del tamaño
+ * de la entrada.
+ */
+public class StreamingTokenizer {
+	/** Tamaño por defecto del búfer de lectura, en caracteres. */
+	public static final int DEFAULT_BUFFER_CHARS = 64 * 1024;
+
+	private final Tokenizer tokenizer;
+	private final char[] buffer;
+
+	/**
+	 * @brief Crea un tokenizador por fragmentos con el tamaño de búfer por defecto.
+	 *
+	 * @param tokenizer Tokenizador a usar. No debe compartirse con otros hilos.
+	 */
+	public StreamingTokenizer(Tokenizer tokenizer) {
+		this(tokenizer, DEFAULT_BUFFER_CHARS);
+	}
+
+	/**
+	 * @brief Crea un tokenizador por fragmentos.
+	 *
+	 * @param tokenizer Tokenizador a usar. No debe compartirse con otros hilos.
+	 * @param bufferChars Tamaño máximo de cada fragmento, en caracteres.
+	 */
+	public StreamingTokenizer(Tokenizer tokenizer, int bufferChars) {
+		if (bufferChars < 1) {
+			throw new IllegalArgumentException("bufferChars must be positive: " + bufferChars);
+		}
+		this.tokenizer = tokenizer;
+		this.buffer = new char[bufferChars];
+	}
+
+	/**
+	 * @brief Tokeniza todo el contenido de un lector y escribe un token por línea.
+	 *
+	 * @param in Texto de entrada. No se cierra al terminar.
+	 * @param out Destino de los tokens. No se cierra al terminar.
+	 * @return Número de tokens escritos.
+	 * @throws IOException En caso de errores al leer o escribir.
+	 */
+	public long tokenize(Reader in, Writer out) throws IOException {
+		long tokenCount = 0;
+		int length = 0;
+		int read;
+
+		while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+			length += read;
+			if (length < buffer.length) {
+				continue;
+			}
+
+			// Búfer lleno: se tokeniza hasta el último punto de corte seguro y se conserva el resto.
+			int cut = findCut(length);
+			tokenCount += tokenizeChunk(cut, out);
+			System.arraycopy(buffer, cut, buffer, 0, length - cut);
+			length -= cut;
+		}
+
+		if (length > 0) {
+			tokenCount += tokenizeChunk(length, out);
+		}
+		return tokenCount;
+	}
+
+	/**
+	 * @brief Busca la posición de corte dentro de los primeros length caracteres del búfer.
+	 *
+	 * Se prefiere el último salto de línea y, si no lo hay, el último espacio en blanco.
+	 * Si el búfer entero es una sola palabra se corta al final, ya que no hay alternativa
+	 * sin superar el límite de memoria.
+	 */
+	private int findCut(int length) {
+		int lastWhitespace = -1;
+		for (int i = length - 1; i >= 0; i--) {
+			char c = buffer[i];
+			if (c == '\n') {
+				return i + 1;
+			}
+			if (lastWhitespace < 0 && Character.isWhitespace(c)) {
+				lastWhitespace = i;
+			}
+		}
+		return lastWhitespace >= 0 ? lastWhitespace + 1 : length;
+	}
+
+	/**
+	 * @brief Tokeniza los primeros length caracteres del búfer y escribe los tokens.
+	 */
+	private long tokenizeChunk(int length, Writer out) throws IOException {
+		long start = System.nanoTime();
+		String[] tokens = tokenizer.tokenize(new String(buffer, 0, length));
+		StageMetrics.TOKENIZE.record(start, 0, tokens.length);
+		for (String token : tokens) {
+			out.write(token);
+			out.write('\n');
+		}
+		return tokens.length;
+	}
+}
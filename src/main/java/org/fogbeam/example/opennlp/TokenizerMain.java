@@ -1,8 +1,14 @@
 package org.fogbeam.example.opennlp;
 
 import java.io.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -10,8 +16,10 @@ import opennlp.tools.tokenize.Tokenizer;
 import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
 
-// Ejemplo de uso: java TokenizerMain input1.txt input2.txt input3.txt output.txt
+// Ejemplo de uso: java TokenizerMain [-threads N | -stream] input1.txt input2.txt input3.txt output.txt
 // mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.TokenizerMain" -Dexec.args="training_data/en-doccat.train salida.txt"
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.TokenizerMain" -Dexec.args="-threads 8 training_data/en-doccat.train training_data/en-sent.train salida.txt"
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.TokenizerMain" -Dexec.args="-stream corpus-enorme.txt salida.txt"
 
 /**
  * @file TokenizerMain.java
@@ -19,7 +27,11 @@ import opennlp.tools.tokenize.TokenizerModel;
  *
  * Este programa permite procesar múltiples archivos de texto proporcionados como argumentos,
  * aplica un modelo de tokenización para separar el texto en tokens, y guarda el resultado
- * en un archivo de salida único.
+ * en un archivo de salida único. Con la opción -threads los archivos se tokenizan en paralelo,
+ * pero la salida se escribe siempre en el orden en que se dieron los archivos de entrada.
+ * Con la opción -stream cada archivo se tokeniza por fragmentos (ver StreamingTokenizer),
+ * de modo que la memoria usada no depende del tamaño de los archivos. La salida se escribe
+ * en UTF-8 desde un hilo aparte (ver AsyncChannelWriter).
  */
 public class TokenizerMain {
 	// Logger para el registro de mensajes
@@ -33,14 +45,32 @@ public class TokenizerMain {
 	 * en un archivo de salida único.
 	 *
 	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -threads N para tokenizar con N hilos.
+	 *             - Opcional: -stream para tokenizar por fragmentos archivos que no caben en memoria.
 	 *             - Nombres de archivos de entrada.
 	 *             - Último argumento debe ser el nombre del archivo de salida.
 	 * @throws Exception En caso de errores durante la ejecución.
 	 */
 	public static void main(String[] args) throws Exception {
+		// Procesar las opciones, si se indicaron.
+		int threads = 1;
+		boolean streaming = false;
+		int firstInput = 0;
+		while (firstInput < args.length && args[firstInput].startsWith("-")) {
+			if ("-threads".equals(args[firstInput]) && firstInput + 1 < args.length) {
+				threads = Integer.parseInt(args[firstInput + 1]);
+				firstInput += 2;
+			} else if ("-stream".equals(args[firstInput])) {
+				streaming = true;
+				firstInput++;
+			} else {
+				break;
+			}
+		}
+
 		// Validar que se hayan proporcionado al menos un archivo de entrada y uno de salida.
-		if (args.length < 2) {
-			LOGGER.severe("Uso: java TokenizerMain <archivo1> <archivo2> ... <archivoSalida>");
+		if (args.length - firstInput < 2 || threads < 1 || (streaming && threads > 1)) {
+			LOGGER.severe("Uso: java TokenizerMain [-threads N | -stream] <archivo1> <archivo2> ... <archivoSalida>");
 			System.exit(1);
 		}
 
@@ -49,46 +79,180 @@ public class TokenizerMain {
 
 		// Lista de archivos de entrada.
 		List<File> inputFiles = new ArrayList<>();
-		for (int i = 0; i < args.length - 1; i++) {
+		for (int i = firstInput; i < args.length - 1; i++) {
 			inputFiles.add(new File(args[i]));
 		}
 
-		// Cargar el modelo de tokenización.
-		InputStream modelIn = new FileInputStream("models/en-token.model");
-		TokenizerModel model = new TokenizerModel(modelIn);
-		Tokenizer tokenizer = new TokenizerME(model);
+		// Obtener el modelo de tokenización del registro compartido.
+		MetricsReporter metrics = MetricsReporter.install();
+		TokenizerModel model = ModelRegistry.getInstance().get(Pipeline.TOKENIZER_MODEL, TokenizerModel.class);
 
-		try (FileWriter writer = new FileWriter(outputFileName)) {
-			// Procesar cada archivo de entrada.
-			for (File inputFile : inputFiles) {
-				if (!inputFile.exists()) {
-					LOGGER.warning(() -> String.format("El archivo %s no existe. Se omitirá.", inputFile.getName()));
-					continue;
-				}
-
-				// Leer el contenido del archivo de entrada.
-				String content = readFileContent(inputFile);
+		long start = System.nanoTime();
+		long tokenCount = 0;
 
-				// Tokenizar el contenido.
-				String[] tokens = tokenizer.tokenize(content);
+		// La escritura va en su propio hilo (ver AsyncChannelWriter): tokenizar no espera al disco.
+		try (AsyncChannelWriter writer = new AsyncChannelWriter(new File(outputFileName).toPath())) {
+			if (threads > 1) {
+				tokenCount = tokenizeInParallel(model, inputFiles, writer, threads);
+			} else if (streaming) {
+				tokenCount = tokenizeStreaming(model, inputFiles, writer);
+			} else {
+				Tokenizer tokenizer = new TokenizerME(model);
 
-				// Escribir los tokens en el archivo de salida.
-				for (String token : tokens) {
-					writer.write(token + "\n");
+				// Procesar cada archivo de entrada.
+				for (File inputFile : inputFiles) {
+					String[] tokens = tokenizeFile(tokenizer, inputFile);
+					if (tokens != null) {
+						writeTokens(writer, tokens);
+						tokenCount += tokens.length;
+					}
 				}
-				writer.write("\n"); // Separador entre archivos.
 			}
 		} catch (IOException e) {
 			// Registrar detalles del error para depuración
 			LOGGER.log(Level.SEVERE, "Error al procesar los archivos: {0}", e.getMessage());
 		}
-		finally {
-			if (modelIn != null) {
-				modelIn.close();
+
+		logThroughput(inputFiles.size(), tokenCount, System.nanoTime() - start, threads);
+		metrics.report();
+		LOGGER.info(() -> String.format("Tokenización completada. Resultado guardado en: %s", outputFileName));
+	}
+
+	/**
+	 * @brief Tokeniza varios archivos en paralelo y escribe los resultados en orden.
+	 *
+	 * Cada hilo del pool usa su propia instancia de TokenizerME (ver MEPool), ya que no
+	 * son seguras entre hilos, pero todas comparten el mismo modelo. Para no retener en memoria los
+	 * tokens de todos los archivos, solo se mantienen en curso como máximo el doble de
+	 * archivos que de hilos; el resultado más antiguo se escribe antes de encolar uno nuevo.
+	 *
+	 * @param model Modelo de tokenización compartido.
+	 * @param inputFiles Archivos de entrada, en el orden en que deben escribirse.
+	 * @param writer Destino de los tokens.
+	 * @param threads Número de hilos de tokenización.
+	 * @return Número total de tokens escritos.
+	 * @throws IOException En caso de errores al leer o escribir.
+	 */
+	private static long tokenizeInParallel(TokenizerModel model, List<File> inputFiles, Writer writer, int threads)
+			throws IOException {
+		MEPool<TokenizerModel, TokenizerME> tokenizers = MEPool.tokenizers(model);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Deque<Future<String[]>> pending = new ArrayDeque<>();
+		int maxPending = threads * 2;
+		long tokenCount = 0;
+
+		try {
+			for (File inputFile : inputFiles) {
+				if (pending.size() >= maxPending) {
+					tokenCount += writeNext(pending, writer);
+				}
+				pending.add(executor.submit(() -> tokenizeFile(tokenizers.get(), inputFile)));
+			}
+			while (!pending.isEmpty()) {
+				tokenCount += writeNext(pending, writer);
 			}
+		} finally {
+			executor.shutdownNow();
 		}
+		return tokenCount;
+	}
 
-		LOGGER.info(() -> String.format("Tokenización completada. Resultado guardado en: %s", outputFileName));
+	/**
+	 * @brief Tokeniza cada archivo por fragmentos, sin cargarlo entero en memoria.
+	 *
+	 * @param model Modelo de tokenización compartido.
+	 * @param inputFiles Archivos de entrada.
+	 * @param writer Destino de los tokens.
+	 * @return Número total de tokens escritos.
+	 * @throws IOException En caso de errores al leer o escribir.
+	 */
+	private static long tokenizeStreaming(TokenizerModel model, List<File> inputFiles, Writer writer) throws IOException {
+		StreamingTokenizer tokenizer = new StreamingTokenizer(new TokenizerME(model));
+		long tokenCount = 0;
+
+		for (File inputFile : inputFiles) {
+			if (!inputFile.exists()) {
+				LOGGER.warning(() -> String.format("El archivo %s no existe. Se omitirá.", inputFile.getName()));
+				continue;
+			}
+
+			try (Reader reader = new InputStreamReader(new FileInputStream(inputFile), "UTF-8")) {
+				tokenCount += tokenizer.tokenize(reader, writer);
+			}
+			writer.write("\n"); // Separador entre archivos.
+		}
+		return tokenCount;
+	}
+
+	/**
+	 * @brief Espera al resultado más antiguo pendiente y lo escribe.
+	 *
+	 * @return Número de tokens escritos.
+	 */
+	private static long writeNext(Deque<Future<String[]>> pending, Writer writer) throws IOException {
+		String[] tokens;
+		try {
+			tokens = pending.removeFirst().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Tokenización interrumpida", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+
+		if (tokens == null) {
+			return 0;
+		}
+		writeTokens(writer, tokens);
+		return tokens.length;
+	}
+
+	/**
+	 * @brief Lee y tokeniza un archivo.
+	 *
+	 * @param tokenizer Tokenizador a usar (propio del hilo que llama).
+	 * @param inputFile Archivo de entrada.
+	 * @return Tokens del archivo, o null si el archivo no existe.
+	 * @throws IOException En caso de errores al leer el archivo.
+	 */
+	private static String[] tokenizeFile(Tokenizer tokenizer, File inputFile) throws IOException {
+		if (!inputFile.exists()) {
+			LOGGER.warning(() -> String.format("El archivo %s no existe. Se omitirá.", inputFile.getName()));
+			return null;
+		}
+
+		// Leer el contenido del archivo de entrada y tokenizarlo.
+		String content = readFileContent(inputFile);
+		long start = System.nanoTime();
+		String[] tokens = tokenizer.tokenize(content);
+		StageMetrics.TOKENIZE.record(start, 0, tokens.length);
+		return tokens;
+	}
+
+	/**
+	 * @brief Escribe los tokens de un archivo, uno por línea, seguidos de una línea en blanco.
+	 */
+	private static void writeTokens(Writer writer, String[] tokens) throws IOException {
+		for (String token : tokens) {
+			writer.write(token);
+			writer.write('\n');
+		}
+		writer.write("\n"); // Separador entre archivos.
+	}
+
+	/**
+	 * @brief Registra el rendimiento obtenido al final de la ejecución.
+	 */
+	private static void logThroughput(int files, long tokens, long elapsedNanos, int threads) {
+		if (LOGGER.isLoggable(Level.INFO)) {
+			double seconds = Math.max(elapsedNanos, 1L) / 1_000_000_000.0;
+			LOGGER.info(String.format("%d archivos, %d tokens en %.3f s con %d hilo(s): %.1f archivos/s, %.1f tokens/s",
+					files, tokens, seconds, threads, files / seconds, tokens / seconds));
+		}
 	}
 
 	/**
@@ -0,0 +1,50 @@
+package org.fogbeam.example.opennlp;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @file VirtualThreads.java
+ * @brief Acceso a los hilos virtuales sin exigir Java 21 para compilar.
+ *
+ * El proyecto se compila para Java 17, que no tiene hilos virtuales. Si la JVM en la que
+ * se ejecuta sí los tiene, Executors.newVirtualThreadPerTaskExecutor() se obtiene por
+ * reflexión; si no, se usa un pool de hilos normales de tamaño fijo.
+ */
+public final class VirtualThreads {
+	private static final Method FACTORY = findFactory();
+
+	private VirtualThreads() {
+	}
+
+	/** @return true si la JVM ofrece hilos virtuales. */
+	public static boolean isAvailable() {
+		return FACTORY != null;
+	}
+
+	/**
+	 * @brief Crea un ejecutor con un hilo virtual por tarea, o un pool fijo si no hay hilos virtuales.
+	 *
+	 * @param fallbackThreads Tamaño del pool si la JVM no ofrece hilos virtuales.
+	 * @return Ejecutor listo para usar.
+	 */
+	public static ExecutorService newExecutor(int fallbackThreads) {
+		if (FACTORY != null) {
+			try {
+				return (ExecutorService) FACTORY.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				// No debería ocurrir: el método es público y estático. Se usa el pool fijo.
+			}
+		}
+		return Executors.newFixedThreadPool(fallbackThreads);
+	}
+
+	private static Method findFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
@@ -4,10 +4,11 @@ import java.io.*;
 import java.nio.charset.Charset;
 import java.util.logging.Logger;
 
+import org.fogbeam.example.opennlp.ModelManifest;
+
 import opennlp.tools.chunker.*;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.PlainTextByLineStream;
-import opennlp.tools.util.TrainingParameters;
 
 /**
  * @file ChunkerTrainer.java
@@ -26,10 +27,12 @@ public class ChunkerTrainer {
 	 * Este metodo lee datos de entrenamiento en formato CoNLL2000, entrena un modelo de fragmentación
 	 * utilizando OpenNLP y guarda el modelo generado en un archivo para su posterior uso.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados).
+	 * @param args Opciones de entrenamiento (ver TrainerOptions).
 	 * @throws Exception En caso de errores durante la ejecución.
 	 */
 	public static void main(String[] args) throws Exception {
+		TrainerOptions options = TrainerOptions.parse(args); /**< Parámetros de entrenamiento. */
+
 		Charset charset = Charset.forName("UTF-8"); /**< Codificación de los datos de entrenamiento. */
 
 		// Flujo de texto línea por línea a partir de los datos de entrenamiento.
@@ -45,19 +48,22 @@ public class ChunkerTrainer {
 			sampleStream = new ChunkSampleStream(lineStream);
 
 			// Entrena el modelo utilizando los datos de entrada y un generador de contexto predeterminado.
-			model = ChunkerME.train(
-					"en",                                // Idioma del modelo.
-					sampleStream,                        // Flujo de datos de entrenamiento.
-					new DefaultChunkerContextGenerator(), // Generador de contexto para los fragmentos.
-					TrainingParameters.defaultParams()    // Parámetros de entrenamiento por defecto.
-			);
+			try (TrainingProgress progress = TrainingProgress.start("chunker")) {
+				model = ChunkerME.train(
+						"en",                                // Idioma del modelo.
+						sampleStream,                        // Flujo de datos de entrenamiento.
+						new DefaultChunkerContextGenerator(), // Generador de contexto para los fragmentos.
+						options.getParameters()               // Parámetros de entrenamiento (ver TrainerOptions).
+				);
+			}
 
 			// Guardar el modelo entrenado.
-			saveModel(model, "models/en-chunker.model");
+			String modelFile = ModelManifest.path("chunker");
+			saveModel(model, modelFile);
 
 			// Indica que el entrenamiento ha finalizado.
 			if (LOGGER.isLoggable(java.util.logging.Level.INFO)) {
-				LOGGER.info(String.format("Entrenamiento completado. Modelo guardado en: %s", "models/en-chunker.model"));
+				LOGGER.info(String.format("Entrenamiento completado. Modelo guardado en: %s", modelFile));
 			}
 		} finally {
 			// Cierra los recursos solo si fueron inicializados.
@@ -89,5 +95,6 @@ public class ChunkerTrainer {
 				modelOut.close();
 			}
 		}
+		ModelManifest.updateChecksum(modelFile);
 	}
 }
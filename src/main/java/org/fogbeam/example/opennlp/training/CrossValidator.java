@@ -0,0 +1,278 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.eval.FMeasure;
+
+/**
+ * @file CrossValidator.java
+ * @brief Validación cruzada en k particiones, con las particiones entrenadas en paralelo.
+ *
+ * Las muestras se leen una sola vez en memoria y se reparten en k particiones de forma
+ * circular (la muestra i va a la partición i % k), igual que CrossValidationPartitioner
+ * de OpenNLP. Cada partición se entrena con el resto de muestras y se evalúa con las
+ * suyas, y todas las particiones se ejecutan como tareas de un ForkJoinPool. Si una
+ * partición no se puede entrenar (por ejemplo, porque tiene muy pocas muestras para el
+ * modelo), se informa como partición fallida y el resto sigue adelante.
+ *
+ * @param <S> Tipo de muestra (SentenceSample, TokenSample...).
+ * @param <M> Tipo de modelo que produce el entrenamiento.
+ */
+public class CrossValidator<S, M> {
+
+	/**
+	 * @brief Convierte las líneas de un fichero de entrenamiento en muestras.
+	 */
+	@FunctionalInterface
+	public interface SampleParser<S> {
+		ObjectStream<S> parse(ObjectStream<String> lines) throws IOException;
+	}
+
+	/**
+	 * @brief Entrena un modelo con un conjunto de muestras.
+	 */
+	@FunctionalInterface
+	public interface Trainer<S, M> {
+		M train(ObjectStream<S> samples) throws IOException;
+	}
+
+	/**
+	 * @brief Evalúa un modelo con un conjunto de muestras de prueba.
+	 */
+	@FunctionalInterface
+	public interface Scorer<S, M> {
+		Score score(M model, List<S> samples) throws IOException;
+	}
+
+	private final String name;
+	private final SampleParser<S> parser;
+	private final Trainer<S, M> trainer;
+	private final Scorer<S, M> scorer;
+
+	/**
+	 * @brief Crea un validador cruzado para un tipo de modelo.
+	 *
+	 * @param name Nombre del componente (para los informes).
+	 * @param parser Conversión de líneas de texto a muestras.
+	 * @param trainer Entrenamiento de un modelo.
+	 * @param scorer Evaluación de un modelo.
+	 */
+	public CrossValidator(String name, SampleParser<S> parser, Trainer<S, M> trainer, Scorer<S, M> scorer) {
+		this.name = name;
+		this.parser = parser;
+		this.trainer = trainer;
+		this.scorer = scorer;
+	}
+
+	/** @return Nombre del componente. */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @brief Lee todas las muestras de un fichero en formato de entrenamiento de OpenNLP.
+	 *
+	 * @param file Ruta del fichero (UTF-8).
+	 * @return Lista de muestras, en el orden del fichero.
+	 * @throws IOException En caso de errores de lectura o de formato.
+	 */
+	public List<S> readSamples(String file) throws IOException {
+		List<S> samples = new ArrayList<>();
+		try (InputStream in = new FileInputStream(file)) {
+			ObjectStream<S> stream = parser.parse(new PlainTextByLineStream(in, "UTF-8"));
+			S sample;
+			while ((sample = stream.read()) != null) {
+				samples.add(sample);
+			}
+		}
+		return samples;
+	}
+
+	/**
+	 * @brief Ejecuta la validación cruzada con todas las particiones en paralelo.
+	 *
+	 * @param samples Muestras disponibles.
+	 * @param folds Número de particiones (al menos 2).
+	 * @param pool Pool donde se entrenan y evalúan las particiones.
+	 * @return Resultado de cada partición, en orden; las que fallaron tienen isFailed() a true.
+	 * @throws IOException Si se interrumpe la validación.
+	 */
+	public List<FoldResult> crossValidate(List<S> samples, int folds, ForkJoinPool pool) throws IOException {
+		if (folds < 2 || folds > samples.size()) {
+			throw new IllegalArgumentException("Invalid number of folds " + folds + " for " + samples.size() + " samples");
+		}
+
+		List<ForkJoinTask<FoldResult>> tasks = new ArrayList<>(folds);
+		for (int fold = 0; fold < folds; fold++) {
+			int current = fold;
+			tasks.add(pool.submit(() -> runFold(samples, folds, current)));
+		}
+
+		List<FoldResult> results = new ArrayList<>(folds);
+		for (ForkJoinTask<FoldResult> task : tasks) {
+			try {
+				results.add(task.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Cross validation interrupted", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				throw new IOException("Cross validation of " + name + " failed", cause);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @brief Entrena con un conjunto de muestras y evalúa con otro.
+	 *
+	 * @param training Muestras de entrenamiento.
+	 * @param test Muestras de evaluación.
+	 * @return Resultado de la evaluación, con el tiempo de entrenamiento.
+	 * @throws IOException Si falla el entrenamiento o la evaluación.
+	 */
+	public FoldResult trainAndScore(List<S> training, List<S> test) throws IOException {
+		return trainAndScore(-1, training, test);
+	}
+
+	/**
+	 * @brief Entrena y evalúa una partición; si falla, devuelve el error como resultado.
+	 */
+	private FoldResult runFold(List<S> samples, int folds, int fold) {
+		List<S> training = new ArrayList<>(samples.size());
+		List<S> test = new ArrayList<>(samples.size() / folds + 1);
+		for (int i = 0; i < samples.size(); i++) {
+			(i % folds == fold ? test : training).add(samples.get(i));
+		}
+		try {
+			return trainAndScore(fold, training, test);
+		} catch (IOException | RuntimeException e) {
+			return new FoldResult(fold, training.size(), test.size(), null, 0, e);
+		}
+	}
+
+	private FoldResult trainAndScore(int fold, List<S> training, List<S> test) throws IOException {
+		long start = System.nanoTime();
+		M model = trainer.train(ObjectStreamUtils.createObjectStream(training));
+		long trainNanos = System.nanoTime() - start;
+
+		Score score = scorer.score(model, test);
+		return new FoldResult(fold, training.size(), test.size(), score, trainNanos, null);
+	}
+
+	/**
+	 * @brief Precisión, exhaustividad y F1 de una evaluación.
+	 *
+	 * Para los componentes que solo miden exactitud (etiquetado gramatical y
+	 * clasificación de documentos) las tres medidas valen lo mismo.
+	 */
+	public static final class Score {
+		private final double precision;
+		private final double recall;
+		private final double f1;
+
+		public Score(double precision, double recall, double f1) {
+			this.precision = precision;
+			this.recall = recall;
+			this.f1 = f1;
+		}
+
+		/** @return Puntuación a partir de una FMeasure de OpenNLP. */
+		public static Score of(FMeasure measure) {
+			return new Score(measure.getPrecisionScore(), measure.getRecallScore(), measure.getFMeasure());
+		}
+
+		/** @return Puntuación a partir de una exactitud. */
+		public static Score ofAccuracy(double accuracy) {
+			return new Score(accuracy, accuracy, accuracy);
+		}
+
+		public double getPrecision() {
+			return precision;
+		}
+
+		public double getRecall() {
+			return recall;
+		}
+
+		public double getF1() {
+			return f1;
+		}
+	}
+
+	/**
+	 * @brief Resultado de entrenar y evaluar una partición.
+	 */
+	public static final class FoldResult {
+		private final int fold;
+		private final int trainingSize;
+		private final int testSize;
+		private final Score score;
+		private final long trainNanos;
+		private final Exception error;
+
+		FoldResult(int fold, int trainingSize, int testSize, Score score, long trainNanos, Exception error) {
+			this.fold = fold;
+			this.trainingSize = trainingSize;
+			this.testSize = testSize;
+			this.score = score;
+			this.trainNanos = trainNanos;
+			this.error = error;
+		}
+
+		/** @return Índice de la partición, o -1 si no forma parte de una validación cruzada. */
+		public int getFold() {
+			return fold;
+		}
+
+		public int getTrainingSize() {
+			return trainingSize;
+		}
+
+		public int getTestSize() {
+			return testSize;
+		}
+
+		/** @return Puntuación de la partición, o null si falló. */
+		public Score getScore() {
+			return score;
+		}
+
+		/** @return true si la partición no se pudo entrenar o evaluar. */
+		public boolean isFailed() {
+			return error != null;
+		}
+
+		/** @return Error de la partición, o null si no falló. */
+		public Exception getError() {
+			return error;
+		}
+
+		/** @return Tiempo real de entrenamiento, en milisegundos. */
+		public double getTrainMillis() {
+			return trainNanos / 1_000_000.0;
+		}
+
+		@Override
+		public String toString() {
+			if (error != null) {
+				return String.format("FAILED (%d training / %d test samples): %s", trainingSize, testSize, error);
+			}
+			return String.format("P=%.4f R=%.4f F1=%.4f train=%.0f ms (%d training / %d test samples)",
+					score.getPrecision(), score.getRecall(), score.getF1(), getTrainMillis(), trainingSize, testSize);
+		}
+	}
+}
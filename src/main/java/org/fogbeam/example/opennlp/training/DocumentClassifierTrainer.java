@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import org.fogbeam.example.opennlp.ModelManifest;
+
 import opennlp.tools.doccat.DoccatModel;
 import opennlp.tools.doccat.DocumentCategorizerME;
 import opennlp.tools.doccat.DocumentSample;
@@ -38,10 +40,12 @@ public class DocumentClassifierTrainer {
 	 * categorización de documentos y guarda el modelo entrenado en un archivo para
 	 * su posterior uso.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados).
+	 * @param args Opciones de entrenamiento (ver TrainerOptions).
 	 * @throws Exception En caso de errores durante la ejecución.
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		TrainerOptions options = TrainerOptions.parse(args); /**< Parámetros de entrenamiento. */
+
 		DoccatModel model = null; /**< Modelo de clasificación de documentos generado. */
 		InputStream dataIn = null; /**< Flujo de entrada para leer los datos de entrenamiento. */
 
@@ -54,10 +58,13 @@ public class DocumentClassifierTrainer {
 			ObjectStream<DocumentSample> sampleStream = new DocumentSampleStream(lineStream);
 
 			// Entrena el modelo utilizando las muestras de documentos.
-			model = DocumentCategorizerME.train(
-					"en",          // Idioma del modelo.
-					sampleStream   // Flujo de datos de entrenamiento.
-			);
+			try (TrainingProgress progress = TrainingProgress.start("doccat")) {
+				model = DocumentCategorizerME.train(
+						"en",                   // Idioma del modelo.
+						sampleStream,           // Flujo de datos de entrenamiento.
+						options.getParameters() // Parámetros de entrenamiento (ver TrainerOptions).
+				);
+			}
 		} catch (IOException e) {
 			// Registrar detalles del error
 			LOGGER.log(Level.SEVERE, ERROR_LOADING_MODEL, e.getMessage());
@@ -74,12 +81,15 @@ public class DocumentClassifierTrainer {
 		}
 
 		OutputStream modelOut = null; /**< Flujo de salida para guardar el modelo entrenado. */
-		String modelFile = "models/en-doccat.model"; /**< Ruta del archivo donde se guardará el modelo. */
+		String modelFile = ModelManifest.path("doccat"); /**< Ruta del archivo donde se guardará el modelo. */
+
+		boolean saved = false; /**< Solo se actualiza el SHA-256 del manifiesto si el modelo se guardó entero. */
 
 		try {
 			// Guarda el modelo entrenado en un archivo.
 			modelOut = new BufferedOutputStream(new FileOutputStream(modelFile));
 			model.serialize(modelOut);
+			saved = true;
 		} catch (IOException e) {
 			// Registrar detalles del error
 			LOGGER.log(Level.SEVERE, ERROR_LOADING_MODEL, e.getMessage());
@@ -95,6 +105,10 @@ public class DocumentClassifierTrainer {
 			}
 		}
 
+		if (saved) {
+			ModelManifest.updateChecksum(modelFile);
+		}
+
 		// Indica que el entrenamiento ha finalizado correctamente.
 		LOGGER.info("Entrenamiento completado correctamente.");
 	}
@@ -0,0 +1,238 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import opennlp.tools.chunker.ChunkSampleStream;
+import opennlp.tools.chunker.ChunkerEvaluator;
+import opennlp.tools.chunker.ChunkerFactory;
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.doccat.DocumentCategorizerEvaluator;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSampleStream;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.NameSampleDataStream;
+import opennlp.tools.namefind.TokenNameFinderEvaluator;
+import opennlp.tools.postag.POSEvaluator;
+import opennlp.tools.postag.POSTaggerFactory;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.postag.WordTagSampleStream;
+import opennlp.tools.sentdetect.SentenceDetectorEvaluator;
+import opennlp.tools.sentdetect.SentenceDetectorFactory;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceSampleStream;
+import opennlp.tools.tokenize.TokenSampleStream;
+import opennlp.tools.tokenize.TokenizerEvaluator;
+import opennlp.tools.tokenize.TokenizerFactory;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.util.TrainingParameters;
+
+// Ejemplo de uso:
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.training.EvaluationMain" -Dexec.args="sentence 10"
+
+/**
+ * @file EvaluationMain.java
+ * @brief Evaluación de los modelos mediante validación cruzada en paralelo.
+ *
+ * Para el componente indicado, lee sus datos de entrenamiento de training_data, ejecuta
+ * una validación cruzada en k particiones (entrenadas en paralelo en un ForkJoinPool) e
+ * informa de la precisión, exhaustividad, F1 y tiempo de entrenamiento de cada partición.
+ * Si existe un conjunto de evaluación en eval_data para ese componente, además entrena
+ * un modelo con todos los datos y lo evalúa con ese conjunto.
+ */
+public class EvaluationMain {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(EvaluationMain.class.getName());
+
+	/** Número de particiones por defecto. */
+	private static final int DEFAULT_FOLDS = 10;
+
+	/**
+	 * @brief Metodo principal del programa.
+	 *
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: opciones de entrenamiento (ver TrainerOptions).
+	 *             - Componente: sentence, tokenizer, pos, chunker, namefinder o doccat.
+	 *             - Opcional: número de particiones (10 por defecto).
+	 *             - Opcional: número de hilos (por defecto, uno por procesador).
+	 * @throws Exception En caso de errores durante la ejecución.
+	 */
+	public static void main(String[] args) throws Exception {
+		TrainerOptions options = TrainerOptions.parse(args);
+		List<String> arguments = options.getArguments();
+		if (arguments.isEmpty()) {
+			LOGGER.severe("Uso: java EvaluationMain [opciones de entrenamiento] "
+					+ "<sentence|tokenizer|pos|chunker|namefinder|doccat> [particiones] [hilos]");
+			System.exit(1);
+		}
+
+		String component = arguments.get(0);
+		int folds = Integer.parseInt(options.getArgument(1, Integer.toString(DEFAULT_FOLDS)));
+		int threads = Integer.parseInt(options.getArgument(2,
+				Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+		LOGGER.info(String.format("Training parameters: %s", options));
+		evaluate(createValidator(component, options.getParameters()),
+				trainingFile(component), evaluationFile(component), folds, threads);
+	}
+
+	/**
+	 * @brief Ejecuta la validación cruzada y, si hay datos de evaluación, la evaluación final.
+	 */
+	private static <S, M> void evaluate(CrossValidator<S, M> validator, String trainingFile, String evaluationFile,
+			int folds, int threads) throws IOException {
+		List<S> samples = validator.readSamples(trainingFile);
+		if (samples.size() < 2) {
+			LOGGER.severe(String.format("Cross validation needs at least 2 samples, %s has %d",
+					trainingFile, samples.size()));
+			return;
+		}
+		if (folds > samples.size()) {
+			LOGGER.warning(String.format("Only %d samples in %s, using %d folds instead of %d",
+					samples.size(), trainingFile, samples.size(), folds));
+			folds = samples.size();
+		}
+		LOGGER.info(String.format("%s: %d samples read from %s, %d-fold cross validation on %d threads",
+				validator.getName(), samples.size(), trainingFile, folds, threads));
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		List<CrossValidator.FoldResult> results;
+		try {
+			results = validator.crossValidate(samples, folds, pool);
+		} finally {
+			pool.shutdown();
+		}
+		long elapsedNanos = System.nanoTime() - start;
+
+		double precision = 0;
+		double recall = 0;
+		double f1 = 0;
+		double trainMillis = 0;
+		int succeeded = 0;
+		for (CrossValidator.FoldResult result : results) {
+			if (result.isFailed()) {
+				LOGGER.warning(String.format("Fold %d/%d: %s", result.getFold() + 1, folds, result));
+				continue;
+			}
+			LOGGER.info(String.format("Fold %d/%d: %s", result.getFold() + 1, folds, result));
+			precision += result.getScore().getPrecision();
+			recall += result.getScore().getRecall();
+			f1 += result.getScore().getF1();
+			trainMillis += result.getTrainMillis();
+			succeeded++;
+		}
+		if (succeeded == 0) {
+			LOGGER.severe(String.format("All %d folds failed: %s has too few samples (%d) to train a %s model",
+					folds, trainingFile, samples.size(), validator.getName()));
+			return;
+		}
+		LOGGER.info(String.format("Mean of %d/%d folds: P=%.4f R=%.4f F1=%.4f, total training time %.0f ms, "
+				+ "wall-clock %.0f ms", succeeded, folds, precision / succeeded, recall / succeeded, f1 / succeeded,
+				trainMillis, elapsedNanos / 1_000_000.0));
+
+		if (evaluationFile != null && new File(evaluationFile).exists()) {
+			List<S> evaluationSamples = validator.readSamples(evaluationFile);
+			CrossValidator.FoldResult result = validator.trainAndScore(samples, evaluationSamples);
+			LOGGER.info(String.format("Evaluation against %s: %s", evaluationFile, result));
+		}
+	}
+
+	/**
+	 * @brief Crea el validador cruzado de un componente.
+	 *
+	 * @param component Nombre del componente.
+	 * @param params Parámetros de entrenamiento.
+	 * @return Validador del componente.
+	 */
+	static CrossValidator<?, ?> createValidator(String component, TrainingParameters params) {
+		switch (component) {
+			case "sentence":
+				return new CrossValidator<>(component, SentenceSampleStream::new,
+						samples -> SentenceDetectorME.train("en", samples,
+								new SentenceDetectorFactory("en", true, null, null), params),
+						(model, samples) -> {
+							SentenceDetectorEvaluator evaluator = new SentenceDetectorEvaluator(new SentenceDetectorME(model));
+							samples.forEach(evaluator::evaluateSample);
+							return CrossValidator.Score.of(evaluator.getFMeasure());
+						});
+			case "tokenizer":
+				return new CrossValidator<>(component, TokenSampleStream::new,
+						samples -> TokenizerME.train(samples, new TokenizerFactory("en", null, true, null), params),
+						(model, samples) -> {
+							TokenizerEvaluator evaluator = new TokenizerEvaluator(new TokenizerME(model));
+							samples.forEach(evaluator::evaluateSample);
+							return CrossValidator.Score.of(evaluator.getFMeasure());
+						});
+			case "pos":
+				return new CrossValidator<>(component, WordTagSampleStream::new,
+						samples -> POSTaggerME.train("en", samples, params, new POSTaggerFactory()),
+						(model, samples) -> {
+							POSEvaluator evaluator = new POSEvaluator(new POSTaggerME(model));
+							samples.forEach(evaluator::evaluateSample);
+							return CrossValidator.Score.ofAccuracy(evaluator.getWordAccuracy());
+						});
+			case "chunker":
+				return new CrossValidator<>(component, ChunkSampleStream::new,
+						samples -> ChunkerME.train("en", samples, params, new ChunkerFactory()),
+						(model, samples) -> {
+							ChunkerEvaluator evaluator = new ChunkerEvaluator(new ChunkerME(model));
+							samples.forEach(evaluator::evaluateSample);
+							return CrossValidator.Score.of(evaluator.getFMeasure());
+						});
+			case "namefinder":
+				return new CrossValidator<>(component, NameSampleDataStream::new,
+						samples -> NameFinderME.train("en", "person", samples, params, (byte[]) null,
+								Collections.<String, Object>emptyMap()),
+						(model, samples) -> {
+							TokenNameFinderEvaluator evaluator = new TokenNameFinderEvaluator(new NameFinderME(model));
+							samples.forEach(evaluator::evaluateSample);
+							return CrossValidator.Score.of(evaluator.getFMeasure());
+						});
+			case "doccat":
+				return new CrossValidator<>(component, DocumentSampleStream::new,
+						samples -> DocumentCategorizerME.train("en", samples, params),
+						(model, samples) -> {
+							DocumentCategorizerEvaluator evaluator = new DocumentCategorizerEvaluator(
+									new DocumentCategorizerME(model));
+							evaluator.evaluate(samples.iterator());
+							return CrossValidator.Score.ofAccuracy(evaluator.getAccuracy());
+						});
+			default:
+				throw new IllegalArgumentException("Unknown component: " + component);
+		}
+	}
+
+	/**
+	 * @brief Devuelve el fichero de entrenamiento de un componente (el mismo que usa su entrenador).
+	 */
+	static String trainingFile(String component) {
+		switch (component) {
+			case "sentence":
+				return "training_data/en-sent.train";
+			case "tokenizer":
+				return "training_data/en-token.train";
+			case "pos":
+				return "training_data/en-pos.train";
+			case "chunker":
+				return "training_data/conll2000-chunker.train";
+			case "namefinder":
+				return "training_data/en-ner-person.train";
+			case "doccat":
+				return "training_data/en-doccat.train";
+			default:
+				throw new IllegalArgumentException("Unknown component: " + component);
+		}
+	}
+
+	/**
+	 * @brief Devuelve el fichero de evaluación de un componente, o null si no tiene.
+	 */
+	static String evaluationFile(String component) {
+		return "sentence".equals(component) ? "eval_data/en-sent.eval" : null;
+	}
+}
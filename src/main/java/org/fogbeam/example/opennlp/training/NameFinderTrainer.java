@@ -6,13 +6,14 @@ import java.io.FileOutputStream;
 import java.nio.charset.Charset;
 import java.util.Collections;
 
+import org.fogbeam.example.opennlp.ModelManifest;
+
 import opennlp.tools.namefind.NameFinderME;
 import opennlp.tools.namefind.NameSample;
 import opennlp.tools.namefind.NameSampleDataStream;
 import opennlp.tools.namefind.TokenNameFinderModel;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.PlainTextByLineStream;
-import opennlp.tools.util.TrainingParameters;
 
 import java.util.logging.Logger;
 
@@ -34,11 +35,13 @@ public class NameFinderTrainer
 	 * Este metodo utiliza datos de entrenamiento en formato de texto para crear un modelo
 	 * capaz de identificar entidades nombradas (nombres de personas) en un texto tokenizado.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados).
+	 * @param args Opciones de entrenamiento (ver TrainerOptions).
 	 * @throws Exception En caso de errores durante el entrenamiento o escritura del modelo.
 	 */
 	public static void main(String[] args) throws Exception
 	{
+		TrainerOptions options = TrainerOptions.parse(args); /**< Parámetros de entrenamiento. */
+
 		Charset charset = Charset.forName("UTF-8"); /**< Conjunto de caracteres utilizado para leer los datos. */
 
 		// Carga los datos de entrenamiento desde un archivo.
@@ -53,14 +56,16 @@ public class NameFinderTrainer
 		try
 		{
 			// Entrena el modelo utilizando los datos de entrenamiento proporcionados.
-			model = NameFinderME.train(
-					"en",                       // Idioma del modelo.
-					"person",                   // Tipo de entidad a reconocer (nombres de personas).
-					sampleStream,               // Flujo de datos de entrenamiento.
-					TrainingParameters.defaultParams(), // Parámetros de entrenamiento predeterminados.
-					(byte[]) null,              // Datos de contexto adicionales (nulo en este caso).
-					Collections.<String, Object>emptyMap() // Información adicional del modelo (vacío).
-			);
+			try (TrainingProgress progress = TrainingProgress.start("namefinder")) {
+				model = NameFinderME.train(
+						"en",                       // Idioma del modelo.
+						"person",                   // Tipo de entidad a reconocer (nombres de personas).
+						sampleStream,               // Flujo de datos de entrenamiento.
+						options.getParameters(),    // Parámetros de entrenamiento (ver TrainerOptions).
+						(byte[]) null,              // Datos de contexto adicionales (nulo en este caso).
+						Collections.<String, Object>emptyMap() // Información adicional del modelo (vacío).
+				);
+			}
 		}
 		finally
 		{
@@ -70,10 +75,10 @@ public class NameFinderTrainer
 
 		BufferedOutputStream modelOut = null; /**< Flujo de salida para guardar el modelo entrenado. */
 
+		String modelFile = ModelManifest.path("namefinder"); /**< Ruta del archivo donde se guardará el modelo. */
+
 		try
 		{
-			String modelFile = "models/en-ner-person.model"; /**< Ruta del archivo donde se guardará el modelo. */
-
 			// Guarda el modelo entrenado en el archivo especificado.
 			modelOut = new BufferedOutputStream(new FileOutputStream(modelFile));
 			model.serialize(modelOut);
@@ -86,6 +91,7 @@ public class NameFinderTrainer
 				modelOut.close();
 			}
 		}
+		ModelManifest.updateChecksum(modelFile);
 
 		// Indica que el entrenamiento ha finalizado correctamente.
 		LOGGER.info("Entrenamiento completado correctamente.");
@@ -1,13 +1,123 @@
 package org.fogbeam.example.opennlp.training;
 
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
+import org.fogbeam.example.opennlp.ModelManifest;
+
+import opennlp.tools.parser.HeadRules;
+import opennlp.tools.parser.Parse;
+import opennlp.tools.parser.ParseSampleStream;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.parser.chunking.Parser;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * @file ParserTrainer.java
+ * @brief Clase para entrenar un modelo de análisis sintáctico (chunking parser) utilizando OpenNLP.
+ *
+ * Lee árboles sintácticos en formato Penn Treebank (uno por línea) y entrena con ellos los
+ * cuatro modelos del analizador por fragmentos de OpenNLP: construcción, comprobación,
+ * etiquetado gramatical y fragmentación. Las reglas de núcleo (head rules) del inglés se
+ * leen de training_data/en-head-rules.
+ */
 public class ParserTrainer {
 	// Logger para el registro de mensajes
 	private static final Logger LOGGER = Logger.getLogger(ParserTrainer.class.getName());
 
-	public static void main( String[] args ) {
+	/** Submodelos del analizador; cada uno lee sus parámetros con su prefijo ("build.Cutoff"...). */
+	private static final String[] SUBMODELS = {"dict", "build", "check", "tagger", "chunker"};
+
+	/**
+	 * @brief Metodo principal para entrenar un modelo de análisis sintáctico.
+	 *
+	 * El corpus de ejemplo es muy pequeño, así que por defecto se usa un umbral de
+	 * frecuencia (cutoff) de 1; con el valor por defecto de OpenNLP (5) se descartarían
+	 * casi todas las características.
+	 *
+	 * @param args Opciones de entrenamiento (ver TrainerOptions).
+	 * @throws Exception En caso de errores durante el entrenamiento o escritura del modelo.
+	 */
+	public static void main(String[] args) throws Exception {
+		TrainingParameters defaults = TrainingParameters.defaultParams();
+		defaults.put(TrainingParameters.CUTOFF_PARAM, "1");
+		TrainerOptions options = TrainerOptions.parse(args, defaults); /**< Parámetros de entrenamiento. */
+
+		Charset charset = Charset.forName("UTF-8"); /**< Codificación de los datos de entrenamiento. */
+		String modelFile = ModelManifest.path("parser"); /**< Ruta del archivo donde se guardará el modelo. */
+
+		// Reglas para elegir el núcleo de cada constituyente.
+		HeadRules rules;
+		try (Reader rulesIn = new InputStreamReader(new FileInputStream("training_data/en-head-rules"), charset)) {
+			rules = new opennlp.tools.parser.lang.en.HeadRules(rulesIn);
+		}
+
+		// Convierte cada línea (un árbol en formato Penn Treebank) en un objeto Parse. Parser.train
+		// recorre los árboles varias veces (una por submodelo), así que se guardan en memoria.
+		List<Parse> parses = new ArrayList<>();
+		ObjectStream<Parse> parseStream = new ParseSampleStream(
+				new PlainTextByLineStream(new FileInputStream("training_data/en-parser.train"), charset));
+		try {
+			Parse parse;
+			while ((parse = parseStream.read()) != null) {
+				parses.add(parse);
+			}
+		} finally {
+			parseStream.close();
+		}
+		ObjectStream<Parse> sampleStream = ObjectStreamUtils.createObjectStream(parses);
+
+		ParserModel model; /**< Modelo de análisis sintáctico generado. */
+
+		try (TrainingProgress progress = TrainingProgress.start("parser")) {
+			model = Parser.train(
+					"en",                                      // Idioma del modelo.
+					sampleStream,                              // Flujo de árboles de entrenamiento.
+					rules,                                     // Reglas de núcleo del inglés.
+					forSubmodels(options.getParameters())      // Parámetros de entrenamiento (ver TrainerOptions).
+			);
+		} finally {
+			// Cierra el flujo de datos de entrenamiento.
+			sampleStream.close();
+		}
+
+		// Guarda el modelo entrenado.
+		try (OutputStream modelOut = new BufferedOutputStream(new FileOutputStream(modelFile))) {
+			model.serialize(modelOut);
+		}
+		ModelManifest.updateChecksum(modelFile);
+
 		// Indica que el entrenamiento ha finalizado correctamente.
-		LOGGER.info("Entrenamiento completado correctamente.");
+		LOGGER.info(String.format("Entrenamiento completado. Modelo guardado en: %s", modelFile));
+	}
+
+	/**
+	 * @brief Copia los parámetros generales a cada submodelo que no tenga los suyos propios.
+	 *
+	 * Parser.train solo lee parámetros con prefijo (build.Iterations, tagger.Cutoff...);
+	 * sin esta copia, las opciones de la línea de comandos no tendrían ningún efecto.
+	 */
+	private static TrainingParameters forSubmodels(TrainingParameters params) {
+		for (String submodel : SUBMODELS) {
+			Map<String, String> own = params.getSettings(submodel);
+			for (Map.Entry<String, String> entry : params.getSettings().entrySet()) {
+				if (!own.containsKey(entry.getKey())) {
+					params.put(submodel, entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		return params;
 	}
 }
@@ -8,13 +8,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.logging.Level;
 
+import org.fogbeam.example.opennlp.ModelManifest;
+
 import opennlp.tools.postag.POSModel;
 import opennlp.tools.postag.POSSample;
 import opennlp.tools.postag.POSTaggerME;
 import opennlp.tools.postag.WordTagSampleStream;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.PlainTextByLineStream;
-import opennlp.tools.util.TrainingParameters;
 
 import java.util.logging.Logger;
 
@@ -38,9 +39,12 @@ public class PartOfSpeechTaggerTrainer {
 	 * entrena un modelo de etiquetado gramatical y lo guarda en un archivo para
 	 * su posterior uso.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados).
+	 * @param args Opciones de entrenamiento (ver TrainerOptions).
+	 * @throws IOException Si no se puede leer el archivo de parámetros.
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		TrainerOptions options = TrainerOptions.parse(args); /**< Parámetros de entrenamiento. */
+
 		POSModel model = null; /**< Modelo de etiquetado gramatical generado. */
 		InputStream dataIn = null; /**< Flujo de entrada para leer los datos de entrenamiento. */
 
@@ -53,13 +57,15 @@ public class PartOfSpeechTaggerTrainer {
 			ObjectStream<POSSample> sampleStream = new WordTagSampleStream(lineStream);
 
 			// Entrena el modelo utilizando los datos proporcionados y parámetros predeterminados.
-			model = POSTaggerME.train(
-					"en",                        // Idioma del modelo (inglés en este caso).
-					sampleStream,                // Flujo de datos de entrenamiento.
-					TrainingParameters.defaultParams(), // Parámetros de entrenamiento predeterminados.
-					null,                        // Diccionario adicional (nulo en este caso).
-					null                         // Información adicional (nulo en este caso).
-			);
+			try (TrainingProgress progress = TrainingProgress.start("pos")) {
+				model = POSTaggerME.train(
+						"en",                        // Idioma del modelo (inglés en este caso).
+						sampleStream,                // Flujo de datos de entrenamiento.
+						options.getParameters(),     // Parámetros de entrenamiento (ver TrainerOptions).
+						null,                        // Diccionario adicional (nulo en este caso).
+						null                         // Información adicional (nulo en este caso).
+				);
+			}
 		} catch (IOException e) {
 			// En desarrollo: registrar detalles del error para depuración
 			LOGGER.log(Level.SEVERE, ERROR, e.getMessage());
@@ -76,12 +82,15 @@ public class PartOfSpeechTaggerTrainer {
 		}
 
 		OutputStream modelOut = null; /**< Flujo de salida para guardar el modelo entrenado. */
-		String modelFile = "models/en-pos.model"; /**< Ruta del archivo donde se guardará el modelo entrenado. */
+		String modelFile = ModelManifest.path("pos-trained"); /**< Entrada propia del manifiesto: nunca el modelo preentrenado de pos. */
+
+		boolean saved = false; /**< Solo se actualiza el SHA-256 del manifiesto si el modelo se guardó entero. */
 
 		try {
 			// Guarda el modelo entrenado en el archivo especificado.
 			modelOut = new BufferedOutputStream(new FileOutputStream(modelFile));
 			model.serialize(modelOut);
+			saved = true;
 		} catch (IOException e) {
 			// En desarrollo: registrar detalles del error para depuración
 			LOGGER.log(Level.SEVERE, ERROR, e.getMessage());
@@ -97,6 +106,10 @@ public class PartOfSpeechTaggerTrainer {
 			}
 		}
 
+		if (saved) {
+			ModelManifest.updateChecksum(modelFile);
+		}
+
 		// Indica que el entrenamiento ha finalizado correctamente.
 		LOGGER.info("Entrenamiento completado correctamente.");
 	}
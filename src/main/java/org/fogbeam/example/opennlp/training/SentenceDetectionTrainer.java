@@ -8,13 +8,14 @@ import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.logging.Logger;
 
+import org.fogbeam.example.opennlp.ModelManifest;
+
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
 import opennlp.tools.sentdetect.SentenceSample;
 import opennlp.tools.sentdetect.SentenceSampleStream;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.PlainTextByLineStream;
-import opennlp.tools.util.TrainingParameters;
 
 /**
  * @file SentenceDetectionTrainer.java
@@ -35,10 +36,12 @@ public class SentenceDetectionTrainer {
 	 * de detección de oraciones y guarda el modelo resultante en un archivo para
 	 * uso futuro.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados).
+	 * @param args Opciones de entrenamiento (ver TrainerOptions).
 	 * @throws Exception Si ocurre un error durante el entrenamiento o la serialización.
 	 */
 	public static void main(String[] args) throws Exception {
+		TrainerOptions options = TrainerOptions.parse(args); /**< Parámetros de entrenamiento. */
+
 		Charset charset = Charset.forName("UTF-8"); /**< Codificación utilizada para leer los datos de entrenamiento. */
 
 		// Carga los datos de entrenamiento desde un archivo y los convierte en muestras para el entrenamiento.
@@ -50,20 +53,22 @@ public class SentenceDetectionTrainer {
 
 		try {
 			// Entrena el modelo utilizando los datos de entrenamiento.
-			model = SentenceDetectorME.train(
-					"en",                         // Idioma del modelo (inglés en este caso).
-					sampleStream,                 // Flujo de datos de entrenamiento.
-					true,                         // Usa la funcionalidad de palabras múltiples (abstracción).
-					null,                         // Diccionario adicional (nulo en este caso).
-					TrainingParameters.defaultParams() // Parámetros de entrenamiento predeterminados.
-			);
+			try (TrainingProgress progress = TrainingProgress.start("sentence")) {
+				model = SentenceDetectorME.train(
+						"en",                         // Idioma del modelo (inglés en este caso).
+						sampleStream,                 // Flujo de datos de entrenamiento.
+						true,                         // Usa la funcionalidad de palabras múltiples (abstracción).
+						null,                         // Diccionario adicional (nulo en este caso).
+						options.getParameters()       // Parámetros de entrenamiento (ver TrainerOptions).
+				);
+			}
 		} finally {
 			// Cierra el flujo de datos de entrenamiento.
 			sampleStream.close();
 		}
 
 		OutputStream modelOut = null; /**< Flujo de salida para guardar el modelo entrenado. */
-		File modelFile = new File("models/en-sent.model"); /**< Archivo donde se almacenará el modelo. */
+		File modelFile = new File(ModelManifest.path("sentence")); /**< Archivo donde se almacenará el modelo. */
 
 		try {
 			// Guarda el modelo entrenado en el archivo especificado.
@@ -74,6 +79,7 @@ public class SentenceDetectionTrainer {
 			if (modelOut != null)
 				modelOut.close();
 		}
+		ModelManifest.updateChecksum(modelFile.getPath());
 
 		// Indica que el entrenamiento ha finalizado correctamente.
 		LOGGER.info("Entrenamiento completado correctamente.");
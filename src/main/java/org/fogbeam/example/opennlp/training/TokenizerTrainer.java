@@ -7,13 +7,14 @@ import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.logging.Logger;
 
+import org.fogbeam.example.opennlp.ModelManifest;
+
 import opennlp.tools.tokenize.TokenSample;
 import opennlp.tools.tokenize.TokenSampleStream;
 import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.PlainTextByLineStream;
-import opennlp.tools.util.TrainingParameters;
 
 /**
  * @file TokenizerTrainer.java
@@ -32,10 +33,12 @@ public class TokenizerTrainer {
 	 * Este metodo carga datos de entrenamiento, entrena un modelo de tokenización
 	 * y lo guarda en un archivo para su uso posterior.
 	 *
-	 * @param args Argumentos de línea de comandos (no utilizados).
+	 * @param args Opciones de entrenamiento (ver TrainerOptions).
 	 * @throws Exception Si ocurre un error durante la lectura, el entrenamiento o la escritura.
 	 */
 	public static void main(String[] args) throws Exception {
+		TrainerOptions options = TrainerOptions.parse(args); /**< Parámetros de entrenamiento. */
+
 		Charset charset = Charset.forName("UTF-8"); /**< Codificación usada para leer los datos de entrenamiento. */
 
 		// Carga las líneas del archivo de entrenamiento como un flujo de datos de texto.
@@ -49,21 +52,24 @@ public class TokenizerTrainer {
 
 		try {
 			// Entrena el modelo usando las muestras de entrenamiento.
-			model = TokenizerME.train(
-					"en",                          // Idioma del modelo (inglés en este caso).
-					sampleStream,                  // Flujo de muestras de entrenamiento.
-					true,                          // Usa tokenización avanzada (opción habilitada).
-					TrainingParameters.defaultParams() // Parámetros predeterminados de entrenamiento.
-			);
+			try (TrainingProgress progress = TrainingProgress.start("tokenizer")) {
+				model = TokenizerME.train(
+						"en",                          // Idioma del modelo (inglés en este caso).
+						sampleStream,                  // Flujo de muestras de entrenamiento.
+						true,                          // Usa tokenización avanzada (opción habilitada).
+						options.getParameters()        // Parámetros de entrenamiento (ver TrainerOptions).
+				);
+			}
 		} finally {
 			// Asegura que el flujo de muestras se cierre después del entrenamiento.
 			sampleStream.close();
 		}
 
 		OutputStream modelOut = null; /**< Flujo de salida para guardar el modelo entrenado. */
+		String modelFile = ModelManifest.path("tokenizer"); /**< Ruta del archivo donde se guardará el modelo. */
 		try {
 			// Especifica el archivo donde se guardará el modelo.
-			modelOut = new BufferedOutputStream(new FileOutputStream("models/en-token.model"));
+			modelOut = new BufferedOutputStream(new FileOutputStream(modelFile));
 
 			// Serializa el modelo entrenado y lo guarda en el archivo.
 			model.serialize(modelOut);
@@ -73,6 +79,7 @@ public class TokenizerTrainer {
 				modelOut.close();
 			}
 		}
+		ModelManifest.updateChecksum(modelFile);
 
 		// Indica que el entrenamiento ha finalizado correctamente.
 		LOGGER.info("Entrenamiento completado correctamente.");
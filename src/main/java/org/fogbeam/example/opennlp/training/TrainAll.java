@@ -0,0 +1,325 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fogbeam.example.opennlp.ModelManifest;
+
+// Ejemplo de uso:
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.training.TrainAll"
+// mvn exec:java -Dexec.mainClass="org.fogbeam.example.opennlp.training.TrainAll" -Dexec.args="-jobs 2 -force -iterations 50 chunker pos"
+
+/**
+ * @file TrainAll.java
+ * @brief Entrena todos los modelos a la vez con un número limitado de hilos.
+ *
+ * Lanza cada entrenador del paquete training como una tarea de un pool de tamaño fijo
+ * (-jobs N, por defecto uno por procesador). Una tarea solo empieza cuando han terminado
+ * bien las tareas de las que depende; si alguna falla, sus dependientes no se ejecutan.
+ *
+ * Antes de entrenar un modelo se calcula el SHA-256 de sus datos de entrenamiento y de las
+ * opciones de entrenamiento. Si coincide con el de la última ejecución correcta y el modelo
+ * existe, no se vuelve a entrenar (-force lo entrena igualmente). Los resúmenes se guardan
+ * en models/.training-hashes.properties. Cada entrenador actualiza además el SHA-256 de su
+ * modelo en el manifiesto de modelos (ver ModelManifest.updateChecksum).
+ *
+ * El resto de opciones (ver TrainerOptions) se pasan a todos los entrenadores. Si no se
+ * indica -threads, los procesadores se reparten entre las tareas simultáneas. Los argumentos
+ * que no son opciones limitan la ejecución a los modelos indicados.
+ */
+public class TrainAll {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(TrainAll.class.getName());
+
+	/** Archivo con los resúmenes de la última ejecución correcta de cada tarea. */
+	private static final String HASHES_FILE = "models/.training-hashes.properties";
+	/** Mensaje de uso que se registra si los argumentos no son válidos. */
+	private static final String USAGE = "Uso: java TrainAll [-jobs N] [-force] [opciones de entrenamiento] [modelo1 modelo2 ...]";
+
+	/**
+	 * @brief Punto de entrada de un entrenador (su método main).
+	 */
+	@FunctionalInterface
+	interface Trainer {
+		void train(String[] args) throws Exception;
+	}
+
+	/**
+	 * @brief Tarea de entrenamiento de un modelo.
+	 */
+	static final class Task {
+		private final String name;
+		private final Trainer trainer;
+		private final List<String> inputs;
+		private final String model;
+		private final List<String> dependencies;
+
+		Task(String name, Trainer trainer, List<String> inputs, String model, String... dependencies) {
+			this.name = name;
+			this.trainer = trainer;
+			this.inputs = inputs;
+			this.model = model;
+			this.dependencies = Arrays.asList(dependencies);
+		}
+	}
+
+	/**
+	 * @brief Resultado de una tarea, para el informe final.
+	 */
+	private enum Status {
+		TRAINED, SKIPPED, FAILED, NOT_RUN
+	}
+
+	/**
+	 * Tareas de entrenamiento, en orden topológico. Los entrenadores actuales solo leen datos
+	 * ya anotados de training_data, así que no dependen unos de otros; una tarea que necesite
+	 * el modelo de otra lo declara como dependencia.
+	 */
+	static final List<Task> TASKS = Collections.unmodifiableList(Arrays.asList(
+			new Task("tokenizer", TokenizerTrainer::main,
+					Arrays.asList("training_data/en-token.train"), ModelManifest.path("tokenizer")),
+			new Task("sentence", SentenceDetectionTrainer::main,
+					Arrays.asList("training_data/en-sent.train"), ModelManifest.path("sentence")),
+			new Task("pos", PartOfSpeechTaggerTrainer::main,
+					Arrays.asList("training_data/en-pos.train"), ModelManifest.path("pos-trained")),
+			new Task("chunker", ChunkerTrainer::main,
+					Arrays.asList("training_data/conll2000-chunker.train"), ModelManifest.path("chunker")),
+			new Task("namefinder", NameFinderTrainer::main,
+					Arrays.asList("training_data/en-ner-person.train"), ModelManifest.path("namefinder")),
+			new Task("doccat", DocumentClassifierTrainer::main,
+					Arrays.asList("training_data/en-doccat.train"), ModelManifest.path("doccat")),
+			new Task("parser", ParserTrainer::main,
+					Arrays.asList("training_data/en-parser.train", "training_data/en-head-rules"),
+					ModelManifest.path("parser"))));
+
+	/**
+	 * @brief Metodo principal del programa.
+	 *
+	 * @param args Argumentos de línea de comandos:
+	 *             - Opcional: -jobs N para entrenar como mucho N modelos a la vez.
+	 *             - Opcional: -force para entrenar aunque los datos no hayan cambiado.
+	 *             - Opcional: opciones de entrenamiento (ver TrainerOptions).
+	 *             - Opcional: nombres de los modelos a entrenar (todos por defecto).
+	 * @throws Exception En caso de errores durante la ejecución.
+	 */
+	public static void main(String[] args) throws Exception {
+		int jobs = Runtime.getRuntime().availableProcessors();
+		boolean force = false;
+		List<String> trainerArgs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if ("-jobs".equals(args[i]) && i + 1 < args.length) {
+				jobs = Integer.parseInt(args[++i]);
+			} else if ("-force".equals(args[i])) {
+				force = true;
+			} else {
+				trainerArgs.add(args[i]);
+			}
+		}
+		// Antes de repartir los hilos entre los trabajos: con -jobs 0 se dividiría entre cero.
+		if (jobs < 1) {
+			LOGGER.severe(USAGE);
+			System.exit(1);
+		}
+
+		List<String> selected = TrainerOptions.parse(trainerArgs.toArray(new String[0])).getArguments();
+		trainerArgs.removeAll(selected);
+		if (!trainerArgs.contains("-threads")) {
+			trainerArgs.add("-threads");
+			trainerArgs.add(Integer.toString(Math.max(1, Runtime.getRuntime().availableProcessors() / jobs)));
+		}
+
+		List<Task> tasks = new ArrayList<>();
+		for (Task task : TASKS) {
+			if (selected.isEmpty() || selected.contains(task.name)) {
+				tasks.add(task);
+			}
+		}
+		if (tasks.isEmpty()) {
+			LOGGER.severe(USAGE);
+			System.exit(1);
+		}
+
+		run(tasks, trainerArgs.toArray(new String[0]), Math.min(jobs, tasks.size()), force);
+	}
+
+	/**
+	 * @brief Ejecuta las tareas respetando sus dependencias y registra el informe de tiempos.
+	 *
+	 * @param tasks Tareas a ejecutar, en orden topológico.
+	 * @param trainerArgs Opciones que se pasan a cada entrenador.
+	 * @param jobs Número máximo de tareas simultáneas.
+	 * @param force Si es true, se entrena aunque los datos no hayan cambiado.
+	 * @throws IOException Si no se puede leer o guardar el archivo de resúmenes.
+	 */
+	static void run(List<Task> tasks, String[] trainerArgs, int jobs, boolean force) throws IOException {
+		Properties hashes = loadHashes();
+		String options = String.join(" ", trainerArgs);
+		Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+		Map<String, Status> statuses = Collections.synchronizedMap(new LinkedHashMap<>());
+		Map<String, Long> times = Collections.synchronizedMap(new LinkedHashMap<>());
+
+		LOGGER.info(String.format("Training %d models with %d jobs, options: %s", tasks.size(), jobs, options));
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(jobs);
+		try {
+			for (Task task : tasks) {
+				statuses.put(task.name, Status.NOT_RUN);
+				List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+				for (String dependency : task.dependencies) {
+					CompletableFuture<Void> future = futures.get(dependency);
+					if (future != null) {
+						dependencies.add(future);
+					}
+				}
+				futures.put(task.name, CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+						.thenRunAsync(() -> {
+							long taskStart = System.nanoTime();
+							try {
+								statuses.put(task.name, runTask(task, trainerArgs, options, hashes, force));
+							} catch (CompletionException e) {
+								statuses.put(task.name, Status.FAILED);
+								throw e;
+							} finally {
+								times.put(task.name, System.nanoTime() - taskStart);
+							}
+						}, executor));
+			}
+
+			for (CompletableFuture<Void> future : futures.values()) {
+				try {
+					future.join();
+				} catch (CompletionException e) {
+					// Ya registrado por runTask; sus dependientes quedan sin ejecutar.
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		saveHashes(hashes);
+		report(statuses, times, System.nanoTime() - start);
+	}
+
+	/**
+	 * @brief Entrena un modelo si sus datos u opciones han cambiado desde la última vez.
+	 *
+	 * @return Estado de la tarea.
+	 * @throws CompletionException Si el entrenamiento falla, para no ejecutar sus dependientes.
+	 */
+	private static Status runTask(Task task, String[] trainerArgs, String options, Properties hashes, boolean force) {
+		try {
+			String hash = hash(task, options);
+			if (!force && hash.equals(hashes.getProperty(task.name)) && new File(task.model).exists()) {
+				LOGGER.info(String.format("%s: training data unchanged, keeping %s", task.name, task.model));
+				return Status.SKIPPED;
+			}
+
+			// Algunos entrenadores registran sus errores sin lanzarlos: se comprueba que el modelo se ha escrito.
+			File model = new File(task.model);
+			long previous = model.lastModified();
+			LOGGER.info(String.format("%s: training %s", task.name, task.model));
+			task.trainer.train(trainerArgs.clone());
+			if (!model.exists() || model.lastModified() == previous) {
+				throw new IOException("El entrenador no generó " + task.model);
+			}
+			synchronized (hashes) {
+				hashes.setProperty(task.name, hash);
+			}
+			return Status.TRAINED;
+		} catch (Exception e) {
+			LOGGER.log(Level.SEVERE, String.format("%s: training failed", task.name), e);
+			synchronized (hashes) {
+				hashes.remove(task.name);
+			}
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * @brief Calcula el SHA-256 de los datos de entrenamiento de una tarea y de las opciones.
+	 */
+	static String hash(Task task, String options) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		byte[] buffer = new byte[64 * 1024];
+		for (String input : task.inputs) {
+			digest.update(input.getBytes(StandardCharsets.UTF_8));
+			try (InputStream in = new FileInputStream(input)) {
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+			}
+		}
+		digest.update(options.getBytes(StandardCharsets.UTF_8));
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * @brief Registra el tiempo y el estado de cada tarea.
+	 */
+	private static void report(Map<String, Status> statuses, Map<String, Long> times, long elapsedNanos) {
+		if (!LOGGER.isLoggable(Level.INFO)) {
+			return;
+		}
+
+		long sumNanos = 0;
+		StringBuilder report = new StringBuilder("Training report:\n");
+		for (Map.Entry<String, Status> entry : statuses.entrySet()) {
+			Long nanos = times.get(entry.getKey());
+			report.append(String.format("  %-12s %-8s %10.0f ms%n", entry.getKey(), entry.getValue(),
+					nanos == null ? 0.0 : nanos / 1_000_000.0));
+			sumNanos += nanos == null ? 0 : nanos;
+		}
+		report.append(String.format("  %-12s %-8s %10.0f ms (sum of tasks %.0f ms)", "total", "",
+				elapsedNanos / 1_000_000.0, sumNanos / 1_000_000.0));
+		LOGGER.info(report.toString());
+	}
+
+	private static Properties loadHashes() throws IOException {
+		Properties hashes = new Properties();
+		File file = new File(HASHES_FILE);
+		if (file.exists()) {
+			try (InputStream in = new FileInputStream(file)) {
+				hashes.load(in);
+			}
+		}
+		return hashes;
+	}
+
+	private static void saveHashes(Properties hashes) throws IOException {
+		try (OutputStream out = new FileOutputStream(HASHES_FILE)) {
+			hashes.store(out, "SHA-256 de los datos y opciones de entrenamiento de cada modelo (TrainAll)");
+		}
+	}
+}
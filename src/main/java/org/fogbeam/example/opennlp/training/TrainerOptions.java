@@ -0,0 +1,153 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * @file TrainerOptions.java
+ * @brief Opciones de línea de comandos comunes a todos los entrenadores.
+ *
+ * Parte de TrainingParameters.defaultParams(), aplica encima un archivo de parámetros
+ * (formato de OpenNLP: Algorithm=MAXENT, Iterations=100, Cutoff=5, Threads=4...) y, por
+ * último, las opciones sueltas de la línea de comandos:
+ *
+ *   -params archivo   Archivo de parámetros de entrenamiento.
+ *   -algorithm A      MAXENT, PERCEPTRON o MAXENT_QN_EXPERIMENTAL.
+ *   -iterations N     Número de iteraciones.
+ *   -cutoff N         Frecuencia mínima de una característica para tenerla en cuenta.
+ *   -threads N        Hilos de entrenamiento (solo los usa MAXENT).
+ *
+ * Si no se indica el número de hilos, se usa uno por procesador. Los argumentos que no
+ * son opciones se conservan en orden y se obtienen con getArguments().
+ */
+public class TrainerOptions {
+	/** Clave del número de hilos en los parámetros de OpenNLP. */
+	public static final String THREADS_PARAM = "Threads";
+
+	private final TrainingParameters params;
+	private final List<String> arguments;
+
+	private TrainerOptions(TrainingParameters params, List<String> arguments) {
+		this.params = params;
+		this.arguments = arguments;
+	}
+
+	/**
+	 * @brief Interpreta los argumentos de un entrenador.
+	 *
+	 * @param args Argumentos de línea de comandos.
+	 * @return Opciones interpretadas.
+	 * @throws IOException Si no se puede leer el archivo de parámetros.
+	 * @throws IllegalArgumentException Si una opción es desconocida o le falta el valor.
+	 */
+	public static TrainerOptions parse(String[] args) throws IOException {
+		return parse(args, TrainingParameters.defaultParams());
+	}
+
+	/**
+	 * @brief Interpreta los argumentos de un entrenador con otros parámetros por defecto.
+	 *
+	 * @param args Argumentos de línea de comandos.
+	 * @param params Parámetros por defecto del entrenador; se modifican con las opciones.
+	 * @return Opciones interpretadas.
+	 * @throws IOException Si no se puede leer el archivo de parámetros.
+	 * @throws IllegalArgumentException Si una opción es desconocida o le falta el valor.
+	 */
+	public static TrainerOptions parse(String[] args, TrainingParameters params) throws IOException {
+		List<String> arguments = new ArrayList<>();
+
+		// El archivo de parámetros se aplica primero para que las opciones sueltas tengan prioridad.
+		for (int i = 0; i < args.length; i++) {
+			if ("-params".equals(args[i])) {
+				load(params, value(args, i));
+			}
+		}
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-params":
+					value(args, i++);
+					break;
+				case "-algorithm":
+					params.put(TrainingParameters.ALGORITHM_PARAM, value(args, i++));
+					break;
+				case "-iterations":
+					params.put(TrainingParameters.ITERATIONS_PARAM, positive(args, i++));
+					break;
+				case "-cutoff":
+					params.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(Integer.parseInt(value(args, i++))));
+					break;
+				case "-threads":
+					params.put(THREADS_PARAM, positive(args, i++));
+					break;
+				default:
+					if (args[i].startsWith("-")) {
+						throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+					}
+					arguments.add(args[i]);
+			}
+		}
+
+		if (params.getSettings().get(THREADS_PARAM) == null) {
+			params.put(THREADS_PARAM, Integer.toString(Runtime.getRuntime().availableProcessors()));
+		}
+		return new TrainerOptions(params, arguments);
+	}
+
+	/** @return Parámetros de entrenamiento resultantes. */
+	public TrainingParameters getParameters() {
+		return params;
+	}
+
+	/** @return Argumentos que no son opciones, en el orden en que se dieron. */
+	public List<String> getArguments() {
+		return arguments;
+	}
+
+	/**
+	 * @return El argumento en la posición indicada, o el valor por defecto si no se dio.
+	 */
+	public String getArgument(int index, String defaultValue) {
+		return index < arguments.size() ? arguments.get(index) : defaultValue;
+	}
+
+	/** @return Descripción de los parámetros, para el registro. */
+	@Override
+	public String toString() {
+		return params.getSettings().toString();
+	}
+
+	/**
+	 * @brief Añade a los parámetros los de un archivo, incluidos los de submodelos ("build.Cutoff").
+	 */
+	private static void load(TrainingParameters params, String file) throws IOException {
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			properties.load(in);
+		}
+		for (String key : properties.stringPropertyNames()) {
+			params.put(key, properties.getProperty(key));
+		}
+	}
+
+	private static String value(String[] args, int i) {
+		if (i + 1 >= args.length) {
+			throw new IllegalArgumentException("Falta el valor de la opción " + args[i]);
+		}
+		return args[i + 1];
+	}
+
+	private static String positive(String[] args, int i) {
+		int value = Integer.parseInt(value(args, i));
+		if (value < 1) {
+			throw new IllegalArgumentException("El valor de " + args[i] + " debe ser mayor que cero");
+		}
+		return Integer.toString(value);
+	}
+}
@@ -0,0 +1,246 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @file TrainingProgress.java
+ * @brief Tiempo y log-verosimilitud de cada iteración de entrenamiento.
+ *
+ * Los entrenadores de OpenNLP (GIS y perceptrón) solo informan del progreso escribiendo
+ * en System.out una línea por iteración, sin tiempos. Mientras está abierta, esta clase
+ * intercepta System.out (sin dejar de mostrar la salida original), reconoce esas líneas
+ * y registra el tiempo de cada iteración junto con su log-verosimilitud y su precisión
+ * sobre los datos de entrenamiento. Al cerrarse, restaura System.out y registra un resumen.
+ *
+ * Pueden seguirse varios entrenamientos a la vez desde hilos distintos (ver TrainAll): las
+ * líneas se asignan al entrenamiento abierto en el hilo que las escribe, que en OpenNLP es
+ * siempre el hilo que llamó a train().
+ *
+ * Uso:
+ *   try (TrainingProgress progress = TrainingProgress.start("chunker")) {
+ *       model = ChunkerME.train(...);
+ *   }
+ */
+public class TrainingProgress implements AutoCloseable {
+	// Logger para el registro de mensajes
+	private static final Logger LOGGER = Logger.getLogger(TrainingProgress.class.getName());
+
+	/** Línea de inicio del bucle de iteraciones ("Performing 100 iterations."). */
+	private static final Pattern START = Pattern.compile("^Performing (\\d+) iterations\\.");
+
+	/**
+	 * Línea de fin de iteración: "  7:  ... loglikelihood=-8.61\t0.77" en GIS,
+	 * "  7:  . (5/9) 0.55" en el perceptrón.
+	 */
+	private static final Pattern ITERATION = Pattern.compile(
+			"^\\s*(\\d+):\\s+\\.*\\s*(?:loglikelihood=(\\S+)\\s+(\\S+)|\\(\\d+/\\d+\\)\\s+(\\S+))");
+
+	/**
+	 * @brief Datos de una iteración de entrenamiento.
+	 */
+	public static final class Iteration {
+		private final int number;
+		private final double logLikelihood;
+		private final double accuracy;
+		private final long nanos;
+
+		Iteration(int number, double logLikelihood, double accuracy, long nanos) {
+			this.number = number;
+			this.logLikelihood = logLikelihood;
+			this.accuracy = accuracy;
+			this.nanos = nanos;
+		}
+
+		/** @return Número de la iteración, empezando en 1. */
+		public int getNumber() {
+			return number;
+		}
+
+		/** @return Log-verosimilitud de los datos de entrenamiento, o NaN si el algoritmo no la calcula. */
+		public double getLogLikelihood() {
+			return logLikelihood;
+		}
+
+		/** @return Precisión sobre los datos de entrenamiento. */
+		public double getAccuracy() {
+			return accuracy;
+		}
+
+		/** @return Duración de la iteración en milisegundos. */
+		public double getMillis() {
+			return nanos / 1_000_000.0;
+		}
+	}
+
+	/** Entrenamiento seguido en cada hilo. */
+	private static final ThreadLocal<TrainingProgress> CURRENT = new ThreadLocal<>();
+
+	/** System.out previo a la intercepción, y número de entrenamientos abiertos. */
+	private static PrintStream original;
+	private static int active;
+
+	private final String name;
+	private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+	private final long startNanos = System.nanoTime();
+	private final List<Iteration> iterations = new ArrayList<>();
+	private long lastNanos = startNanos;
+	private int announced;
+
+	private TrainingProgress(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @brief Empieza a seguir el progreso de un entrenamiento.
+	 *
+	 * @param name Nombre del entrenamiento, para el registro.
+	 * @return Seguimiento activo; debe cerrarse al terminar el entrenamiento.
+	 */
+	public static TrainingProgress start(String name) {
+		synchronized (TrainingProgress.class) {
+			if (active++ == 0) {
+				original = System.out;
+				System.setOut(new PrintStream(new Tee(original), true));
+			}
+		}
+		TrainingProgress progress = new TrainingProgress(name);
+		CURRENT.set(progress);
+		return progress;
+	}
+
+	/** @return Iteraciones completadas hasta el momento. */
+	public synchronized List<Iteration> getIterations() {
+		return Collections.unmodifiableList(new ArrayList<>(iterations));
+	}
+
+	/**
+	 * @brief Restaura System.out y registra el resumen del entrenamiento.
+	 */
+	@Override
+	public void close() {
+		System.out.flush();
+		CURRENT.remove();
+		synchronized (TrainingProgress.class) {
+			if (--active == 0) {
+				System.setOut(original);
+				original = null;
+			}
+		}
+
+		if (LOGGER.isLoggable(Level.INFO)) {
+			double totalMillis = (System.nanoTime() - startNanos) / 1_000_000.0;
+			List<Iteration> done = getIterations();
+			if (done.isEmpty()) {
+				LOGGER.info(String.format("%s: trained in %.0f ms", name, totalMillis));
+			} else {
+				double iterationMillis = 0;
+				for (Iteration iteration : done) {
+					iterationMillis += iteration.getMillis();
+				}
+				Iteration last = done.get(done.size() - 1);
+				LOGGER.info(String.format(
+						"%s: trained in %.0f ms, %d iterations in %.0f ms (%.1f ms/iteration), "
+								+ "final loglikelihood=%.4f accuracy=%.4f",
+						name, totalMillis, done.size(), iterationMillis, iterationMillis / done.size(),
+						last.getLogLikelihood(), last.getAccuracy()));
+			}
+		}
+	}
+
+	/**
+	 * @brief Acumula un byte escrito por el entrenador y procesa cada línea completa.
+	 */
+	private synchronized void append(int b) {
+		if (b == '\n') {
+			onLine(line.toString(Charset.defaultCharset()));
+			line.reset();
+		} else {
+			line.write(b);
+		}
+	}
+
+	/**
+	 * @brief Procesa una línea completa escrita por el entrenador.
+	 */
+	private void onLine(String line) {
+		long now = System.nanoTime();
+
+		Matcher start = START.matcher(line);
+		if (start.find()) {
+			announced = Integer.parseInt(start.group(1));
+			lastNanos = now;
+			return;
+		}
+
+		Matcher matcher = ITERATION.matcher(line);
+		if (!matcher.find()) {
+			return;
+		}
+		int number = Integer.parseInt(matcher.group(1));
+		double logLikelihood = matcher.group(2) != null ? Double.parseDouble(matcher.group(2)) : Double.NaN;
+		double accuracy = Double.parseDouble(matcher.group(2) != null ? matcher.group(3) : matcher.group(4));
+		Iteration iteration = new Iteration(number, logLikelihood, accuracy, now - lastNanos);
+		iterations.add(iteration);
+		lastNanos = now;
+
+		if (LOGGER.isLoggable(Level.FINE) || (LOGGER.isLoggable(Level.INFO) && isReported(number))) {
+			LOGGER.info(String.format("%s: iteration %d/%d in %.1f ms, loglikelihood=%.4f accuracy=%.4f",
+					name, number, announced, iteration.getMillis(), logLikelihood, accuracy));
+		}
+	}
+
+	/**
+	 * @brief Indica si una iteración se registra a nivel INFO: las diez primeras, una de
+	 *        cada diez y la última, para no duplicar cientos de líneas.
+	 */
+	private boolean isReported(int number) {
+		return number <= 10 || number % 10 == 0 || number == announced;
+	}
+
+	/**
+	 * @brief Flujo que reenvía todo a la salida original y pasa lo escrito al
+	 *        entrenamiento abierto en el hilo actual, si lo hay.
+	 */
+	private static final class Tee extends OutputStream {
+		private final PrintStream out;
+
+		Tee(PrintStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) {
+			out.write(b);
+			TrainingProgress progress = CURRENT.get();
+			if (progress != null) {
+				progress.append(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			out.write(b, off, len);
+			TrainingProgress progress = CURRENT.get();
+			if (progress != null) {
+				for (int i = off; i < off + len; i++) {
+					progress.append(b[i]);
+				}
+			}
+		}
+
+		@Override
+		public void flush() {
+			out.flush();
+		}
+	}
+}
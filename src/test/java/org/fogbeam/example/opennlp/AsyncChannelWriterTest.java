@@ -0,0 +1,154 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @file AsyncChannelWriterTest.java
+ * @brief Comprueba la codificación de pares sustitutos entre bloques, la visibilidad tras flush() y los errores de fondo de AsyncChannelWriter.
+ */
+class AsyncChannelWriterTest {
+	/** Linux: cualquier escritura en /dev/full falla con "No space left on device". */
+	private static final Path DEV_FULL = Paths.get("/dev/full");
+
+	@TempDir
+	Path directory;
+
+	@ParameterizedTest
+	@ValueSource(ints = { 2, 3, 4, 5, 7, 16 })
+	void surrogatePairsSplitAcrossChunks(int chunkChars) throws IOException {
+		// Con cada prefijo, el surrogate alto de algún emoji cae en la última posición de un bloque.
+		for (int prefix = 0; prefix < chunkChars; prefix++) {
+			StringBuilder text = new StringBuilder();
+			for (int i = 0; i < prefix; i++) {
+				text.append('a');
+			}
+			for (int i = 0; i < 50; i++) {
+				text.append("😀é").append(i).append("𝄞");
+			}
+			Path file = directory.resolve("surrogates-" + chunkChars + "-" + prefix + ".txt");
+
+			try (AsyncChannelWriter writer = new AsyncChannelWriter(file, chunkChars, 1, 16)) {
+				writer.write(text.toString());
+			}
+
+			byte[] expected = text.toString().getBytes(StandardCharsets.UTF_8);
+			assertArrayEquals(expected, Files.readAllBytes(file), "chunk " + chunkChars + ", prefix " + prefix);
+		}
+	}
+
+	@Test
+	void surrogatePairsWrittenOneCharAtATime() throws IOException {
+		String text = "x😀y😀😀z𝄞";
+		Path file = directory.resolve("chars.txt");
+
+		try (AsyncChannelWriter writer = new AsyncChannelWriter(file, 2, 1, 16)) {
+			for (int i = 0; i < text.length(); i++) {
+				writer.write(text.charAt(i));
+			}
+		}
+
+		assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "\uD83D", "fin\uD83D", "abcdefg\uD83D", "😀\uD83D" })
+	void loneHighSurrogateAtCloseIsReplaced(String text) throws IOException {
+		// Al cerrar ya no puede llegar la pareja: el surrogate suelto se sustituye por '?', no se pierde.
+		Path file = directory.resolve("lone.txt");
+
+		try (AsyncChannelWriter writer = new AsyncChannelWriter(file, 4, 1, 16)) {
+			writer.write(text);
+			writer.flush();
+		}
+
+		String expected = text.substring(0, text.length() - 1) + "?";
+		assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+	}
+
+	@Test
+	void flushMakesEverythingVisible() throws IOException {
+		Path file = directory.resolve("flush.txt");
+
+		try (AsyncChannelWriter writer = new AsyncChannelWriter(file)) {
+			writer.write("primera línea\n");
+			writer.flush();
+			assertEquals("primera línea\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+			assertEquals(Files.size(file), writer.getBytesWritten());
+
+			char[] more = "segunda línea 😀\n".toCharArray();
+			writer.write(more, 0, more.length);
+			writer.flush();
+			assertEquals("primera línea\nsegunda línea 😀\n",
+					new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+			assertEquals(Files.size(file), writer.getBytesWritten());
+		}
+	}
+
+	@Test
+	void flushWithSmallBuffers() throws IOException {
+		// Bloques y búfer de bytes mucho más pequeños que el texto: flush() tiene que vaciarlo todo.
+		Path file = directory.resolve("small.txt");
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append("línea ").append(i).append('\n');
+		}
+
+		try (AsyncChannelWriter writer = new AsyncChannelWriter(file, 8, 1, 16)) {
+			writer.write(text.toString());
+			writer.flush();
+			assertEquals(text.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	void backgroundErrorSurfacesOnFlushWriteAndClose() throws IOException {
+		assumeTrue(Files.isWritable(DEV_FULL), "needs /dev/full");
+		AsyncChannelWriter writer = new AsyncChannelWriter(DEV_FULL, 16, 1, 16);
+
+		writer.write("no cabe en /dev/full");
+		assertThrows(IOException.class, writer::flush);
+		assertThrows(IOException.class, () -> writer.write("más"));
+		assertThrows(IOException.class, writer::close);
+	}
+
+	@Test
+	void backgroundErrorSurfacesOnALaterWrite() throws IOException {
+		assumeTrue(Files.isWritable(DEV_FULL), "needs /dev/full");
+		AsyncChannelWriter writer = new AsyncChannelWriter(DEV_FULL, 16, 1, 16);
+
+		// Sin flush(): con la cola de un bloque, quien escribe espera al hilo de fondo, que falla al
+		// vaciar el primer búfer lleno; alguna de las escrituras siguientes tiene que lanzar el error.
+		IOException e = assertThrows(IOException.class, () -> {
+			for (int i = 0; i < 100_000; i++) {
+				writer.write("0123456789abcdef");
+			}
+		});
+		assertEquals("Error escribiendo el fichero", e.getMessage());
+		assertThrows(IOException.class, writer::close);
+		// Cerrar otra vez no hace nada.
+		writer.close();
+	}
+
+	@Test
+	void writeAfterCloseFails() throws IOException {
+		AsyncChannelWriter writer = new AsyncChannelWriter(directory.resolve("closed.txt"));
+		writer.close();
+
+		assertThrows(IOException.class, () -> writer.write("tarde"));
+		assertThrows(IOException.class, writer::flush);
+	}
+}
@@ -0,0 +1,185 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import opennlp.tools.util.Span;
+
+/**
+ * @file BinaryResultSinkTest.java
+ * @brief Comprueba que BinaryResultSink.Reader lee exactamente lo que escribió BinaryResultSink.
+ */
+class BinaryResultSinkTest {
+
+	@Test
+	void allColumns() throws IOException {
+		AnnotatedSentence sentence = new AnnotatedSentence(new Span(10, 31),
+				new Span[] { new Span(10, 14), new Span(15, 20), new Span(21, 30), new Span(30, 31) },
+				new String[] { "John", "lives", "in London", "." },
+				new String[] { "NNP", "VBZ", "NNP", "." }, new double[] { 0.9, 0.75, 0.5, 1.0 },
+				new String[] { "B-NP", "B-VP", "B-NP", "O" }, new double[] { 0.8, 0.7, 0.6, 0.99 },
+				new Span[] { new Span(0, 1, "person"), new Span(2, 3, "location") });
+
+		List<AnnotatedSentence> read = roundTrip(sentence);
+
+		assertEquals(1, read.size());
+		assertSameSentence(sentence, read.get(0));
+	}
+
+	@Test
+	void nullColumns() throws IOException {
+		String[] tokens = { "a", "b" };
+		List<AnnotatedSentence> sentences = new ArrayList<>();
+		sentences.add(new AnnotatedSentence(null, null, tokens, null, null, null, null));
+		sentences.add(new AnnotatedSentence(new Span(0, 3), null, tokens, new String[] { "DT", "NN" }, null, null, null));
+		sentences.add(new AnnotatedSentence(null, new Span[] { new Span(0, 1), new Span(2, 3) }, tokens, null, null,
+				new String[] { "B-NP", "I-NP" }, null));
+		sentences.add(new AnnotatedSentence(null, null, tokens, null, null, null, new Span[0]));
+		sentences.add(new AnnotatedSentence(null, null, new String[0], null, null, null, null));
+
+		List<AnnotatedSentence> read = roundTrip(sentences.toArray(new AnnotatedSentence[0]));
+
+		assertEquals(sentences.size(), read.size());
+		for (int i = 0; i < sentences.size(); i++) {
+			assertSameSentence(sentences.get(i), read.get(i));
+		}
+	}
+
+	@Test
+	void nonAsciiTokensAndTags() throws IOException {
+		// Acentos, ideogramas, un emoji (par sustituto en UTF-16) y un token vacío.
+		String[] tokens = { "Łódź", "está", "en", "Polonia", "東京", "😀👍", "" };
+		AnnotatedSentence sentence = new AnnotatedSentence(null, null, tokens,
+				new String[] { "NP", "VÉRB", "PREP", "NP", "名詞", "EMOJI", "" }, null, null, null,
+				new Span[] { new Span(0, 1, "ciudad"), new Span(4, 5, "都市") });
+
+		List<AnnotatedSentence> read = roundTrip(sentence);
+
+		assertSameSentence(sentence, read.get(0));
+	}
+
+	@Test
+	void tokenSpansOutOfOrder() throws IOException {
+		// Un token que empieza antes del final del anterior obliga a escribir un desplazamiento negativo.
+		AnnotatedSentence sentence = new AnnotatedSentence(new Span(100, 120),
+				new Span[] { new Span(100, 110), new Span(105, 108), new Span(119, 120) },
+				new String[] { "overlapping", "lap", "." }, null, null, null, null);
+
+		assertSameSentence(sentence, roundTrip(sentence).get(0));
+	}
+
+	@Test
+	void documentsAndCategories() throws IOException {
+		AnnotatedSentence first = new AnnotatedSentence(null, null, new String[] { "uno" }, null, null, null, null);
+		AnnotatedSentence second = new AnnotatedSentence(null, null, new String[] { "dos" }, null, null, null, null);
+		AnnotatedSentence third = new AnnotatedSentence(null, null, new String[] { "tres" }, null, null, null, null);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (BinaryResultSink sink = new BinaryResultSink(bytes)) {
+			sink.write(first);
+			sink.startDocument("documentos/ñandú.txt", "animales");
+			sink.write(second);
+			sink.startDocument("sin-categoria", null);
+			sink.write(third);
+		}
+
+		try (BinaryResultSink.Reader reader = new BinaryResultSink.Reader(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertArrayEquals(first.getTokens(), reader.read().getTokens());
+			assertNull(reader.getDocumentId());
+			assertNull(reader.getCategory());
+
+			assertArrayEquals(second.getTokens(), reader.read().getTokens());
+			assertEquals("documentos/ñandú.txt", reader.getDocumentId());
+			assertEquals("animales", reader.getCategory());
+
+			assertArrayEquals(third.getTokens(), reader.read().getTokens());
+			assertEquals("sin-categoria", reader.getDocumentId());
+			assertNull(reader.getCategory());
+
+			assertNull(reader.read());
+		}
+	}
+
+	@Test
+	void sentencesLargerThanTheBuffer() throws IOException {
+		// Más de 64 KB por oración: el búfer de BinaryResultSink tiene que crecer.
+		String[] tokens = new String[20000];
+		String[] tags = new String[tokens.length];
+		double[] probs = new double[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			tokens[i] = "token" + i;
+			tags[i] = "T" + (i % 50);
+			probs[i] = i / (double) tokens.length;
+		}
+		AnnotatedSentence sentence = new AnnotatedSentence(null, null, tokens, tags, probs, null, null);
+
+		List<AnnotatedSentence> read = roundTrip(sentence, sentence);
+
+		assertEquals(2, read.size());
+		assertSameSentence(sentence, read.get(0));
+		assertSameSentence(sentence, read.get(1));
+	}
+
+	@Test
+	void rejectsOtherFormats() {
+		byte[] text = "{\"tokens\":[]}\n".getBytes(StandardCharsets.UTF_8);
+		assertThrows(IOException.class, () -> new BinaryResultSink.Reader(new ByteArrayInputStream(text)));
+	}
+
+	private static List<AnnotatedSentence> roundTrip(AnnotatedSentence... sentences) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (BinaryResultSink sink = new BinaryResultSink(bytes)) {
+			for (AnnotatedSentence sentence : sentences) {
+				sink.write(sentence);
+			}
+		}
+
+		List<AnnotatedSentence> read = new ArrayList<>();
+		try (BinaryResultSink.Reader reader = new BinaryResultSink.Reader(new ByteArrayInputStream(bytes.toByteArray()))) {
+			for (AnnotatedSentence sentence = reader.read(); sentence != null; sentence = reader.read()) {
+				read.add(sentence);
+			}
+		}
+		return read;
+	}
+
+	private static void assertSameSentence(AnnotatedSentence expected, AnnotatedSentence actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getSpan(), actual.getSpan());
+		assertArrayEquals(expected.getTokens(), actual.getTokens());
+		assertArrayEquals(expected.getTokenSpans(), actual.getTokenSpans());
+		assertArrayEquals(expected.getPosTags(), actual.getPosTags());
+		assertProbabilities(expected.getPosProbs(), actual.getPosProbs());
+		assertArrayEquals(expected.getChunkTags(), actual.getChunkTags());
+		assertProbabilities(expected.getChunkProbs(), actual.getChunkProbs());
+		assertArrayEquals(expected.getNames(), actual.getNames());
+		if (expected.getNames() != null) {
+			for (int i = 0; i < expected.getNames().length; i++) {
+				assertEquals(expected.getNames()[i].getType(), actual.getNames()[i].getType());
+			}
+		}
+	}
+
+	/** Las probabilidades se guardan en precisión simple. */
+	private static void assertProbabilities(double[] expected, double[] actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals((float) expected[i], (float) actual[i]);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+
+/**
+ * @file CachingPosTaggerTest.java
+ * @brief Comprueba que CachingPosTagger da las mismas etiquetas y probabilidades que POSTaggerME en los dos modos.
+ */
+class CachingPosTaggerTest {
+	private static POSModel model;
+	private static List<String[]> sentences;
+
+	@BeforeAll
+	static void loadModels() throws IOException {
+		ModelRegistry registry = ModelRegistry.getInstance();
+		model = registry.get(Pipeline.POS_MODEL, POSModel.class);
+		SentenceDetectorME detector = new SentenceDetectorME(registry.get(Pipeline.SENTENCE_MODEL, SentenceModel.class));
+		TokenizerME tokenizer = new TokenizerME(registry.get(Pipeline.TOKENIZER_MODEL, TokenizerModel.class));
+
+		sentences = new ArrayList<>();
+		for (String file : new String[] { "demo_data/en-sent1.demo", "demo_data/en-ner-person.demo" }) {
+			String text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+			for (String sentence : detector.sentDetect(text)) {
+				sentences.add(tokenizer.tokenize(sentence));
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(CachingPosTagger.Mode.class)
+	void sameResultsAsPosTagger(CachingPosTagger.Mode mode) {
+		CachingPosTagger caching = new CachingPosTagger(model, mode);
+		POSTaggerME tagger = new POSTaggerME(model);
+
+		// La segunda pasada sale entera de la caché y tiene que dar lo mismo que la primera.
+		for (int pass = 0; pass < 2; pass++) {
+			for (String[] tokens : sentences) {
+				String[] expectedTags = tagger.tag(tokens);
+				double[] expectedProbs = tagger.probs();
+				CachingPosTagger.Tagging tagging = caching.tag(tokens);
+				assertArrayEquals(expectedTags, tagging.getTags(), String.join(" ", tokens));
+				assertArrayEquals(expectedProbs, tagging.getProbs(), String.join(" ", tokens));
+			}
+		}
+		assertEquals(sentences.size(), caching.getHits());
+		assertEquals(sentences.size(), caching.getMisses());
+		assertEquals(0, caching.getEvictions());
+	}
+
+	@Test
+	void longSentencesBypassTheOffHeapTable() {
+		int maxTokens = 8;
+		CachingPosTagger caching = new CachingPosTagger(model, CachingPosTagger.Mode.OFF_HEAP, 1024 * 1024, maxTokens);
+		POSTaggerME tagger = new POSTaggerME(model);
+
+		int longSentences = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			for (String[] tokens : sentences) {
+				assertArrayEquals(tagger.tag(tokens), caching.tag(tokens).getTags());
+				if (pass == 0 && tokens.length > maxTokens) {
+					longSentences++;
+				}
+			}
+		}
+		assertTrue(longSentences > 0, "the demo data should have sentences longer than " + maxTokens + " tokens");
+		// Las oraciones largas se etiquetan con el modelo en las dos pasadas.
+		assertEquals(sentences.size() - longSentences, caching.getHits());
+		assertEquals(sentences.size() + longSentences, caching.getMisses());
+	}
+
+	@Test
+	void smallHeapCacheEvicts() {
+		CachingPosTagger caching = new CachingPosTagger(model, CachingPosTagger.Mode.ON_HEAP, 2, 0);
+		POSTaggerME tagger = new POSTaggerME(model);
+
+		for (String[] tokens : sentences) {
+			assertArrayEquals(tagger.tag(tokens), caching.tag(tokens).getTags());
+		}
+		assertTrue(caching.getEvictions() > 0);
+	}
+
+	@Test
+	void emptySentence() {
+		CachingPosTagger caching = new CachingPosTagger(model, CachingPosTagger.Mode.OFF_HEAP);
+		assertEquals(0, caching.tag(new String[0]).getTags().length);
+	}
+}
@@ -0,0 +1,168 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @file ConcurrentLruCacheTest.java
+ * @brief Comprueba el orden de desalojo, el reparto de la capacidad entre segmentos y las métricas de ConcurrentLruCache.
+ *
+ * Las claves son Integer: el hash de un entero pequeño es el propio entero, así que la
+ * clave k cae en el segmento k % segmentos.
+ */
+class ConcurrentLruCacheTest {
+
+	/** Peso de una entrada: la longitud del valor. */
+	private static long weigh(Integer key, String value) {
+		return value.length();
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(3, 1, ConcurrentLruCacheTest::weigh);
+		cache.put(1, "a");
+		cache.put(2, "b");
+		cache.put(3, "c");
+		// Consultar 1 lo hace el más reciente: el menos usado pasa a ser 2.
+		cache.getIfPresent(1);
+
+		cache.put(4, "d");
+
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.getIfPresent(2));
+		assertNotNull(cache.getIfPresent(1));
+		assertNotNull(cache.getIfPresent(3));
+		assertNotNull(cache.getIfPresent(4));
+
+		// Ahora el orden de uso es 1, 3, 4: el siguiente en salir es 1.
+		cache.put(5, "e");
+		assertNull(cache.getIfPresent(1));
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	void replacingAKeyDoesNotEvict() {
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(2, 1, ConcurrentLruCacheTest::weigh);
+		cache.put(1, "a");
+		cache.put(2, "b");
+		cache.put(2, "bb");
+		cache.put(2, "bbb");
+
+		assertEquals(0, cache.getEvictions());
+		assertEquals(2, cache.size());
+		assertEquals("bbb", cache.getIfPresent(2));
+	}
+
+	@Test
+	void capacityIsSplitBetweenSegments() {
+		// 10 entradas en 4 segmentos: los dos primeros admiten 3 y los otros dos, 2.
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(10, 4, ConcurrentLruCacheTest::weigh);
+		for (int key : new int[] { 0, 4, 8 }) {
+			cache.put(key, "x");
+		}
+		assertEquals(0, cache.getEvictions());
+		cache.put(12, "x");
+		assertEquals(1, cache.getEvictions(), "segment 0 holds 3 entries");
+		assertNull(cache.getIfPresent(0));
+
+		cache.put(3, "x");
+		cache.put(7, "x");
+		assertEquals(1, cache.getEvictions());
+		cache.put(11, "x");
+		assertEquals(2, cache.getEvictions(), "segment 3 holds 2 entries");
+		assertNull(cache.getIfPresent(3));
+
+		// Llenos todos los segmentos, la caché tiene exactamente su capacidad.
+		for (int key = 0; key < 100; key++) {
+			cache.put(key, "x");
+		}
+		assertEquals(10, cache.size());
+		assertEquals(10, cache.getCapacity());
+	}
+
+	@Test
+	void segmentCountNeverExceedsCapacity() {
+		// Con capacidad 3 y 8 hilos quedan 2 segmentos (de 2 y 1 entradas), no 4 ni 8.
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(3, 8, ConcurrentLruCacheTest::weigh);
+		cache.put(1, "x");
+		cache.put(3, "x");
+		assertEquals(1, cache.getEvictions(), "odd keys share the one-entry segment");
+
+		cache.put(0, "x");
+		cache.put(2, "x");
+		assertEquals(1, cache.getEvictions(), "even keys share the two-entry segment");
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	void estimatedBytesFollowPutsReplacementsEvictionsAndClear() {
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(2, 1, ConcurrentLruCacheTest::weigh);
+		cache.put(1, "aa");
+		assertEquals(2, cache.getEstimatedBytes());
+
+		cache.put(1, "aaaaa");
+		assertEquals(5, cache.getEstimatedBytes(), "a replacement subtracts the old value");
+
+		cache.put(2, "bbb");
+		assertEquals(8, cache.getEstimatedBytes());
+
+		cache.put(3, "c");
+		assertEquals(4, cache.getEstimatedBytes(), "an eviction subtracts the evicted entry");
+		assertNull(cache.getIfPresent(1));
+
+		cache.clear();
+		assertEquals(0, cache.getEstimatedBytes());
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getEvictions(), "clear keeps the counters");
+	}
+
+	@Test
+	void countsHitsAndMisses() {
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(10, 2, ConcurrentLruCacheTest::weigh);
+		AtomicInteger loads = new AtomicInteger();
+		Function<Integer, String> loader = key -> {
+			loads.incrementAndGet();
+			return "v" + key;
+		};
+
+		assertEquals("v1", cache.get(1, loader));
+		assertEquals("v1", cache.get(1, loader));
+		assertEquals("v1", cache.get(1, loader));
+		assertNull(cache.getIfPresent(2));
+
+		assertEquals(1, loads.get());
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(0.5, cache.getHitRate());
+
+		cache.clear();
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	void hitRateWithoutQueriesIsZero() {
+		assertEquals(0, new ConcurrentLruCache<Integer, String>(1, ConcurrentLruCacheTest::weigh).getHitRate());
+	}
+
+	@Test
+	void loaderMustNotReturnNull() {
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(10, 1, ConcurrentLruCacheTest::weigh);
+
+		assertThrows(NullPointerException.class, () -> cache.get(1, key -> null));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void rejectsZeroCapacity() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new ConcurrentLruCache<Integer, String>(0, 1, ConcurrentLruCacheTest::weigh));
+	}
+}
@@ -0,0 +1,159 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import opennlp.tools.util.Span;
+
+/**
+ * @file CorpusReaderTest.java
+ * @brief Comprueba que CorpusReader devuelve lo mismo que se escribió con CorpusWriter, sea cual sea el tamaño de bloque.
+ */
+class CorpusReaderTest {
+	private static final String[] FILES = {
+		"demo_data/en-sent1.demo",
+		"demo_data/en-ner-person.demo",
+		"training_data/Ocmulgee National Monument - Georgia.txt",
+	};
+
+	/** Oración sin documento ni anotaciones, con tokens que no son ASCII. */
+	private static final AnnotatedSentence BARE = new AnnotatedSentence(null, null,
+			new String[] { "héllo", "wörld", "😀" }, null, null, null, null);
+
+	private static List<AnnotatedDocument> documents;
+	/** Oraciones en el orden en que se escriben, con el documento de cada una. */
+	private static List<AnnotatedSentence> sentences;
+	private static List<String> documentIds;
+
+	@TempDir
+	Path directory;
+
+	@BeforeAll
+	static void annotate() throws IOException {
+		Pipeline pipeline = Pipeline.fromRegistry(true);
+		documents = new ArrayList<>();
+		sentences = new ArrayList<>();
+		documentIds = new ArrayList<>();
+		sentences.add(BARE);
+		documentIds.add(null);
+		for (String file : FILES) {
+			AnnotatedDocument document = pipeline.process(file,
+					new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+			documents.add(document);
+			for (AnnotatedSentence sentence : document.getSentences()) {
+				sentences.add(sentence);
+				documentIds.add(file);
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 7, 100, CorpusWriter.DEFAULT_BLOCK_SENTENCES })
+	void roundTrip(int blockSentences) throws IOException {
+		Path file = write(blockSentences);
+
+		try (CorpusReader reader = new CorpusReader(file)) {
+			assertEquals(sentences.size(), reader.size());
+			for (int i = 0; i < sentences.size(); i++) {
+				assertSentence(i, reader);
+			}
+			List<AnnotatedSentence> range = reader.get(3, 10);
+			assertEquals(7, range.size());
+			for (int i = 0; i < range.size(); i++) {
+				assertArrayEquals(sentences.get(3 + i).getTokens(), range.get(i).getTokens());
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 7, 100, CorpusWriter.DEFAULT_BLOCK_SENTENCES })
+	void randomAccess(int blockSentences) throws IOException {
+		Path file = write(blockSentences);
+		Random random = new Random(42);
+
+		try (CorpusReader reader = new CorpusReader(file)) {
+			for (int n = 0; n < 2000; n++) {
+				assertSentence(random.nextInt(sentences.size()), reader);
+			}
+		}
+	}
+
+	@Test
+	void nullColumnsAndNonAsciiTokens() throws IOException {
+		try (CorpusReader reader = new CorpusReader(write(7))) {
+			AnnotatedSentence sentence = reader.get(0);
+			assertArrayEquals(BARE.getTokens(), sentence.getTokens());
+			assertEquals("😀", reader.getToken(0, 2));
+			assertNull(sentence.getSpan());
+			assertNull(sentence.getTokenSpans());
+			assertNull(sentence.getPosTags());
+			assertNull(sentence.getChunkTags());
+			assertNull(sentence.getNames());
+			assertNull(reader.getPosTag(0, 0));
+			assertNull(reader.getDocumentId(0));
+		}
+	}
+
+	@Test
+	void rejectsFilesThatAreNotCorpora() throws IOException {
+		Path empty = Files.write(directory.resolve("empty.corpus"), new byte[0]);
+		Path tiny = Files.write(directory.resolve("tiny.corpus"), new byte[] { 1, 2, 3 });
+		Path text = Files.write(directory.resolve("text.corpus"),
+				"This is plain text, not a corpus file.".getBytes(StandardCharsets.UTF_8));
+
+		for (Path file : new Path[] { empty, tiny, text }) {
+			IOException e = assertThrows(IOException.class, () -> new CorpusReader(file).close());
+			assertEquals(file + " is not a corpus file", e.getMessage());
+		}
+	}
+
+	private Path write(int blockSentences) throws IOException {
+		Path file = directory.resolve("corpus-" + blockSentences + ".bin");
+		try (CorpusWriter writer = new CorpusWriter(new FileOutputStream(file.toFile()), blockSentences)) {
+			writer.write(BARE);
+			for (AnnotatedDocument document : documents) {
+				writer.write(document);
+			}
+		}
+		return file;
+	}
+
+	private static void assertSentence(int i, CorpusReader reader) {
+		AnnotatedSentence expected = sentences.get(i);
+		AnnotatedSentence actual = reader.get(i);
+		assertEquals(documentIds.get(i), reader.getDocumentId(i), "document of sentence " + i);
+		assertEquals(expected.getSpan(), actual.getSpan(), "span of sentence " + i);
+		assertArrayEquals(expected.getTokens(), actual.getTokens(), "tokens of sentence " + i);
+		assertArrayEquals(expected.getTokenSpans(), actual.getTokenSpans(), "token spans of sentence " + i);
+		assertArrayEquals(expected.getPosTags(), actual.getPosTags(), "POS tags of sentence " + i);
+		assertArrayEquals(expected.getChunkTags(), actual.getChunkTags(), "chunk tags of sentence " + i);
+		assertEquals(expected.getTokens().length, reader.getTokenCount(i));
+
+		Span[] expectedNames = expected.getNames();
+		Span[] actualNames = actual.getNames();
+		assertArrayEquals(expectedNames, actualNames, "names of sentence " + i);
+		if (expectedNames != null) {
+			for (int n = 0; n < expectedNames.length; n++) {
+				assertEquals(expectedNames[n].getType(), actualNames[n].getType());
+			}
+		}
+	}
+}
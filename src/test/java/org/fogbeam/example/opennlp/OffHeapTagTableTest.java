@@ -0,0 +1,113 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @file OffHeapTagTableTest.java
+ * @brief Comprueba las colisiones, los desalojos y el límite de tokens de OffHeapTagTable.
+ */
+class OffHeapTagTableTest {
+	private static final String[] TAG_NAMES = { "DT", "NN", "VBZ", "." };
+	/** Bytes de una ranura con maxTokens = 4: cabecera de 24 más 4 × 10, redondeado a 8. */
+	private static final int SLOT_BYTES = 64;
+
+	@Test
+	void storesTagsAndProbabilities() {
+		OffHeapTagTable table = new OffHeapTagTable(10 * SLOT_BYTES, 4);
+		table.put(1, 100, new short[] { 0, 1, 2, 3 }, new double[] { 0.5, 0.25, 0.125, 1.0 });
+
+		CachingPosTagger.Tagging tagging = table.get(1, 100, 4, TAG_NAMES);
+
+		assertNotNull(tagging);
+		assertArrayEquals(TAG_NAMES, tagging.getTags());
+		assertArrayEquals(new double[] { 0.5, 0.25, 0.125, 1.0 }, tagging.getProbs());
+		assertEquals(1, table.getHits());
+		assertEquals(0, table.getMisses());
+	}
+
+	@Test
+	void collisionOverwritesTheSlot() {
+		// Con una sola ranura, dos oraciones distintas siempre colisionan.
+		OffHeapTagTable table = new OffHeapTagTable(SLOT_BYTES, 4);
+		assertEquals(SLOT_BYTES, table.getCapacityBytes());
+
+		table.put(1, 100, new short[] { 0, 1 }, new double[] { 0.9, 0.8 });
+		table.put(2, 200, new short[] { 2, 3, 3 }, new double[] { 0.7, 0.6, 0.5 });
+
+		assertEquals(1, table.getEvictions());
+		assertNull(table.get(1, 100, 2, TAG_NAMES));
+		assertArrayEquals(new String[] { "VBZ", ".", "." }, table.get(2, 200, 3, TAG_NAMES).getTags());
+		assertEquals(1, table.getHits());
+		assertEquals(1, table.getMisses());
+	}
+
+	@Test
+	void rewritingTheSameSentenceIsNotAnEviction() {
+		OffHeapTagTable table = new OffHeapTagTable(SLOT_BYTES, 4);
+		table.put(1, 100, new short[] { 0, 1 }, new double[] { 0.9, 0.8 });
+		table.put(1, 100, new short[] { 0, 1 }, new double[] { 0.9, 0.8 });
+
+		assertEquals(0, table.getEvictions());
+	}
+
+	@Test
+	void firstPutIntoAnEmptySlotIsNotAnEviction() {
+		OffHeapTagTable table = new OffHeapTagTable(4 * SLOT_BYTES, 4);
+		for (long hash = 0; hash < 4; hash++) {
+			table.put(hash, hash, new short[] { 1 }, new double[] { 1.0 });
+		}
+
+		assertEquals(0, table.getEvictions());
+		for (long hash = 0; hash < 4; hash++) {
+			assertNotNull(table.get(hash, hash, 1, TAG_NAMES));
+		}
+	}
+
+	@Test
+	void checkHashRejectsFalseHits() {
+		OffHeapTagTable table = new OffHeapTagTable(SLOT_BYTES, 4);
+		table.put(1, 100, new short[] { 0, 1 }, new double[] { 0.9, 0.8 });
+
+		// Mismo hash principal con otro hash de comprobación, u otra longitud: no es la misma oración.
+		assertNull(table.get(1, 101, 2, TAG_NAMES));
+		assertNull(table.get(1, 100, 3, TAG_NAMES));
+		assertEquals(2, table.getMisses());
+
+		table.put(1, 101, new short[] { 2, 3 }, new double[] { 0.7, 0.6 });
+		assertEquals(1, table.getEvictions());
+		assertNull(table.get(1, 100, 2, TAG_NAMES));
+		assertArrayEquals(new String[] { "VBZ", "." }, table.get(1, 101, 2, TAG_NAMES).getTags());
+	}
+
+	@Test
+	void sentencesLongerThanMaxTokensAreNotStored() {
+		OffHeapTagTable table = new OffHeapTagTable(10 * SLOT_BYTES, 4);
+		short[] tags = { 0, 1, 2, 3, 3 };
+		table.put(1, 100, tags, new double[tags.length]);
+
+		assertNull(table.get(1, 100, tags.length, TAG_NAMES));
+		assertEquals(1, table.getMisses());
+		assertEquals(0, table.getEvictions());
+
+		// Una oración de exactamente maxTokens sí se guarda.
+		table.put(2, 200, new short[] { 0, 1, 2, 3 }, new double[4]);
+		assertNotNull(table.get(2, 200, 4, TAG_NAMES));
+	}
+
+	@Test
+	void capacityIsWholeSlots() {
+		assertEquals(3 * SLOT_BYTES, new OffHeapTagTable(3 * SLOT_BYTES + SLOT_BYTES - 1, 4).getCapacityBytes());
+	}
+
+	@Test
+	void rejectsInvalidLimits() {
+		assertThrows(IllegalArgumentException.class, () -> new OffHeapTagTable(1024, 0));
+		assertThrows(IllegalArgumentException.class, () -> new OffHeapTagTable(SLOT_BYTES - 1, 4));
+	}
+}
@@ -0,0 +1,60 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.util.Span;
+
+/**
+ * @file ParallelSentenceDetectorTest.java
+ * @brief Comprueba que la detección por párrafos en paralelo da las mismas oraciones que la secuencial.
+ */
+class ParallelSentenceDetectorTest {
+	private static SentenceModel model;
+	private static ForkJoinPool pool;
+
+	@BeforeAll
+	static void loadModel() throws IOException {
+		model = ModelRegistry.getInstance().get(Pipeline.SENTENCE_MODEL, SentenceModel.class);
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterAll
+	static void shutdownPool() {
+		pool.shutdown();
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+		"demo_data/en-sent1.demo, 1",
+		"demo_data/en-sent1.demo, 500",
+		"demo_data/en-sent1.demo, " + ParallelSentenceDetector.DEFAULT_MIN_SHARD_CHARS,
+		"training_data/Ocmulgee National Monument - Georgia.txt, 1",
+		"training_data/Ocmulgee National Monument - Georgia.txt, 4096",
+	})
+	void sameSentencesAsSequential(String file, int minShardChars) throws IOException {
+		String text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+		ParallelSentenceDetector parallel = new ParallelSentenceDetector(model, minShardChars);
+
+		Span[] expected = new SentenceDetectorME(model).sentPosDetect(text);
+		Span[] actual = parallel.sentPosDetect(text, pool);
+
+		assertArrayEquals(expected, actual);
+		if (minShardChars < text.length() / 2) {
+			assertTrue(parallel.shardStarts(text).length > 1, "the text should be split into several shards");
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.util.Span;
+
+/**
+ * @file StreamingSentenceDetectorTest.java
+ * @brief Comprueba que la detección por ventanas da las mismas oraciones que sentPosDetect sobre el texto entero.
+ */
+class StreamingSentenceDetectorTest {
+	/** Longitud máxima de las oraciones de shortSentences. */
+	private static final int SHORT_SENTENCE_CHARS = 48;
+
+	private static SentenceModel model;
+	/** Oraciones cortas de los textos de ejemplo, separadas por un espacio. */
+	private static String shortSentences;
+
+	@BeforeAll
+	static void loadModel() throws IOException {
+		model = ModelRegistry.getInstance().get(Pipeline.SENTENCE_MODEL, SentenceModel.class);
+
+		SentenceDetectorME detector = new SentenceDetectorME(model);
+		StringBuilder text = new StringBuilder();
+		for (String file : new String[] { "demo_data/en-sent1.demo", "training_data/Ocmulgee National Monument - Georgia.txt" }) {
+			String content = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+			for (String sentence : detector.sentDetect(content)) {
+				sentence = sentence.replaceAll("\\s+", " ");
+				if (sentence.length() <= SHORT_SENTENCE_CHARS) {
+					if (text.length() > 0) {
+						text.append(' ');
+					}
+					text.append(sentence);
+				}
+			}
+		}
+		shortSentences = text.toString();
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+		"demo_data/en-sent1.demo, 300",
+		"demo_data/en-sent1.demo, " + StreamingSentenceDetector.DEFAULT_WINDOW_CHARS,
+		"training_data/Ocmulgee National Monument - Georgia.txt, " + StreamingSentenceDetector.DEFAULT_WINDOW_CHARS,
+	})
+	void sameSentencesAsWholeText(String file, int windowChars) throws IOException {
+		String text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+		Span[] expected = new SentenceDetectorME(model).sentPosDetect(text);
+		assertTrue(expected.length > 1, "the text should have several sentences");
+
+		assertArrayEquals(expected, detect(text, windowChars), "window " + windowChars);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 70, 80, 100, 128, 256 })
+	void smallWindowsKeepEveryShortSentence(int windowChars) throws IOException {
+		// Ventanas pequeñas que dejan muchas oraciones a caballo entre dos ventanas: si cabe la
+		// oración con su contexto, la ventana no puede cortarla (con 70 caracteres se partía una
+		// oración de 48 cuando la palabra de contexto empezaba la ventana).
+		Span[] expected = new SentenceDetectorME(model).sentPosDetect(shortSentences);
+		assertTrue(expected.length > 100, "the text should have many short sentences");
+
+		assertArrayEquals(expected, detect(shortSentences, windowChars), "window " + windowChars);
+	}
+
+	@Test
+	void sentenceLongerThanTheWindowIsCut() throws IOException {
+		String text = "This sentence is much longer than the tiny window used to read it. Short one.";
+
+		Span[] spans = detect(text, 20);
+
+		// Las oraciones cortadas siguen cubriendo todo el texto, en orden y sin solaparse.
+		assertTrue(spans.length > 2);
+		for (int i = 1; i < spans.length; i++) {
+			assertTrue(spans[i - 1].getEnd() <= spans[i].getStart(), spans[i - 1] + " " + spans[i]);
+		}
+		assertEquals(text.length(), spans[spans.length - 1].getEnd());
+	}
+
+	/** Detecta las oraciones por ventanas y las devuelve con posiciones relativas al texto completo. */
+	private static Span[] detect(String text, int windowChars) throws IOException {
+		List<Span> spans = new ArrayList<>();
+		StreamingSentenceDetector streaming = new StreamingSentenceDetector(new SentenceDetectorME(model), windowChars);
+		long count = streaming.detect(new StringReader(text), (windowOffset, span, window) ->
+				spans.add(new Span((int) windowOffset + span.getStart(), (int) windowOffset + span.getEnd())));
+		assertEquals(spans.size(), count);
+		return spans.toArray(new Span[0]);
+	}
+}